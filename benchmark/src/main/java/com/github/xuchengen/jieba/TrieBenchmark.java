@@ -0,0 +1,46 @@
+package com.github.xuchengen.jieba;
+
+import com.github.xuchengen.jieba.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>词典树匹配基准：逐个匹配语料分词结果中的词
+ * <p>{@link DictSegment#match(char[], int, int)}仅包内可见，因此本类与其同包
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark {
+
+    private DictSegment trie;
+    private char[][] words;
+
+    @Setup
+    public void setup() {
+        JiebaSegmenter segmenter = new JiebaSegmenter();
+        trie = WordDictionary.getInstance().getTrie();
+        List<char[]> list = new ArrayList<>();
+        for (String doc : Corpus.load("article")) {
+            for (String word : segmenter.sentenceProcess(doc)) {
+                list.add(word.toCharArray());
+            }
+        }
+        words = list.toArray(new char[0][]);
+    }
+
+    @Benchmark
+    public int match() {
+        int matched = 0;
+        for (char[] word : words) {
+            if (trie.match(word, 0, word.length).isMatch()) matched++;
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>运行基准测试并统计内存分配速率，等价于<code>java -jar benchmarks.jar [正则] -prof gc</code>
+ * <p>词典（<code>/dict.txt</code>）需位于classpath中
+ **/
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (args.length == 0) {
+            options.include("com\\.github\\.xuchengen\\.jieba\\..*Benchmark");
+        } else {
+            for (String include : args) {
+                options.include(include);
+            }
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * <p>多线程分词基准：所有可用CPU同时切分同一份语料，共享同一个分词器与词典
+ **/
+@Threads(Threads.MAX)
+public class ConcurrentSegmenterBenchmark extends SegmenterBenchmark {
+}
@@ -0,0 +1,61 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import com.github.xuchengen.jieba.JiebaException;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>基准测试语料，每行一篇文档
+ * <ul>
+ *     <li>query：搜索短查询</li>
+ *     <li>title：新闻标题</li>
+ *     <li>article：长篇文章</li>
+ * </ul>
+ **/
+public final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * 加载语料
+     *
+     * @param name query、title或article
+     * @return 文档列表
+     */
+    public static List<String> load(String name) {
+        String resource = String.format(Locale.ROOT, "/corpus/%s.txt", name);
+        List<String> docs = new ArrayList<>();
+        try (InputStream is = Corpus.class.getResourceAsStream(resource)) {
+            if (is == null) throw new JiebaException("corpus not found: " + resource);
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.trim().isEmpty()) docs.add(line.trim());
+            }
+        } catch (JiebaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JiebaException(e);
+        }
+        return Collections.unmodifiableList(docs);
+    }
+
+    /**
+     * 语料的总字符数
+     */
+    public static long chars(List<String> docs) {
+        long chars = 0;
+        for (String doc : docs) {
+            chars += doc.length();
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import com.github.xuchengen.jieba.WordDictionary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>主词典加载基准
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DictionaryBenchmark {
+
+    private WordDictionary wordDict;
+
+    @Setup
+    public void setup() {
+        wordDict = WordDictionary.getInstance();
+    }
+
+    @Benchmark
+    public int loadDict() {
+        wordDict.loadDict();
+        return wordDict.getWordCount();
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>多核扩展性基准：线程数从1增加到32，所有线程共享同一个分词器与词典，每次操作切分一篇文档
+ * <p>运行<code>main</code>依次测量各线程数下的吞吐，并输出相对单线程的加速比与并行效率：
+ * <pre>
+ * java -cp benchmarks.jar:&lt;词典目录&gt; com.github.xuchengen.jieba.benchmark.ScalingBenchmark [最大线程数]
+ * </pre>
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseParallelGC", "-Xms2g", "-Xmx2g"})
+public class ScalingBenchmark {
+
+    @Param({"title"})
+    public String corpus;
+
+    private List<String> docs;
+    private JiebaSegmenter segmenter;
+
+    @Setup
+    public void setup() {
+        docs = Corpus.load(corpus);
+        segmenter = new JiebaSegmenter();
+    }
+
+    /**
+     * 每个线程从不同位置开始轮流切分语料中的文档
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setup() {
+            next = (int) (Thread.currentThread().getId() & 0xffff);
+        }
+    }
+
+    @Benchmark
+    public void sentenceProcess(Cursor cursor, Blackhole bh) {
+        String doc = docs.get(Math.floorMod(cursor.next++, docs.size()));
+        bh.consume(segmenter.sentenceProcess(doc));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        List<Integer> threads = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        for (int n = 1; n <= maxThreads; n <<= 1) {
+            Collection<RunResult> results = new Runner(new OptionsBuilder()
+                    .include(ScalingBenchmark.class.getName() + "\\.sentenceProcess")
+                    .threads(n)
+                    .build()).run();
+            for (RunResult result : results) {
+                threads.add(n);
+                scores.add(result.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.println();
+        System.out.println("threads        ops/s   speedup  efficiency");
+        double base = scores.get(0);
+        for (int i = 0; i < scores.size(); i++) {
+            int n = threads.get(i);
+            double speedup = scores.get(i) / base;
+            System.out.println(String.format(Locale.ROOT, "%7d %12.0f %9.2f %10.1f%%", n, scores.get(i), speedup,
+                    speedup * 100 / n));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.JiebaSegmenter.SegMode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>分词基准：每次操作切分整份语料
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmenterBenchmark {
+
+    @Param({"query", "title", "article"})
+    public String corpus;
+
+    private List<String> docs;
+    private JiebaSegmenter segmenter;
+
+    @Setup
+    public void setup() {
+        docs = Corpus.load(corpus);
+        segmenter = new JiebaSegmenter();
+    }
+
+    @Benchmark
+    public void sentenceProcess(Blackhole bh) {
+        for (String doc : docs) {
+            bh.consume(segmenter.sentenceProcess(doc));
+        }
+    }
+
+    @Benchmark
+    public void sentenceProcessIds(Blackhole bh) {
+        for (String doc : docs) {
+            bh.consume(segmenter.sentenceProcessIds(doc));
+        }
+    }
+
+    @Benchmark
+    public void processSearch(Blackhole bh) {
+        for (String doc : docs) {
+            bh.consume(segmenter.process(doc, SegMode.SEARCH));
+        }
+    }
+
+    @Benchmark
+    public void processIndex(Blackhole bh) {
+        for (String doc : docs) {
+            bh.consume(segmenter.process(doc, SegMode.INDEX));
+        }
+    }
+}
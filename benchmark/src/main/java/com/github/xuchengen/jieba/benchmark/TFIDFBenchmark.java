@@ -0,0 +1,66 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.tfidf.IDFBuilder;
+import com.github.xuchengen.jieba.tfidf.TFIDFAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>关键词提取基准
+ * <p>jar包中不附带IDF表，启动时用{@link IDFBuilder}在全部语料上生成一份
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TFIDFBenchmark {
+
+    @Param({"title", "article"})
+    public String corpus;
+
+    @Param({"10"})
+    public int topN;
+
+    private List<String> docs;
+    private TFIDFAnalyzer analyzer;
+
+    @Setup
+    public void setup() throws IOException {
+        docs = Corpus.load(corpus);
+        JiebaSegmenter segmenter = new JiebaSegmenter();
+        Path source = Files.createTempFile("jieba-corpus", ".txt");
+        Path idf = Files.createTempFile("jieba-idf", ".txt");
+        try {
+            List<String> all = new ArrayList<>();
+            for (String name : new String[]{"query", "title", "article"}) {
+                all.addAll(Corpus.load(name));
+            }
+            Files.write(source, all, StandardCharsets.UTF_8);
+            new IDFBuilder(segmenter).build(Collections.singletonList(source), idf, null);
+            analyzer = new TFIDFAnalyzer(segmenter);
+            analyzer.loadIDF(idf);
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(idf);
+        }
+    }
+
+    @Benchmark
+    public void analyze(Blackhole bh) {
+        for (String doc : docs) {
+            bh.consume(analyzer.analyze(doc, topN));
+        }
+    }
+}
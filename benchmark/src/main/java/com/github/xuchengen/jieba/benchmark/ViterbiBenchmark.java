@@ -0,0 +1,74 @@
+package com.github.xuchengen.jieba.benchmark;
+
+import com.github.xuchengen.jieba.CharacterUtil;
+import com.github.xuchengen.jieba.viterbi.BatchViterbi;
+import com.github.xuchengen.jieba.viterbi.FinalSeg;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>HMM解码基准：去掉文章语料中的非中文字符后，依次截取中文串作为输入
+ * <ul>
+ *     <li>short：2到6个字，接近真实的未登录词片段</li>
+ *     <li>long：64个字</li>
+ * </ul>
+ * viterbi逐句解码，batch用{@link BatchViterbi}一次解码全部输入，每组lanes个通道，可用<code>-p lanes=8,32,256</code>比较
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViterbiBenchmark {
+
+    @Param({"short", "long"})
+    public String length;
+
+    @Param({"64"})
+    public int lanes;
+
+    private List<String> inputs;
+    private FinalSeg finalSeg;
+    private BatchViterbi batchViterbi;
+
+    @Setup
+    public void setup() {
+        finalSeg = FinalSeg.getInstance();
+        batchViterbi = new BatchViterbi(finalSeg.getModel(), lanes);
+        inputs = new ArrayList<>();
+        boolean isShort = "short".equals(length);
+        StringBuilder run = new StringBuilder();
+        int next = isShort ? 2 : 64;
+        for (String doc : Corpus.load("article")) {
+            for (int i = 0; i < doc.length(); i++) {
+                char ch = doc.charAt(i);
+                if (!CharacterUtil.isChineseLetter(ch)) continue;
+                run.append(ch);
+                if (run.length() == next) {
+                    inputs.add(run.toString());
+                    run.setLength(0);
+                    if (isShort) next = next == 6 ? 2 : next + 1;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void viterbi(Blackhole bh) {
+        List<String> tokens = new ArrayList<>();
+        for (String input : inputs) {
+            finalSeg.viterbi(input, tokens);
+        }
+        bh.consume(tokens);
+    }
+
+    @Benchmark
+    public List<List<String>> batch() {
+        return batchViterbi.decode(inputs);
+    }
+}
@@ -1,41 +1,39 @@
 package com.github.xuchengen.jieba;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * <p>词典树分段，表示词典树的一个分枝
+ * <p>子节点存放在不可变的{@link Children}中，新增子节点时复制出新的容器再替换引用（写时复制）。
+ * 查询只读取引用与数组，不加锁；容器的字段都是final，任何线程读到新容器的引用时都能看到其完整内容。
+ * 写入（加载词典、增删词）在节点上加锁，互相串行。
+ * <p>词的状态以volatile的nodeState发布：写入方先写词的编号，最后写nodeState；
+ * 查询方先读nodeState，读到1时必定也能读到对应的编号。
  * <p>作者：徐承恩
  * <p>邮箱：<a href="mailto:xuchengen@gmail.com">xuchengen@gmail.com</a>
  * <p>日期：2022-09-27 14:01
  **/
 public class DictSegment implements Comparable<DictSegment> {
 
-    // 公用字典表，存储汉字
-    private static final Map<Character, Character> charMap = new HashMap<>(16, 0.95f);
-    // 数组大小上限
-    private static final int ARRAY_LENGTH_LIMIT = 3;
+    // 子节点数超过该值时改用开放寻址的散列表存储，否则使用有序数组
+    private static final int ARRAY_LENGTH_LIMIT = 8;
+    private static final Children EMPTY = new Children(new char[0], new DictSegment[0], -1, 0);
+    private static final int[] NO_SUGGESTIONS = new int[0];
 
-    // Map存储结构
-    private volatile Map<Character, DictSegment> childrenMap;
-    // 数组方式存储结构
-    private volatile DictSegment[] childrenArray;
+    // 子节点容器，只整体替换，不原地修改
+    private Children children = EMPTY;
 
     // 当前节点上存储的字符
-    private final Character nodeChar;
-    // 当前节点存储的Segment数目
-    // storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT
-    // ,则使用Map存储
-    private int storeSize = 0;
-    // 当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
-    private int nodeState = 0;
-
-
-    DictSegment(Character nodeChar) {
-        if (nodeChar == null) {
-            throw new IllegalArgumentException("参数为空异常，字符不能为空");
-        }
+    private final char nodeChar;
+    // 当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词；最后写入，见类注释
+    private volatile int nodeState = 0;
+    // 从根节点到当前节点的路径所表示的词的编号，不是词时为-1；先于nodeState写入
+    private int wordId = -1;
+    // 以当前路径为前缀的词中频率最高的若干个词的编号，按频率降序，未计算时为null；只整体替换
+    private volatile int[] suggestions;
+
+
+    DictSegment(char nodeChar) {
         this.nodeChar = nodeChar;
     }
 
@@ -49,7 +47,7 @@ public class DictSegment implements Comparable<DictSegment> {
      * 判断是否有下一个节点
      */
     boolean hasNextNode() {
-        return this.storeSize > 0;
+        return this.children.size > 0;
     }
 
 
@@ -100,26 +98,8 @@ public class DictSegment implements Comparable<DictSegment> {
         // 设置hit的当前处理位置
         searchHit.setEnd(begin);
 
-        Character keyChar = charArray[begin];
-        DictSegment ds = null;
-
-        // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
-        DictSegment[] segmentArray = this.childrenArray;
-        Map<Character, DictSegment> segmentMap = this.childrenMap;
-
         // STEP1 在节点中查找keyChar对应的DictSegment
-        if (segmentArray != null) {
-            // 在数组中查找
-            DictSegment keySegment = new DictSegment(keyChar);
-            int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-            if (position >= 0) {
-                ds = segmentArray[position];
-            }
-
-        } else if (segmentMap != null) {
-            // 在map中查找
-            ds = segmentMap.get(keyChar);
-        }
+        DictSegment ds = getChild(charArray[begin]);
 
         // STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
         if (ds != null) {
@@ -130,8 +110,9 @@ public class DictSegment implements Comparable<DictSegment> {
 
                 // 搜索最后一个char
                 if (ds.nodeState == 1) {
-                    // 添加HIT状态为完全匹配
+                    // 添加HIT状态为完全匹配，读到nodeState后再读编号
                     searchHit.setMatch();
+                    searchHit.setWordId(ds.wordId);
                 }
                 if (ds.hasNextNode()) {
                     // 添加HIT状态为前缀匹配
@@ -148,6 +129,68 @@ public class DictSegment implements Comparable<DictSegment> {
     }
 
 
+    /**
+     * 查找当前节点下keyChar对应的子节点，不创建对象
+     *
+     * @param keyChar
+     * @return 子节点，不存在时返回null
+     */
+    DictSegment getChild(char keyChar) {
+        return this.children.get(keyChar);
+    }
+
+
+    /**
+     * 判断从根节点到当前节点的路径是否表示一个词
+     */
+    boolean isWord() {
+        return this.nodeState == 1;
+    }
+
+
+    /**
+     * 从根节点到当前节点的路径所表示的词的编号
+     */
+    int getWordId() {
+        return this.nodeState == 1 ? this.wordId : -1;
+    }
+
+
+    /**
+     * 查询词的编号
+     *
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 词的编号，不是词典中的词时返回-1
+     */
+    int getWordId(char[] charArray, int begin, int length) {
+        DictSegment ds = this;
+        for (int i = begin; i < begin + length && ds != null; i++) {
+            ds = ds.getChild(charArray[i]);
+        }
+        return ds == null || ds == this ? -1 : ds.getWordId();
+    }
+
+
+    /**
+     * 查询词的编号，包括已被屏蔽的词
+     * <p>不经过nodeState读取编号，仅供持有写锁的写入方使用
+     *
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 词的编号，从未加入过词典时返回-1
+     */
+    int getStoredWordId(char[] charArray, int begin, int length) {
+        DictSegment ds = this;
+        for (int i = begin; i < begin + length && ds != null; i++) {
+            ds = ds.getChild(charArray[i]);
+        }
+        return ds == null || ds == this ? -1 : ds.wordId;
+    }
+
+
     /**
      * 加载填充词典片段
      *
@@ -158,6 +201,17 @@ public class DictSegment implements Comparable<DictSegment> {
     }
 
 
+    /**
+     * 加载填充词典片段，并记录词的编号
+     *
+     * @param charArray
+     * @param wordId
+     */
+    void fillSegment(char[] charArray, int wordId) {
+        this.fillSegment(charArray, 0, charArray.length, 1, wordId);
+    }
+
+
     /**
      * 屏蔽词典中的一个词
      *
@@ -176,26 +230,33 @@ public class DictSegment implements Comparable<DictSegment> {
      * @param length
      * @param enabled
      */
-    private synchronized void fillSegment(char[] charArray, int begin, int length, int enabled) {
-        // 获取字典表中的汉字对象
-        Character beginChar = charArray[begin];
-        Character keyChar = charMap.get(beginChar);
-        // 字典中没有该字，则将其添加入字典
-        if (keyChar == null) {
-            charMap.put(beginChar, beginChar);
-            keyChar = beginChar;
-        }
+    private void fillSegment(char[] charArray, int begin, int length, int enabled) {
+        this.fillSegment(charArray, begin, length, enabled, -1);
+    }
+
 
+    /**
+     * 加载填充词典片段
+     *
+     * @param charArray
+     * @param begin
+     * @param length
+     * @param enabled
+     * @param wordId    词的编号，-1表示保留原编号
+     */
+    private synchronized void fillSegment(char[] charArray, int begin, int length, int enabled, int wordId) {
         // 搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
-        DictSegment ds = lookforSegment(keyChar, enabled);
+        DictSegment ds = lookforSegment(charArray[begin], enabled);
         if (ds != null) {
             // 处理keyChar对应的segment
             if (length > 1) {
                 // 词元还没有完全加入词典树
-                ds.fillSegment(charArray, begin + 1, length - 1, enabled);
+                ds.fillSegment(charArray, begin + 1, length - 1, enabled, wordId);
             } else if (length == 1) {
                 // 已经是词元的最后一个char,设置当前节点状态为enabled，
                 // enabled=1表明一个完整的词，enabled=0表示从词典中屏蔽当前词
+                // 编号先于状态写入，读到新状态的线程必定看到新编号
+                if (wordId >= 0) ds.wordId = wordId;
                 ds.nodeState = enabled;
             }
         }
@@ -204,111 +265,137 @@ public class DictSegment implements Comparable<DictSegment> {
 
 
     /**
-     * 查找本节点下对应的keyChar的segment *
+     * 查找本节点下对应的keyChar的segment，调用方持有本节点的锁
      *
      * @param keyChar
      * @param create  =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
      * @return
      */
-    private DictSegment lookforSegment(Character keyChar, int create) {
-
-        DictSegment ds = null;
-
-        if (this.storeSize <= ARRAY_LENGTH_LIMIT) {
-            // 获取数组容器，如果数组未创建则创建数组
-            DictSegment[] segmentArray = getChildrenArray();
-            // 搜寻数组
-            DictSegment keySegment = new DictSegment(keyChar);
-            int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-            if (position >= 0) {
-                ds = segmentArray[position];
-            }
+    private DictSegment lookforSegment(char keyChar, int create) {
+        DictSegment ds = this.children.get(keyChar);
+        if (ds == null && create == 1) {
+            ds = new DictSegment(keyChar);
+            // 新容器构造完成后才替换引用，查询线程看到的总是完整的容器
+            this.children = this.children.with(ds);
+        }
+        return ds;
+    }
 
-            // 遍历数组后没有找到对应的segment
-            if (ds == null && create == 1) {
-                ds = keySegment;
-                if (this.storeSize < ARRAY_LENGTH_LIMIT) {
-                    // 数组容量未满，使用数组存储
-                    segmentArray[this.storeSize] = ds;
-                    // segment数目+1
-                    this.storeSize++;
-                    Arrays.sort(segmentArray, 0, this.storeSize);
-
-                } else {
-                    // 数组容量已满，切换Map存储
-                    // 获取Map容器，如果Map未创建,则创建Map
-                    Map<Character, DictSegment> segmentMap = getChildrenMap();
-                    // 将数组中的segment迁移到Map中
-                    migrate(segmentArray, segmentMap);
-                    // 存储新的segment
-                    segmentMap.put(keyChar, ds);
-                    // segment数目+1 ， 必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-                    this.storeSize++;
-                    // 释放当前的数组引用
-                    this.childrenArray = null;
-                }
 
-            }
+    /**
+     * 以当前路径为前缀、频率最高的词的编号，按频率降序
+     *
+     * @return 词的编号，未计算时返回null
+     */
+    int[] getSuggestions() {
+        return this.suggestions;
+    }
 
-        } else {
-            // 获取Map容器，如果Map未创建,则创建Map
-            Map<Character, DictSegment> segmentMap = getChildrenMap();
-            // 搜索Map
-            ds = segmentMap.get(keyChar);
-            if (ds == null && create == 1) {
-                // 构造新的segment
-                ds = new DictSegment(keyChar);
-                segmentMap.put(keyChar, ds);
-                // 当前节点存储segment数目+1
-                this.storeSize++;
-            }
-        }
 
-        return ds;
+    /**
+     * 自底向上计算子树中每个节点的前缀补全列表
+     *
+     * @param slots 按词编号存放的词频（对数概率）
+     * @param k     每个节点保留的词数
+     * @return 当前节点的列表
+     */
+    int[] buildSuggestions(WordSlots slots, int k) {
+        for (DictSegment node : this.children.nodes) {
+            if (node != null) node.buildSuggestions(slots, k);
+        }
+        return mergeSuggestions(slots, k);
     }
 
 
     /**
-     * 获取数组容器 线程同步方法
+     * 一个词加入、删除或词频变化后，只重新计算它的前缀路径上各节点的列表
+     * <p>路径以外的节点的列表不受影响；路径上的节点自下而上依次归并，子节点的列表总是先于父节点更新
+     *
+     * @param charArray 词
+     * @param slots     按词编号存放的词频（对数概率）
+     * @param k         每个节点保留的词数
      */
-    private DictSegment[] getChildrenArray() {
-        if (this.childrenArray == null) {
-            synchronized (this) {
-                if (this.childrenArray == null) {
-                    this.childrenArray = new DictSegment[ARRAY_LENGTH_LIMIT];
-                }
-            }
+    void updateSuggestions(char[] charArray, WordSlots slots, int k) {
+        DictSegment[] path = new DictSegment[charArray.length + 1];
+        int depth = 0;
+        path[0] = this;
+        for (DictSegment ds = this; depth < charArray.length; ) {
+            ds = ds.getChild(charArray[depth]);
+            if (ds == null) break;
+            path[++depth] = ds;
         }
-        return this.childrenArray;
+        for (int i = depth; i >= 0; i--) path[i].mergeSuggestions(slots, k);
     }
 
 
     /**
-     * 获取Map容器 线程同步方法
+     * 由自身的词与各子节点已计算的列表归并出当前节点的列表，只保留前k个；
+     * 自身不是词且只有一个子节点时直接复用子节点的列表
      */
-    private Map<Character, DictSegment> getChildrenMap() {
-        if (this.childrenMap == null) {
-            synchronized (this) {
-                if (this.childrenMap == null) {
-                    this.childrenMap = new HashMap<>(ARRAY_LENGTH_LIMIT * 2, 0.8f);
+    private int[] mergeSuggestions(WordSlots slots, int k) {
+        Children segments = this.children;
+        DictSegment[] nodes = segments.nodes;
+        boolean word = this.nodeState == 1 && this.wordId >= 0;
+        int[][] lists = new int[nodes.length][];
+        int[] single = null;
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] != null) single = lists[i] = nodes[i].suggestions;
+        }
+        if (!word && segments.size <= 1) {
+            return this.suggestions = single == null ? NO_SUGGESTIONS : single;
+        }
+
+        // 各列表均已按频率降序，每次取所有列表头部最好的一个
+        int[] heads = new int[nodes.length];
+        int[] top = new int[k];
+        int n = 0;
+        boolean own = word;
+        while (n < k) {
+            int best = -1;
+            int bestId = own ? this.wordId : -1;
+            for (int i = 0; i < lists.length; i++) {
+                int[] list = lists[i];
+                if (list == null || heads[i] == list.length) continue;
+                int id = list[heads[i]];
+                double freq = slots.freq(id, 0);
+                double bestFreq = bestId < 0 ? 0 : slots.freq(bestId, 0);
+                if (bestId < 0 || freq > bestFreq || (freq == bestFreq && id < bestId)) {
+                    best = i;
+                    bestId = id;
                 }
             }
+            if (bestId < 0) break;
+            if (best < 0) {
+                own = false;
+            } else {
+                heads[best]++;
+            }
+            top[n++] = bestId;
         }
-        return this.childrenMap;
+        return this.suggestions = n == k ? top : Arrays.copyOf(top, n);
     }
 
 
     /**
-     * 将数组中的segment迁移到Map中
-     *
-     * @param segmentArray
+     * 估算以当前节点为根的子树占用的堆内存（字节），按64位JVM开启压缩指针计算
      */
-    private void migrate(DictSegment[] segmentArray, Map<Character, DictSegment> segmentMap) {
-        for (DictSegment segment : segmentArray) {
-            if (segment != null) {
-                segmentMap.put(segment.nodeChar, segment);
+    long estimateBytes() {
+        // 对象头12 + char 2 + 两个int 8 + 两个引用8，对齐到32
+        long bytes = 32;
+        Children segments = this.children;
+        if (segments != EMPTY) {
+            // 容器对象24 + char数组 + 引用数组
+            bytes += 24 + align(16 + 2L * segments.keys.length) + align(16 + 4L * segments.nodes.length);
+            for (DictSegment segment : segments.nodes) {
+                if (segment != null) bytes += segment.estimateBytes();
             }
         }
+        return bytes;
+    }
+
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
     }
 
 
@@ -320,7 +407,101 @@ public class DictSegment implements Comparable<DictSegment> {
      */
     public int compareTo(DictSegment o) {
         // 对当前节点存储的char进行比较
-        return this.nodeChar.compareTo(o.nodeChar);
+        return Character.compare(this.nodeChar, o.nodeChar);
     }
 
+
+    /**
+     * 不可变的子节点容器
+     * <p>子节点不多于{@link #ARRAY_LENGTH_LIMIT}个时按字符有序存放，二分查找；
+     * 更多时使用容量为2的幂的开放寻址散列表，线性探测，空槽的节点为null
+     */
+    private static final class Children {
+        final char[] keys;
+        final DictSegment[] nodes;
+        // 散列表掩码，有序数组时为-1
+        final int mask;
+        final int size;
+
+        Children(char[] keys, DictSegment[] nodes, int mask, int size) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.mask = mask;
+            this.size = size;
+        }
+
+        DictSegment get(char keyChar) {
+            if (mask < 0) {
+                int low = 0;
+                int high = keys.length - 1;
+                while (low <= high) {
+                    int mid = (low + high) >>> 1;
+                    char c = keys[mid];
+                    if (c < keyChar) {
+                        low = mid + 1;
+                    } else if (c > keyChar) {
+                        high = mid - 1;
+                    } else {
+                        return nodes[mid];
+                    }
+                }
+                return null;
+            }
+            DictSegment node;
+            for (int i = hash(keyChar) & mask; (node = nodes[i]) != null; i = (i + 1) & mask) {
+                if (keys[i] == keyChar) return node;
+            }
+            return null;
+        }
+
+        /**
+         * 复制出加入了segment的新容器
+         */
+        Children with(DictSegment segment) {
+            int n = size + 1;
+            if (n <= ARRAY_LENGTH_LIMIT) {
+                int position = -Arrays.binarySearch(keys, segment.nodeChar) - 1;
+                char[] newKeys = new char[n];
+                DictSegment[] newNodes = new DictSegment[n];
+                System.arraycopy(keys, 0, newKeys, 0, position);
+                System.arraycopy(nodes, 0, newNodes, 0, position);
+                newKeys[position] = segment.nodeChar;
+                newNodes[position] = segment;
+                System.arraycopy(keys, position, newKeys, position + 1, size - position);
+                System.arraycopy(nodes, position, newNodes, position + 1, size - position);
+                return new Children(newKeys, newNodes, -1, n);
+            }
+
+            char[] newKeys;
+            DictSegment[] newNodes;
+            if (mask >= 0 && n * 2 <= mask + 1) {
+                // 容量足够，复制后直接插入
+                newKeys = keys.clone();
+                newNodes = nodes.clone();
+            } else {
+                // 扩容并重新散列，装载因子不超过0.5
+                int capacity = mask < 0 ? Integer.highestOneBit(n * 4 - 1) : (mask + 1) << 1;
+                newKeys = new char[capacity];
+                newNodes = new DictSegment[capacity];
+                for (DictSegment node : nodes) {
+                    if (node != null) put(newKeys, newNodes, node);
+                }
+            }
+            put(newKeys, newNodes, segment);
+            return new Children(newKeys, newNodes, newKeys.length - 1, n);
+        }
+
+        private static void put(char[] keys, DictSegment[] nodes, DictSegment segment) {
+            int mask = keys.length - 1;
+            int i = hash(segment.nodeChar) & mask;
+            while (nodes[i] != null) i = (i + 1) & mask;
+            keys[i] = segment.nodeChar;
+            nodes[i] = segment;
+        }
+
+        private static int hash(char c) {
+            int h = c * 0x9E3779B1;
+            return h ^ (h >>> 16);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.github.xuchengen.jieba;
+
+/**
+ * <p>编码、缓存与索引共用的64位哈希工具
+ **/
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * MurmurHash3的fmix64：把输入的各比特充分打散到全部64位，相近的输入得到差异很大的输出
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 字符串的64位哈希：逐字符旋转乘法累积，再用{@link #mix(long)}打散，不构造字节数组；不同的种子得到相互独立的哈希
+     */
+    public static long hash(CharSequence text, long seed) {
+        long h = seed ^ text.length();
+        for (int i = 0; i < text.length(); i++) {
+            h = Long.rotateLeft(h ^ text.charAt(i) * 0xff51afd7ed558ccdL, 29) * 0xc4ceb9fe1a85ec53L;
+        }
+        return mix(h);
+    }
+}
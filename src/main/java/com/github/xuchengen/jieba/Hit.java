@@ -28,6 +28,10 @@ public class Hit {
      * 词段的结束位置
      */
     private int end;
+    /*
+     * 完全匹配时词的编号
+     */
+    private int wordId = -1;
 
 
     /**
@@ -70,6 +74,7 @@ public class Hit {
      */
     public void setUnmatch() {
         this.hitState = UNMATCH;
+        this.wordId = -1;
     }
 
     public DictSegment getMatchedDictSegment() {
@@ -80,6 +85,17 @@ public class Hit {
         this.matchedDictSegment = matchedDictSegment;
     }
 
+    /**
+     * 完全匹配时词的编号，否则为-1
+     */
+    public int getWordId() {
+        return wordId;
+    }
+
+    public void setWordId(int wordId) {
+        this.wordId = wordId;
+    }
+
     public int getBegin() {
         return begin;
     }
@@ -1,12 +1,21 @@
 package com.github.xuchengen.jieba;
 
+import com.github.xuchengen.jieba.metrics.JiebaMetrics;
+import com.github.xuchengen.jieba.metrics.Limit;
+import com.github.xuchengen.jieba.metrics.MetricsRecorder;
+import com.github.xuchengen.jieba.metrics.Stage;
+import com.github.xuchengen.jieba.newword.NewWordCollector;
 import com.github.xuchengen.jieba.viterbi.FinalSeg;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>结巴分词
@@ -23,6 +32,65 @@ public class JiebaSegmenter {
         SEARCH
     }
 
+    // 保护限制，默认不限制
+    private int maxSpanLength = Integer.MAX_VALUE;
+    private int maxHmmLength = Integer.MAX_VALUE;
+    private long stepBudget = Long.MAX_VALUE;
+    private volatile NewWordCollector newWordCollector;
+
+    /**
+     * 设置连续中文串的最大长度
+     * <p>超过时从串首起每<code>maxSpanLength</code>个字切开，各段独立构造有向无环图，
+     * 避免超长无标点输入构造巨大的图；切点处的词可能被拆开
+     *
+     * @param maxSpanLength 最大长度，不大于0表示不限制
+     */
+    public void setMaxSpanLength(int maxSpanLength) {
+        this.maxSpanLength = maxSpanLength > 0 ? maxSpanLength : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 设置交给HMM的连续单字的最大长度
+     * <p>超过时从首字起每<code>maxHmmLength</code>个字切开，各段分别做Viterbi解码
+     *
+     * @param maxHmmLength 最大长度，不大于0表示不限制
+     */
+    public void setMaxHmmLength(int maxHmmLength) {
+        this.maxHmmLength = maxHmmLength > 0 ? maxHmmLength : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 设置单次切分的步数预算
+     * <p>步数按有向无环图的边数与交给HMM的字数累计，预算耗尽后剩余的连续单字不再经过HMM，直接按单字输出。
+     * 步数与输入内容一一对应，相同输入总在相同位置降级，结果可复现
+     *
+     * @param stepBudget 步数预算，不大于0表示不限制
+     */
+    public void setStepBudget(long stepBudget) {
+        this.stepBudget = stepBudget > 0 ? stepBudget : Long.MAX_VALUE;
+    }
+
+    /**
+     * 设置新词收集器，HMM切出的多字词会计入其中
+     *
+     * @param newWordCollector 收集器，为null时不收集
+     */
+    public void setNewWordCollector(NewWordCollector newWordCollector) {
+        this.newWordCollector = newWordCollector;
+    }
+
+    /**
+     * 分词结果的指纹：由词典内容、HMM模型与保护限制共同决定
+     * <p>指纹相同时，相同输入的分词结果相同，可用于判断持久化的分词结果是否仍然有效
+     */
+    public long getFingerprint() {
+        long hash = wordDict.getFingerprint();
+        hash = hash * 31 + finalSeg.getModelFingerprint();
+        hash = hash * 31 + maxSpanLength;
+        hash = hash * 31 + maxHmmLength;
+        return hash * 31 + stepBudget;
+    }
+
     /**
      * 初始化用户词典
      *
@@ -41,60 +109,109 @@ public class JiebaSegmenter {
         wordDict.init(paths);
     }
 
-    private Map<Integer, List<Integer>> createDAG(String sentence) {
-        Map<Integer, List<Integer>> dag = new HashMap<>();
-        DictSegment trie = wordDict.getTrie();
-        char[] chars = sentence.toCharArray();
-        int N = chars.length;
-        int i = 0, j = 0;
-        while (i < N) {
-            Hit hit = trie.match(chars, i, j - i + 1);
-            if (hit.isPrefix() || hit.isMatch()) {
-                if (hit.isMatch()) {
-                    if (!dag.containsKey(i)) {
-                        List<Integer> value = new ArrayList<>();
-                        dag.put(i, value);
-                        value.add(j);
-                    } else
-                        dag.get(i).add(j);
-                }
-                j += 1;
-                if (j >= N) {
-                    i += 1;
-                    j = i;
-                }
+    /**
+     * 调节词频使词能（或不能）被分出来，对应jieba的<code>suggest_freq</code>
+     * <p>只传一个词时，返回使其作为整体被分出的最小词频：不低于按当前词典（不用HMM）切分时各部分概率之积；
+     * 传多个词时，返回使其被切成这几个词的最大词频：不高于各部分概率之积
+     *
+     * @param tune    是否把计算出的词频写入词典，词频小于1时删除该词
+     * @param segment 一个词，或希望被切分出的若干个词
+     * @return 建议的词频，与词典文件中的数值含义相同
+     */
+    public double suggestFreq(boolean tune, String... segment) {
+        if (segment.length == 0) throw new IllegalArgumentException("segment is empty");
+        double total = wordDict.getTotal();
+        String word = String.join("", segment).trim().toLowerCase(Locale.getDefault());
+        int wordId = wordDict.getWordId(word);
+        double logFreq = 0.0;
+        double freq;
+        if (segment.length == 1) {
+            for (String part : cutDAG(word)) logFreq += logFreq(part, total);
+            freq = Math.max(Math.floor(Math.exp(logFreq) * total) + 1,
+                    wordId >= 0 ? Math.exp(wordDict.getFreq(wordId)) * total : 1.0);
+        } else {
+            for (String part : segment) logFreq += logFreq(part.trim().toLowerCase(Locale.getDefault()), total);
+            freq = Math.min(Math.floor(Math.exp(logFreq) * total),
+                    wordId >= 0 ? Math.exp(wordDict.getFreq(wordId)) * total : 0.0);
+        }
+        if (tune) {
+            if (freq >= 1) {
+                wordDict.addWord(word, freq);
             } else {
-                i += 1;
-                j = i;
+                wordDict.deleteWord(word);
             }
         }
-        for (i = 0; i < N; ++i) {
-            if (!dag.containsKey(i)) {
-                List<Integer> value = new ArrayList<>();
-                value.add(i);
-                dag.put(i, value);
+        return freq;
+    }
+
+
+    /**
+     * 词的对数概率，不在词典中的词按词频1计算
+     */
+    private double logFreq(String word, double total) {
+        int id = wordDict.getWordId(word);
+        return id >= 0 ? wordDict.getFreq(id) : Math.log(1.0 / total);
+    }
+
+
+    /**
+     * 只按最大概率路径切分，不使用HMM；即{@link #kBestPaths(String, int)}的第一种切分
+     */
+    List<String> cutDAG(String sentence) {
+        char[] chars = sentence.toCharArray();
+        int N = chars.length;
+        Route route = calc(createDAG(chars), N);
+        List<String> words = new ArrayList<>();
+        for (int x = 0; x < N; x = route.ends[x] + 1) {
+            words.add(sentence.substring(x, route.ends[x] + 1));
+        }
+        return words;
+    }
+
+
+    /**
+     * 构造有向无环图
+     * <p>位置i出发的候选词结束位置（含）为<code>dag.ends[dag.offsets[i]..dag.offsets[i + 1])</code>，
+     * 对应的词编号为<code>dag.ids</code>中相同下标的值；i处无词典词时，仅有单字本身一个候选，编号为-1
+     */
+    private DAG createDAG(char[] chars) {
+        DictSegment trie = wordDict.getTrie();
+        int N = chars.length;
+        DAG dag = new DAG(N);
+        for (int i = 0; i < N; i++) {
+            dag.offsets[i] = dag.size;
+            DictSegment ds = trie;
+            for (int j = i; j < N; j++) {
+                ds = ds.getChild(chars[j]);
+                if (ds == null) break;
+                if (ds.isWord()) dag.add(j, ds.getWordId());
             }
+            if (dag.size == dag.offsets[i]) dag.add(i, WordDictionary.UNKNOWN_WORD_ID);
         }
+        dag.offsets[N] = dag.size;
         return dag;
     }
 
 
-    private Map<Integer, Pair<Integer>> calc(String sentence, Map<Integer, List<Integer>> dag) {
-        int N = sentence.length();
-        HashMap<Integer, Pair<Integer>> route = new HashMap<>();
-        route.put(N, new Pair<>(0, 0.0));
+    /**
+     * 动态规划计算最大概率路径，route.ends[i]为从位置i出发的最优词的结束位置（含）
+     */
+    private Route calc(DAG dag, int N) {
+        Route route = new Route(N);
         for (int i = N - 1; i > -1; i--) {
-            Pair<Integer> candidate = null;
-            for (Integer x : dag.get(i)) {
-                double freq = wordDict.getFreq(sentence.substring(i, x + 1)) + route.get(x + 1).freq;
-                if (null == candidate) {
-                    candidate = new Pair<>(x, freq);
-                } else if (candidate.freq < freq) {
-                    candidate.freq = freq;
-                    candidate.key = x;
+            int candidate = -1;
+            double candidateFreq = 0.0;
+            for (int k = dag.offsets[i]; k < dag.offsets[i + 1]; k++) {
+                int x = dag.ends[k];
+                double freq = wordDict.getFreq(dag.ids[k]) + route.freqs[x + 1];
+                if (candidate < 0 || candidateFreq < freq) {
+                    candidate = k;
+                    candidateFreq = freq;
                 }
             }
-            route.put(i, candidate);
+            route.ends[i] = dag.ends[candidate];
+            route.ids[i] = dag.ids[candidate];
+            route.freqs[i] = candidateFreq;
         }
         return route;
     }
@@ -110,122 +227,380 @@ public class JiebaSegmenter {
                 sb.append(ch);
             else {
                 if (sb.length() > 0) {
-                    // process
-                    if (mode == SegMode.SEARCH) {
-                        for (String word : sentenceProcess(sb.toString())) {
-                            tokens.add(new SegToken(word, offset, offset += word.length()));
-                        }
-                    } else {
-                        for (String token : sentenceProcess(sb.toString())) {
-                            if (token.length() > 2) {
-                                String gram2;
-                                int j = 0;
-                                for (; j < token.length() - 1; ++j) {
-                                    gram2 = token.substring(j, j + 2);
-                                    if (wordDict.containsWord(gram2))
-                                        tokens.add(new SegToken(gram2, offset + j, offset + j + 2));
-                                }
-                            }
-                            if (token.length() > 3) {
-                                String gram3;
-                                int j = 0;
-                                for (; j < token.length() - 2; ++j) {
-                                    gram3 = token.substring(j, j + 3);
-                                    if (wordDict.containsWord(gram3))
-                                        tokens.add(new SegToken(gram3, offset + j, offset + j + 3));
-                                }
-                            }
-                            tokens.add(new SegToken(token, offset, offset += token.length()));
-                        }
-                    }
+                    processSpan(sb.toString(), offset, mode, tokens);
                     sb = new StringBuilder();
                     offset = i;
                 }
-                if (wordDict.containsWord(paragraph.substring(i, i + 1)))
-                    tokens.add(new SegToken(paragraph.substring(i, i + 1), offset, ++offset));
-                else
-                    tokens.add(new SegToken(paragraph.substring(i, i + 1), offset, ++offset));
+                tokens.add(new SegToken(paragraph.substring(i, i + 1), offset, ++offset));
             }
         }
         if (sb.length() > 0)
-            if (mode == SegMode.SEARCH) {
-                for (String token : sentenceProcess(sb.toString())) {
-                    tokens.add(new SegToken(token, offset, offset += token.length()));
-                }
-            } else {
-                for (String token : sentenceProcess(sb.toString())) {
-                    if (token.length() > 2) {
-                        String gram2;
-                        int j = 0;
-                        for (; j < token.length() - 1; ++j) {
-                            gram2 = token.substring(j, j + 2);
-                            if (wordDict.containsWord(gram2))
-                                tokens.add(new SegToken(gram2, offset + j, offset + j + 2));
-                        }
+            processSpan(sb.toString(), offset, mode, tokens);
+
+        return tokens;
+    }
+
+
+    /**
+     * 逐个产生分词结果，结果与{@link #process(String, SegMode)}相同
+     * <p>每次只切分一段连续的中文串，调用方不再取词时剩余部分不会被切分，适合只需要前若干个词或找到即停的场景
+     *
+     * @param paragraph 文本
+     * @param mode      分词模式
+     * @return 词的迭代器
+     */
+    public Iterator<SegToken> iterator(String paragraph, SegMode mode) {
+        return Spliterators.iterator(new SegTokenSpliterator(this, paragraph, mode));
+    }
+
+
+    /**
+     * 分词结果的流，结果与顺序均与{@link #process(String, SegMode)}相同
+     * <p>惰性切分，短路操作（如<code>limit</code>、<code>anyMatch</code>）之后的部分不会被切分；
+     * 并行流在标点等非中文字符处拆分文本，各部分独立切分
+     *
+     * @param paragraph 文本
+     * @param mode      分词模式
+     * @param parallel  是否并行
+     * @return 词的流
+     */
+    public Stream<SegToken> stream(String paragraph, SegMode mode, boolean parallel) {
+        return StreamSupport.stream(new SegTokenSpliterator(this, paragraph, mode), parallel);
+    }
+
+
+    /**
+     * 切分一段连续的中文串并追加结果，索引模式下在长词之前追加其中的二字词与三字词
+     *
+     * @param span   规范化后的中文串
+     * @param offset 串在原文中的开始偏移
+     */
+    void processSpan(String span, int offset, SegMode mode, List<SegToken> tokens) {
+        for (String token : sentenceProcess(span)) {
+            if (mode == SegMode.INDEX) {
+                if (token.length() > 2) {
+                    for (int j = 0; j < token.length() - 1; ++j) {
+                        String gram2 = token.substring(j, j + 2);
+                        if (wordDict.containsWord(gram2))
+                            tokens.add(new SegToken(gram2, offset + j, offset + j + 2));
                     }
-                    if (token.length() > 3) {
-                        String gram3;
-                        int j = 0;
-                        for (; j < token.length() - 2; ++j) {
-                            gram3 = token.substring(j, j + 3);
-                            if (wordDict.containsWord(gram3))
-                                tokens.add(new SegToken(gram3, offset + j, offset + j + 3));
-                        }
+                }
+                if (token.length() > 3) {
+                    for (int j = 0; j < token.length() - 2; ++j) {
+                        String gram3 = token.substring(j, j + 3);
+                        if (wordDict.containsWord(gram3))
+                            tokens.add(new SegToken(gram3, offset + j, offset + j + 3));
                     }
-                    tokens.add(new SegToken(token, offset, offset += token.length()));
                 }
             }
-
-        return tokens;
+            tokens.add(new SegToken(token, offset, offset += token.length()));
+        }
     }
 
 
     public List<String> sentenceProcess(String sentence) {
         List<String> tokens = new ArrayList<>();
+        cut(sentence, tokens, null);
+        return tokens;
+    }
+
+
+    /**
+     * 分词并输出词编号序列，与{@link #sentenceProcess(String)}的结果一一对应
+     * <p>词典中的词为其在{@link WordDictionary}中的编号，HMM发现的未登录词为{@link WordDictionary#HMM_WORD_ID}，
+     * 其余不在词典中的词为{@link WordDictionary#UNKNOWN_WORD_ID}。词典词不会构造字符串。
+     *
+     * @param sentence 句子
+     * @return 词编号序列
+     */
+    public int[] sentenceProcessIds(String sentence) {
+        IdBuffer ids = new IdBuffer(sentence.length());
+        cut(sentence, null, ids);
+        return ids.toArray();
+    }
+
+
+    /**
+     * 分词并同时输出词与词编号，结果与{@link #sentenceProcess(String)}、{@link #sentenceProcessIds(String)}相同，
+     * 但只切分一次
+     *
+     * @param sentence 句子
+     * @param tokens   输出词，追加在末尾
+     * @return 与新追加的词一一对应的词编号
+     */
+    public int[] sentenceProcess(String sentence, List<String> tokens) {
+        IdBuffer ids = new IdBuffer(sentence.length());
+        cut(sentence, tokens, ids);
+        return ids.toArray();
+    }
+
+
+    /**
+     * 按对数词频之和列出概率最高的k种切分
+     * <p>在与{@link #sentenceProcess(String)}相同的有向无环图上从句尾向前动态规划，每个位置只保留前k个后缀，
+     * 分数与回溯信息存放在基本类型数组中。位置i的各候选词所接的后缀列表都已按分数降序，
+     * 每次取各列表头部中最大的一个，取k次即得位置i的前k个后缀。
+     * 耗时约为一次最大概率路径计算的k倍，不使用HMM；第一种切分即不使用HMM时的最大概率切分。
+     *
+     * @param sentence 句子
+     * @param k        个数
+     * @return 按概率降序排列的切分，不同的切分少于k种时全部返回
+     */
+    public List<SegPath> kBestPaths(String sentence, int k) {
+        List<SegPath> paths = new ArrayList<>();
         int N = sentence.length();
-        Map<Integer, List<Integer>> dag = createDAG(sentence);
-        Map<Integer, Pair<Integer>> route = calc(sentence, dag);
+        if (k <= 0 || N == 0) return paths;
+        MetricsRecorder recorder = JiebaMetrics.getRecorder();
+        long stageStart = recorder.startTime();
+        char[] chars = sentence.toCharArray();
+        DAG dag = createDAG(chars);
+        recorder.record(Stage.DAG, stageStart, N, 0);
+        stageStart = recorder.startTime();
+
+        double[] freqs = new double[dag.size];
+        int maxDegree = 0;
+        for (int i = 0; i < N; i++) {
+            maxDegree = Math.max(maxDegree, dag.offsets[i + 1] - dag.offsets[i]);
+        }
+        for (int e = 0; e < dag.size; e++) freqs[e] = wordDict.getFreq(dag.ids[e]);
+        // 位置i起的第r个后缀位于下标i * k + r：分数、第一个词在dag中的下标、其后缀在下一位置的名次
+        double[] scores = new double[(N + 1) * k];
+        int[] edges = new int[N * k];
+        int[] ranks = new int[N * k];
+        int[] counts = new int[N + 1];
+        // 各候选词下一个待取的后缀名次
+        int[] heads = new int[maxDegree];
+        counts[N] = 1;
+
+        for (int i = N - 1; i > -1; i--) {
+            int from = dag.offsets[i];
+            int to = dag.offsets[i + 1];
+            Arrays.fill(heads, 0, to - from, 0);
+            int count = 0;
+            while (count < k) {
+                int best = -1;
+                double bestScore = 0.0;
+                for (int e = from; e < to; e++) {
+                    int next = dag.ends[e] + 1;
+                    int head = heads[e - from];
+                    if (head == counts[next]) continue;
+                    double score = freqs[e] + scores[next * k + head];
+                    // 与calc相同，分数相等时取先出现的候选词
+                    if (best < 0 || bestScore < score) {
+                        best = e;
+                        bestScore = score;
+                    }
+                }
+                if (best < 0) break;
+                int slot = i * k + count++;
+                scores[slot] = bestScore;
+                edges[slot] = best;
+                ranks[slot] = heads[best - from]++;
+            }
+            counts[i] = count;
+        }
+        recorder.record(Stage.ROUTE, stageStart, N, 0);
+
+        for (int r = 0; r < counts[0]; r++) {
+            List<String> words = new ArrayList<>();
+            int rank = r;
+            for (int x = 0; x < N; ) {
+                int slot = x * k + rank;
+                int y = dag.ends[edges[slot]] + 1;
+                words.add(sentence.substring(x, y));
+                rank = ranks[slot];
+                x = y;
+            }
+            paths.add(new SegPath(words, scores[r]));
+        }
+        return paths;
+    }
+
+
+    /**
+     * 按最大概率路径切分句子，连续的单字交给HMM处理
+     *
+     * @param sentence 句子
+     * @param tokens   输出词，可为null
+     * @param ids      输出词编号，可为null
+     */
+    private void cut(String sentence, List<String> tokens, IdBuffer ids) {
+        MetricsRecorder recorder = JiebaMetrics.getRecorder();
+        long start = recorder.startTime();
+        int before = tokens != null ? tokens.size() : ids.size;
+        int N = sentence.length();
+        // 剩余步数与是否已耗尽
+        long[] budget = {stepBudget, 0};
+
+        if (N <= maxSpanLength) {
+            cutSpan(recorder, sentence, tokens, ids, budget);
+        } else {
+            recorder.limit(Limit.SPAN, N);
+            for (int begin = 0; begin < N; begin += maxSpanLength) {
+                String span = sentence.substring(begin, (int) Math.min(N, (long) begin + maxSpanLength));
+                cutSpan(recorder, span, tokens, ids, budget);
+            }
+        }
+        recorder.record(Stage.SEGMENT, start, N, (tokens != null ? tokens.size() : ids.size) - before);
+    }
+
+
+    /**
+     * 切分一段不超过最大长度的句子
+     *
+     * @param budget 剩余步数与是否已耗尽，各段共用
+     */
+    private void cutSpan(MetricsRecorder recorder, String sentence, List<String> tokens, IdBuffer ids,
+                         long[] budget) {
+        char[] chars = sentence.toCharArray();
+        int N = chars.length;
+        long stageStart = recorder.startTime();
+        DAG dag = createDAG(chars);
+        recorder.record(Stage.DAG, stageStart, N, 0);
+        budget[0] -= dag.size;
+        stageStart = recorder.startTime();
+        Route route = calc(dag, N);
+        recorder.record(Stage.ROUTE, stageStart, N, 0);
 
         int x = 0;
-        int y = 0;
-        String buf;
-        StringBuilder sb = new StringBuilder();
+        int y;
+        // 连续单字的起始位置，-1表示当前没有
+        int single = -1;
         while (x < N) {
-            y = route.get(x).key + 1;
-            String lWord = sentence.substring(x, y);
-            if (y - x == 1)
-                sb.append(lWord);
-            else {
-                if (sb.length() > 0) {
-                    buf = sb.toString();
-                    sb = new StringBuilder();
-                    if (buf.length() == 1) {
-                        tokens.add(buf);
-                    } else {
-                        if (wordDict.containsWord(buf)) {
-                            tokens.add(buf);
-                        } else {
-                            finalSeg.cut(buf, tokens);
-                        }
-                    }
+            y = route.ends[x] + 1;
+            if (y - x == 1) {
+                if (single < 0) single = x;
+            } else {
+                if (single >= 0) {
+                    cutSingles(recorder, sentence, chars, route, single, x, tokens, ids, budget);
+                    single = -1;
                 }
-                tokens.add(lWord);
+                if (tokens != null) tokens.add(sentence.substring(x, y));
+                if (ids != null) ids.add(route.ids[x]);
             }
             x = y;
         }
-        buf = sb.toString();
-        if (buf.length() > 0) {
-            if (buf.length() == 1) {
-                tokens.add(buf);
-            } else {
-                if (wordDict.containsWord(buf)) {
-                    tokens.add(buf);
-                } else {
-                    finalSeg.cut(buf, tokens);
+        if (single >= 0) {
+            cutSingles(recorder, sentence, chars, route, single, N, tokens, ids, budget);
+        }
+    }
+
+
+    /**
+     * 处理连续的单字[begin, end)：单个字直接输出，整体是词典中的词则作为一个词，否则交给HMM
+     */
+    private void cutSingles(MetricsRecorder recorder, String sentence, char[] chars, Route route, int begin, int end,
+                            List<String> tokens, IdBuffer ids, long[] budget) {
+        if (end - begin == 1) {
+            if (tokens != null) tokens.add(sentence.substring(begin, end));
+            if (ids != null) ids.add(route.ids[begin]);
+            return;
+        }
+        int id = wordDict.getTrie().getWordId(chars, begin, end - begin);
+        if (id >= 0) {
+            if (tokens != null) tokens.add(sentence.substring(begin, end));
+            if (ids != null) ids.add(id);
+            return;
+        }
+        if (budget[1] != 0 || budget[0] < end - begin) {
+            // 预算不足以完成HMM解码，本次切分余下的部分都降级为逐字输出
+            if (budget[1] == 0) recorder.limit(Limit.BUDGET, end - begin);
+            budget[1] = 1;
+            for (int i = begin; i < end; i++) {
+                if (tokens != null) tokens.add(sentence.substring(i, i + 1));
+                if (ids != null) ids.add(route.ids[i]);
+            }
+            return;
+        }
+        budget[0] -= end - begin;
+        List<String> words = tokens != null ? tokens : new ArrayList<>();
+        int from = words.size();
+        if (end - begin <= maxHmmLength) {
+            finalSeg.cut(sentence.substring(begin, end), words);
+        } else {
+            recorder.limit(Limit.HMM, end - begin);
+            for (int i = begin; i < end; i += maxHmmLength) {
+                finalSeg.cut(sentence.substring(i, (int) Math.min(end, (long) i + maxHmmLength)), words);
+            }
+        }
+        NewWordCollector collector = newWordCollector;
+        if (collector != null) {
+            for (int i = from; i < words.size(); i++) collector.offer(words.get(i));
+        }
+        if (ids != null) {
+            for (int i = from; i < words.size(); i++) {
+                String word = words.get(i);
+                int wordId = wordDict.getWordId(word);
+                if (wordId < 0 && CharacterUtil.isChineseLetter(word.charAt(0))) {
+                    // FinalSeg只把中文串交给Viterbi解码
+                    wordId = WordDictionary.HMM_WORD_ID;
                 }
+                ids.add(wordId);
             }
+        }
+    }
+
+
+    /**
+     * 有向无环图，按起始位置分组存储候选词
+     */
+    private static final class DAG {
+        final int[] offsets;
+        int[] ends;
+        int[] ids;
+        int size;
 
+        DAG(int N) {
+            this.offsets = new int[N + 1];
+            this.ends = new int[Math.max(4, N * 2)];
+            this.ids = new int[this.ends.length];
+        }
+
+        void add(int end, int id) {
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ends[size] = end;
+            ids[size++] = id;
+        }
+    }
+
+
+    /**
+     * 最大概率路径
+     */
+    private static final class Route {
+        final int[] ends;
+        final int[] ids;
+        final double[] freqs;
+
+        Route(int N) {
+            this.ends = new int[N];
+            this.ids = new int[N];
+            this.freqs = new double[N + 1];
+        }
+    }
+
+
+    /**
+     * 可增长的词编号数组
+     */
+    private static final class IdBuffer {
+        private int[] values;
+        private int size;
+
+        IdBuffer(int capacity) {
+            this.values = new int[Math.max(4, capacity)];
+        }
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
         }
-        return tokens;
     }
 }
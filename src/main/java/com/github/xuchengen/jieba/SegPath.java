@@ -0,0 +1,33 @@
+package com.github.xuchengen.jieba;
+
+import java.util.List;
+
+/**
+ * <p>一种切分方式，见{@link JiebaSegmenter#kBestPaths(String, int)}
+ **/
+public class SegPath {
+
+    private final List<String> words;
+    private final double freq;
+
+    public SegPath(List<String> words, double freq) {
+        this.words = words;
+        this.freq = freq;
+    }
+
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * 路径上各词对数词频之和，越大越可能
+     */
+    public double getFreq() {
+        return freq;
+    }
+
+    @Override
+    public String toString() {
+        return words + " " + freq;
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.xuchengen.jieba;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * <p>惰性分词
+ * <p>与{@link JiebaSegmenter#process(String, JiebaSegmenter.SegMode)}使用相同的切分边界：
+ * 非中文字符（标点、空白等）各自成词，其间连续的中文串整体切分。每次取词时若没有待取的词，
+ * 才向后切分下一个字符或下一段中文串，停止取词后不再有任何开销。
+ * <p>拆分只发生在非中文字符之前，不会切断中文串，各部分的结果拼接后与整体切分相同。
+ **/
+final class SegTokenSpliterator implements Spliterator<SegToken> {
+
+    // 小于此长度的文本不再拆分，避免并行的调度开销超过切分本身
+    private static final int MIN_SPLIT = 1024;
+
+    private final JiebaSegmenter segmenter;
+    private final String paragraph;
+    private final JiebaSegmenter.SegMode mode;
+    private int position;
+    private final int end;
+
+    // 已切分但尚未取走的词
+    private final List<SegToken> pending = new ArrayList<>();
+    private int next;
+
+    SegTokenSpliterator(JiebaSegmenter segmenter, String paragraph, JiebaSegmenter.SegMode mode) {
+        this(segmenter, paragraph, mode, 0, paragraph.length());
+    }
+
+    private SegTokenSpliterator(JiebaSegmenter segmenter, String paragraph, JiebaSegmenter.SegMode mode,
+                                int position, int end) {
+        this.segmenter = segmenter;
+        this.paragraph = paragraph;
+        this.mode = mode;
+        this.position = position;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SegToken> action) {
+        if (next == pending.size()) {
+            pending.clear();
+            next = 0;
+            if (!fill()) return false;
+        }
+        action.accept(pending.get(next++));
+        return true;
+    }
+
+    /**
+     * 切分下一个非中文字符或下一段中文串
+     *
+     * @return 是否还有文本
+     */
+    private boolean fill() {
+        if (position >= end) return false;
+        char ch = CharacterUtil.regularize(paragraph.charAt(position));
+        if (!CharacterUtil.ccFind(ch)) {
+            pending.add(new SegToken(paragraph.substring(position, position + 1), position, ++position));
+            return true;
+        }
+        StringBuilder span = new StringBuilder();
+        int start = position;
+        do {
+            span.append(ch);
+            if (++position == end) break;
+            ch = CharacterUtil.regularize(paragraph.charAt(position));
+        } while (CharacterUtil.ccFind(ch));
+        segmenter.processSpan(span.toString(), start, mode, pending);
+        return true;
+    }
+
+    @Override
+    public Spliterator<SegToken> trySplit() {
+        if (next < pending.size() || end - position < MIN_SPLIT) return null;
+        // 从中点向后找非中文字符，找不到再向前找
+        int middle = position + (end - position) / 2;
+        int split = -1;
+        for (int i = middle; i < end; i++) {
+            if (!CharacterUtil.ccFind(CharacterUtil.regularize(paragraph.charAt(i)))) {
+                split = i;
+                break;
+            }
+        }
+        if (split < 0) {
+            for (int i = middle - 1; i > position; i--) {
+                if (!CharacterUtil.ccFind(CharacterUtil.regularize(paragraph.charAt(i)))) {
+                    split = i;
+                    break;
+                }
+            }
+        }
+        if (split <= position) return null;
+        SegTokenSpliterator prefix = new SegTokenSpliterator(segmenter, paragraph, mode, position, split);
+        position = split;
+        return prefix;
+    }
+
+    /**
+     * 剩余字符数，词数不会超过它（索引模式除外）
+     */
+    @Override
+    public long estimateSize() {
+        return end - position + pending.size() - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -12,6 +12,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>词典
@@ -27,11 +29,44 @@ public class WordDictionary {
     private static final String MAIN_DICT = "/dict.txt";
     private static final String USER_DICT_SUFFIX = ".dict";
 
-    public final Map<String, Double> freqs = new HashMap<>();
+    /**
+     * 不在词典中的词的编号，如标点、未登录的单字、非中文串
+     */
+    public static final int UNKNOWN_WORD_ID = -1;
+    /**
+     * HMM新词发现得到的未登录词的编号
+     */
+    public static final int HMM_WORD_ID = -2;
+
+    /**
+     * 兼容旧代码的词频表（取对数后的值），与当前词典状态中的词频表是同一个对象
+     */
+    public volatile Map<String, Double> freqs;
     public final Set<String> loadedPath = new HashSet<>();
-    private Double minFreq = Double.MAX_VALUE;
-    private Double total = 0.0;
-    private DictSegment _dict;
+    // 词典树、词槽、词频表与总词频等作为一个整体发布，加载、重新加载、压缩时一次写入替换，
+    // 读取方不会看到来自新旧两份词典的字段组合；所有写操作持有类锁
+    private volatile State state = new State(new WordSlots(), new DictSegment((char) 0),
+            new ConcurrentHashMap<>(), Double.MAX_VALUE, 0.0, 0, 0);
+    // 按发生顺序记录的用户词典与运行时增删，重新加载时依次重放；同一个词的运行时修改只保留最后一次
+    private final Map<Object, Mutation> mutations = new LinkedHashMap<>();
+    private volatile long mainDictLoadMillis;
+    private volatile long userDictLoadMillis;
+    private volatile long lastReloadMillis;
+    private volatile long lastReloadTime;
+    // 前缀补全列表所属的词典树与每个节点保留的词数，词典变化后置0
+    private volatile DictSegment suggestTrie;
+    private volatile int suggestK;
+
+    // 词典内容每次变化递增
+    private final AtomicLong version = new AtomicLong();
+    // {版本号, 指纹}，整体替换
+    private volatile long[] fingerprint = {-1, 0};
+
+    /**
+     * 前缀补全默认预先计算的词数
+     */
+    public static final int DEFAULT_SUGGEST_K = 10;
+    private static final int COMPACT_MIN_TOMBSTONES = 1024;
 
 
     private WordDictionary() {
@@ -103,58 +138,256 @@ public class WordDictionary {
         }
     }
 
+    /**
+     * 重新加载主词典与所有已加载的用户词典
+     * <p>在新的词典实例上重新加载主词典，再按发生顺序重放用户词典与运行时的增删，完成后一次性替换当前词典状态，
+     * 加载期间分词照常使用旧词典；词的编号按相同顺序分配，词典文件未变化的词编号保持不变
+     */
+    public void reload() {
+        synchronized (WordDictionary.class) {
+            long s = System.currentTimeMillis();
+            List<Mutation> replay = new ArrayList<>(mutations.values());
+            WordDictionary fresh = new WordDictionary();
+            for (Mutation mutation : replay) {
+                if (mutation.word == null) {
+                    if (mutation.path != null) {
+                        fresh.loadUserDict(mutation.path, mutation.charset);
+                    } else {
+                        fresh.loadUserDict(mutation.resource, mutation.charset);
+                    }
+                } else if (Double.isNaN(mutation.freq)) {
+                    fresh.deleteWord(mutation.word);
+                } else {
+                    fresh.addWord(mutation.word, mutation.freq);
+                }
+            }
+            State loaded = fresh.state;
+            // 已在使用补全时，替换前先在新词典树上算好
+            if (suggestK > 0) {
+                loaded.trie.buildSuggestions(loaded.slots, suggestK);
+                suggestTrie = loaded.trie;
+            }
+
+            state = loaded;
+            freqs = loaded.freqs;
+            mutations.clear();
+            mutations.putAll(fresh.mutations);
+            mainDictLoadMillis = fresh.mainDictLoadMillis;
+            userDictLoadMillis = fresh.userDictLoadMillis;
+            version.incrementAndGet();
+            lastReloadMillis = System.currentTimeMillis() - s;
+            lastReloadTime = System.currentTimeMillis();
+            log.debug(String.format(Locale.getDefault(), "dictionary reload finished, time elapsed %d ms",
+                    lastReloadMillis));
+        }
+    }
+
     /**
      * 重置词典
      */
     public void resetDict() {
-        _dict = new DictSegment((char) 0);
-        freqs.clear();
+        synchronized (WordDictionary.class) {
+            State current = state;
+            suggestK = 0;
+            state = new State(new WordSlots(), new DictSegment((char) 0), new ConcurrentHashMap<>(),
+                    current.minFreq, current.total, 0, 0);
+            freqs = state.freqs;
+            version.incrementAndGet();
+        }
     }
 
     /**
-     * 加载词典
+     * 加载词典，已加载的主词典与用户词典会被清空
+     * <p>主词典在新的词典树上加载完成后才替换当前词典
      */
     public void loadDict() {
-        _dict = new DictSegment((char) 0);
-        try (InputStream is = this.getClass().getResourceAsStream(MAIN_DICT)) {
-            if (Objects.isNull(is)) throw new FileNotFoundException("dictionary file not found");
-            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-            long s = System.currentTimeMillis();
+        synchronized (WordDictionary.class) {
+            loadedPath.clear();
+            mutations.clear();
+            userDictLoadMillis = 0;
+            suggestK = 0;
+            try (InputStream is = this.getClass().getResourceAsStream(MAIN_DICT)) {
+                if (Objects.isNull(is)) throw new FileNotFoundException("dictionary file not found");
+                BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+                long s = System.currentTimeMillis();
+                State loading = new State(new WordSlots(), new DictSegment((char) 0), new ConcurrentHashMap<>(),
+                        Double.MAX_VALUE, 0.0, 0, 0);
+                // 全部换算为对数词频后再发布
+                Map<String, Double> loaded = loading.freqs;
+                double total = 0.0;
+
+                while (br.ready()) {
+                    String line = br.readLine();
+                    String[] tokens = line.split("[\t ]+");
+
+                    if (tokens.length < 2) continue;
+
+                    String word = normalize(tokens[0]);
+                    if (word == null) continue;
+                    double freq = Double.parseDouble(tokens[1]);
+                    total += freq;
+                    fill(loading, word);
+                    loaded.put(word, freq);
+                }
 
-            while (br.ready()) {
-                String line = br.readLine();
-                String[] tokens = line.split("[\t ]+");
+                double minFreq = Double.MAX_VALUE;
+                for (Entry<String, Double> entry : loaded.entrySet()) {
+                    entry.setValue((Math.log(entry.getValue() / total)));
+                    minFreq = Math.min(entry.getValue(), minFreq);
+                }
+                WordSlots table = loading.slots;
+                for (int id = 0; id < table.size(); id++) {
+                    table.setFreq(id, loaded.get(table.word(id)));
+                }
+                state = new State(table, loading.trie, loaded, minFreq, total, 0, 0);
+                freqs = loaded;
 
-                if (tokens.length < 2) continue;
+                version.incrementAndGet();
+                mainDictLoadMillis = System.currentTimeMillis() - s;
+                log.debug(String.format(Locale.getDefault(), "main dict load finished, time elapsed %d ms",
+                        mainDictLoadMillis));
 
-                String word = tokens[0];
-                double freq = Double.parseDouble(tokens[1]);
-                total += freq;
-                word = addWord(word);
-                freqs.put(word, freq);
+            } catch (Exception e) {
+                log.error(String.format(Locale.getDefault(), "%s load failure!", MAIN_DICT), e);
+                throw new JiebaException(e);
             }
+        }
+    }
 
-            for (Entry<String, Double> entry : freqs.entrySet()) {
-                entry.setValue((Math.log(entry.getValue() / total)));
-                minFreq = Math.min(entry.getValue(), minFreq);
+    /**
+     * 把词加入当前词典树，新词分配编号，已删除的词恢复原编号；需由持有类锁的写操作调用
+     *
+     * @param key 规范化后的词
+     */
+    private void insertWord(String key) {
+        State current = state;
+        if (fill(current, key)) state = current.withDeleted(-1);
+    }
+
+    /**
+     * 把词填入给定状态的词典树，新词分配编号
+     *
+     * @return 是否恢复了仍留在词典树中的已删除词
+     */
+    private static boolean fill(State target, String key) {
+        char[] chars = key.toCharArray();
+        int id = target.trie.getStoredWordId(chars, 0, chars.length);
+        boolean restored = false;
+        if (id < 0) {
+            id = target.slots.add(key, target.minFreq);
+        } else {
+            restored = target.trie.getWordId(chars, 0, chars.length) < 0;
+        }
+        target.trie.fillSegment(chars, id);
+        return restored;
+    }
+
+    /**
+     * 规范化：去空白、转小写
+     *
+     * @return 规范化后的词，空词返回null
+     */
+    private static String normalize(String word) {
+        if (null == word || StringUtils.EMPTY.equals(word.trim())) return null;
+        return word.trim().toLowerCase(Locale.getDefault());
+    }
+
+    /**
+     * 添加词或修改词频，对应jieba的<code>add_word</code>
+     * <p>与其他写操作串行执行：词已存在时只原子地更新其词频槽位，新词插入词典树，分词全程不加锁，
+     * 随后的查询即可看到新词与新词频
+     * <p>与用户词典相同，词频按主词典的总词频换算为概率，总词频不变：运行时添加的词不改变其他词的概率，
+     * 多次添加也不会累积偏差；{@link #getTotal()}始终是主词典的总词频
+     *
+     * @param word 词
+     * @param freq 词频，与词典文件中的数值含义相同，必须大于0
+     */
+    public void addWord(String word, double freq) {
+        String key = normalize(word);
+        if (key == null) throw new IllegalArgumentException("word is empty");
+        if (!(freq > 0)) throw new IllegalArgumentException("freq must be positive");
+        synchronized (WordDictionary.class) {
+            State current = state;
+            double logFreq = Math.log(freq / current.total);
+            char[] chars = key.toCharArray();
+            int id = current.trie.getWordId(chars, 0, chars.length);
+            if (id < 0) {
+                insertWord(key);
+                current = state;
+                id = current.trie.getWordId(chars, 0, chars.length);
             }
+            current.slots.setFreq(id, logFreq);
+            current.freqs.put(key, logFreq);
+            updateSuggestions(key);
+            record(key, freq);
+            version.incrementAndGet();
+        }
+    }
 
-            log.debug(String.format(Locale.getDefault(), "main dict load finished, time elapsed %d ms",
-                    System.currentTimeMillis() - s));
+    /**
+     * 删除词，对应jieba的<code>del_word</code>
+     * <p>词在词典树中被标记删除（墓碑），编号保留，重新添加时恢复；墓碑数超过阈值时自动压缩词典树
+     *
+     * @param word 词
+     * @return 词是否存在
+     */
+    public boolean deleteWord(String word) {
+        String key = normalize(word);
+        if (key == null) return false;
+        synchronized (WordDictionary.class) {
+            State current = state;
+            char[] chars = key.toCharArray();
+            if (current.trie.getWordId(chars, 0, chars.length) < 0) return false;
+            current.trie.disableSegment(chars);
+            current.freqs.remove(key);
+            current = current.withDeleted(1);
+            state = current;
+            updateSuggestions(key);
+            record(key, Double.NaN);
+            version.incrementAndGet();
+            if (current.tombstones >= Math.max(COMPACT_MIN_TOMBSTONES, current.slots.size() / 8)) compact();
+            return true;
+        }
+    }
 
-        } catch (Exception e) {
-            log.error(String.format(Locale.getDefault(), "%s load failure!", MAIN_DICT), e);
-            throw new JiebaException(e);
+    /**
+     * 记录运行时修改，同一个词之前的修改被替换并移到末尾；需由持有类锁的写操作调用
+     */
+    private void record(String key, double freq) {
+        mutations.remove(key);
+        mutations.put(key, new Mutation(null, null, null, key, freq));
+    }
+
+    /**
+     * 压缩词典树：用未删除的词重建词典树后整体替换，词的编号不变
+     */
+    public void compact() {
+        synchronized (WordDictionary.class) {
+            long s = System.currentTimeMillis();
+            State current = state;
+            DictSegment trie = new DictSegment((char) 0);
+            WordSlots table = current.slots;
+            for (int id = 0; id < table.size(); id++) {
+                char[] chars = table.word(id).toCharArray();
+                if (current.trie.getWordId(chars, 0, chars.length) == id) trie.fillSegment(chars, id);
+            }
+            if (suggestK > 0 && suggestTrie == current.trie) {
+                trie.buildSuggestions(table, suggestK);
+                suggestTrie = trie;
+            }
+            state = current.withTrie(trie);
+            log.debug(String.format(Locale.getDefault(), "dictionary compacted, %d tombstones removed, time elapsed %d ms",
+                    current.tombstones, System.currentTimeMillis() - s));
         }
     }
 
-    private String addWord(String word) {
-        if (null != word && !StringUtils.EMPTY.equals(word.trim())) {
-            String key = word.trim().toLowerCase(Locale.getDefault());
-            _dict.fillSegment(key.toCharArray());
-            return key;
-        } else {
-            return null;
+    /**
+     * 补全列表已计算时，只更新词的前缀路径上的列表；需由持有类锁的写操作调用
+     */
+    private void updateSuggestions(String key) {
+        State current = state;
+        if (suggestK > 0 && suggestTrie == current.trie) {
+            current.trie.updateSuggestions(key.toCharArray(), current.slots, suggestK);
         }
     }
 
@@ -178,31 +411,43 @@ public class WordDictionary {
 
     /**
      * 加载用户词典
+     * <p>与其他写操作串行执行，加载期间分词照常进行
      *
      * @param userDict 用户词典路径
      * @param charset  字符编码
      */
     public void loadUserDict(Path userDict, Charset charset) {
-        try (BufferedReader br = Files.newBufferedReader(userDict, charset)) {
-            loadUserdict(br);
-        } catch (Exception e) {
-            log.error(String.format(Locale.getDefault(), "%s: load user dict failure!", userDict), e);
-            throw new JiebaException(e);
+        synchronized (WordDictionary.class) {
+            try (BufferedReader br = Files.newBufferedReader(userDict, charset)) {
+                loadUserdict(br);
+                Mutation mutation = new Mutation(userDict, null, charset, null, 0);
+                mutations.put(mutation, mutation);
+            } catch (Exception e) {
+                log.error(String.format(Locale.getDefault(), "%s: load user dict failure!", userDict), e);
+                throw new JiebaException(e);
+            }
         }
     }
 
     public void loadUserDict(String userDictPath, Charset charset) {
-        try (InputStream is = this.getClass().getResourceAsStream(userDictPath)) {
-            if (Objects.isNull(is)) throw new FileNotFoundException("dictionary file not found");
-            BufferedReader br = new BufferedReader(new InputStreamReader(is, charset));
-            loadUserdict(br);
-            br.close();
-        } catch (Exception e) {
-            log.error(String.format(Locale.getDefault(), "%s: load user dict failure!", userDictPath), e);
-            throw new JiebaException(e);
+        synchronized (WordDictionary.class) {
+            try (InputStream is = this.getClass().getResourceAsStream(userDictPath)) {
+                if (Objects.isNull(is)) throw new FileNotFoundException("dictionary file not found");
+                BufferedReader br = new BufferedReader(new InputStreamReader(is, charset));
+                loadUserdict(br);
+                br.close();
+                Mutation mutation = new Mutation(null, userDictPath, charset, null, 0);
+                mutations.put(mutation, mutation);
+            } catch (Exception e) {
+                log.error(String.format(Locale.getDefault(), "%s: load user dict failure!", userDictPath), e);
+                throw new JiebaException(e);
+            }
         }
     }
 
+    /**
+     * 逐行加入用户词典中的词；需由持有类锁的写操作调用
+     */
     private void loadUserdict(BufferedReader bufferedReader) throws IOException {
         long s = System.currentTimeMillis();
         while (bufferedReader.ready()) {
@@ -211,33 +456,291 @@ public class WordDictionary {
 
             if (tokens.length < 1) continue;
 
-            String word = tokens[0];
+            String word = normalize(tokens[0]);
+            if (word == null) continue;
 
             double freq = 3.0d;
             if (tokens.length == 2)
                 freq = Double.parseDouble(tokens[1]);
-            word = addWord(word);
-            freqs.put(word, Math.log(freq / total));
+            insertWord(word);
+            // 按主词典的总词频换算，总词频不变
+            State current = state;
+            char[] chars = word.toCharArray();
+            double logFreq = Math.log(freq / current.total);
+            current.freqs.put(word, logFreq);
+            current.slots.setFreq(current.trie.getWordId(chars, 0, chars.length), logFreq);
         }
 
-        log.debug(String.format(Locale.getDefault(), "user dict load finished, time elapsed %d ms",
-                System.currentTimeMillis() - s));
+        State current = state;
+        if (suggestK > 0 && suggestTrie == current.trie) current.trie.buildSuggestions(current.slots, suggestK);
+        version.incrementAndGet();
+        long elapsed = System.currentTimeMillis() - s;
+        userDictLoadMillis += elapsed;
+        log.debug(String.format(Locale.getDefault(), "user dict load finished, time elapsed %d ms", elapsed));
     }
 
     public DictSegment getTrie() {
-        return this._dict;
+        return state.trie;
     }
 
 
     public boolean containsWord(String word) {
-        return freqs.containsKey(word);
+        return getWordId(word) >= 0;
     }
 
 
     public Double getFreq(String key) {
-        if (containsWord(key))
-            return freqs.get(key);
-        else
-            return minFreq;
+        return getFreq(getWordId(key));
+    }
+
+
+    /**
+     * 查询词的编号
+     *
+     * @param word 词
+     * @return 词的编号，不在词典中时返回{@link #UNKNOWN_WORD_ID}
+     */
+    public int getWordId(String word) {
+        if (word == null || word.isEmpty()) return UNKNOWN_WORD_ID;
+        char[] chars = word.toCharArray();
+        return state.trie.getWordId(chars, 0, chars.length);
+    }
+
+    /**
+     * 根据编号查询词
+     *
+     * @param wordId 词的编号
+     * @return 词，编号不存在时返回null
+     */
+    public String getWord(int wordId) {
+        return state.slots.word(wordId);
+    }
+
+    /**
+     * 根据编号查询词频（取对数后的值）
+     *
+     * @param wordId 词的编号
+     * @return 词频，编号不存在时返回最小词频
+     */
+    public double getFreq(int wordId) {
+        State current = state;
+        return current.slots.freq(wordId, current.minFreq);
+    }
+
+    /**
+     * 词典中的词数，不含已删除的词
+     */
+    public int getWordCount() {
+        State current = state;
+        return current.slots.size() - current.deletedWords;
+    }
+
+    /**
+     * 已分配的编号数，编号取值范围为[0, getIdCount())，包括已删除的词占用的编号
+     */
+    public int getIdCount() {
+        return state.slots.size();
+    }
+
+    /**
+     * 主词典的总词频，词的概率为词频除以总词频
+     * <p>用户词典与{@link #addWord(String, double)}的词频也按它换算，不计入其中
+     */
+    public double getTotal() {
+        return state.total;
+    }
+
+    /**
+     * 已删除但尚未压缩出词典树的词数
+     */
+    public int getTombstoneCount() {
+        return state.tombstones;
+    }
+
+    /**
+     * 词典内容的版本号，加载、重新加载、增删词或修改词频后递增，压缩不改变版本号
+     * <p>版本号只在本进程内有意义，跨进程比较词典内容请使用{@link #getFingerprint()}
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 词典内容的指纹：按编号顺序对所有未删除的词及其词频计算的64位哈希
+     * <p>相同的词典文件以相同顺序加载、并做相同的运行时修改后指纹相同，可用于持久化的分词结果是否仍然有效的判断。
+     * 指纹按版本号缓存，词典变化后的首次调用会重新计算
+     */
+    public long getFingerprint() {
+        long[] cached;
+        long current;
+        while ((current = version.get()) != (cached = fingerprint)[0]) {
+            State snapshot = state;
+            WordSlots table = snapshot.slots;
+            long hash = 0xcbf29ce484222325L;
+            for (int id = 0; id < table.size(); id++) {
+                String word = table.word(id);
+                char[] chars = word.toCharArray();
+                if (snapshot.trie.getWordId(chars, 0, chars.length) != id) continue;
+                for (char c : chars) hash = (hash ^ c) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(table.freq(id, snapshot.minFreq))) * 0x100000001b3L;
+                hash = (hash ^ id) * 0x100000001b3L;
+            }
+            // 计算期间词典未变化时结果才有效
+            if (version.get() == current) fingerprint = new long[]{current, hash};
+        }
+        return cached[1];
+    }
+
+    /**
+     * 前缀补全：返回以prefix开头、词频最高的k个词，按词频降序
+     * <p>每个词典树节点上的前k个词在首次调用时一次性计算并缓存，查询只需沿前缀走到对应节点，
+     * 耗时与前缀下的词数无关；此后添加、删除词只更新该词前缀路径上的列表，加载用户词典、压缩与重新加载时整体重新计算
+     *
+     * @param prefix 前缀，按词典的规则转为小写；为空时返回全词典词频最高的词
+     * @param k      返回的词数上限
+     * @return 补全词
+     */
+    public List<String> suggest(String prefix, int k) {
+        if (k <= 0) return Collections.emptyList();
+        State current = state;
+        if (suggestK < k || suggestTrie != current.trie) {
+            synchronized (WordDictionary.class) {
+                current = state;
+                if (suggestK < k || suggestTrie != current.trie) {
+                    long s = System.currentTimeMillis();
+                    int depth = Math.max(k, Math.max(suggestK, DEFAULT_SUGGEST_K));
+                    current.trie.buildSuggestions(current.slots, depth);
+                    suggestTrie = current.trie;
+                    suggestK = depth;
+                    log.debug(String.format(Locale.getDefault(), "suggestions build finished, time elapsed %d ms",
+                            System.currentTimeMillis() - s));
+                }
+            }
+        }
+
+        DictSegment node = current.trie;
+        String key = prefix == null ? StringUtils.EMPTY : prefix.trim().toLowerCase(Locale.getDefault());
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(key.charAt(i));
+        }
+        int[] ids = node == null ? null : node.getSuggestions();
+        if (ids == null) return Collections.emptyList();
+
+        List<String> result = new ArrayList<>(Math.min(k, ids.length));
+        for (int i = 0; i < ids.length && i < k; i++) {
+            result.add(current.slots.word(ids[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 已加载的用户词典文件或classpath资源
+     */
+    public List<String> getUserDictPaths() {
+        synchronized (WordDictionary.class) {
+            List<String> paths = new ArrayList<>();
+            for (Mutation mutation : mutations.values()) {
+                if (mutation.word != null) continue;
+                paths.add(mutation.path != null ? mutation.path.toAbsolutePath().toString() : mutation.resource);
+            }
+            return paths;
+        }
+    }
+
+    /**
+     * 估算词典树占用的堆内存（字节）
+     */
+    public long getEstimatedTrieBytes() {
+        return state.trie.estimateBytes();
+    }
+
+    /**
+     * 最近一次加载主词典的耗时（毫秒）
+     */
+    public long getMainDictLoadMillis() {
+        return mainDictLoadMillis;
+    }
+
+    /**
+     * 当前所有用户词典的累计加载耗时（毫秒）
+     */
+    public long getUserDictLoadMillis() {
+        return userDictLoadMillis;
+    }
+
+    /**
+     * 最近一次{@link #reload()}的耗时（毫秒），未重新加载过时为0
+     */
+    public long getLastReloadMillis() {
+        return lastReloadMillis;
+    }
+
+    /**
+     * 最近一次{@link #reload()}完成的时间戳（毫秒），未重新加载过时为0
+     */
+    public long getLastReloadTime() {
+        return lastReloadTime;
+    }
+
+    /**
+     * 词典状态，字段不可变，整体替换发布
+     * <p>词典树与词槽的内容由持有类锁的写操作原地修改（新增词、更新词频、标记删除），
+     * 替换词典树或词槽、以及墓碑数变化时发布新的状态
+     */
+    private static final class State {
+        final WordSlots slots;
+        final DictSegment trie;
+        final Map<String, Double> freqs;
+        final double minFreq;
+        // 主词典的总词频；用户词典与运行时添加的词频都相对于它换算，不计入其中
+        final double total;
+        // 已删除但仍留在词典树中的词数，超过阈值时压缩词典树
+        final int tombstones;
+        // 已删除的词占用的编号数，压缩后仍保留
+        final int deletedWords;
+
+        State(WordSlots slots, DictSegment trie, Map<String, Double> freqs, double minFreq, double total,
+              int tombstones, int deletedWords) {
+            this.slots = slots;
+            this.trie = trie;
+            this.freqs = freqs;
+            this.minFreq = minFreq;
+            this.total = total;
+            this.tombstones = tombstones;
+            this.deletedWords = deletedWords;
+        }
+
+        /**
+         * 删除（delta为1）或恢复（delta为-1）一个词后的状态
+         */
+        State withDeleted(int delta) {
+            return new State(slots, trie, freqs, minFreq, total, tombstones + delta, deletedWords + delta);
+        }
+
+        /**
+         * 压缩后的状态，墓碑数清零
+         */
+        State withTrie(DictSegment compacted) {
+            return new State(slots, compacted, freqs, minFreq, total, 0, deletedWords);
+        }
+    }
+
+    /**
+     * 一次词典修改：加载用户词典（文件与classpath资源二选一），或运行时增删词（词频为NaN表示删除）
+     */
+    private static final class Mutation {
+        final Path path;
+        final String resource;
+        final Charset charset;
+        final String word;
+        final double freq;
+
+        Mutation(Path path, String resource, Charset charset, String word, double freq) {
+            this.path = path;
+            this.resource = resource;
+            this.charset = charset;
+            this.word = word;
+            this.freq = freq;
+        }
     }
 }
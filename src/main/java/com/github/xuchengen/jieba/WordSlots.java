@@ -0,0 +1,73 @@
+package com.github.xuchengen.jieba;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>按词编号存放词与词频的槽位
+ * <p>槽位分块存放，每块4096个，扩容时只复制块目录，已有的块不会被复制或替换，
+ * 因此对已有槽位的词频更新是单次原子写，不需要加锁，也不会因并发扩容而丢失。
+ * 新增词（分配编号）由调用方串行执行。
+ **/
+final class WordSlots {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+
+    /**
+     * 已分配的编号数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 分配新编号，调用方需保证串行
+     *
+     * @return 新编号
+     */
+    int add(String word, double freq) {
+        int id = size;
+        Chunk[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, chunk + 1);
+            current[chunk] = new Chunk();
+            chunks = current;
+        }
+        current[chunk].words.set(id & CHUNK_MASK, word);
+        current[chunk].freqs.set(id & CHUNK_MASK, Double.doubleToRawLongBits(freq));
+        size = id + 1;
+        return id;
+    }
+
+    String word(int id) {
+        if (id < 0 || id >= size) return null;
+        return chunks[id >>> CHUNK_BITS].words.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * 读取词频，编号不存在时返回defaultFreq
+     */
+    double freq(int id, double defaultFreq) {
+        if (id < 0 || id >= size) return defaultFreq;
+        return Double.longBitsToDouble(chunks[id >>> CHUNK_BITS].freqs.get(id & CHUNK_MASK));
+    }
+
+    /**
+     * 原子地更新已有编号的词频
+     */
+    void setFreq(int id, double freq) {
+        chunks[id >>> CHUNK_BITS].freqs.set(id & CHUNK_MASK, Double.doubleToRawLongBits(freq));
+    }
+
+    private static final class Chunk {
+        final AtomicReferenceArray<String> words = new AtomicReferenceArray<>(CHUNK_SIZE);
+        final AtomicLongArray freqs = new AtomicLongArray(CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,382 @@
+package com.github.xuchengen.jieba.ahocorasick;
+
+import com.github.xuchengen.jieba.JiebaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * <p>Aho-Corasick多模式匹配
+ * <p><a href="https://dl.acm.org/doi/10.1145/360825.360855">Aho-Corasick算法原理参考</a>
+ * <p>由词表构造带失败指针的自动机，对文本从左到右扫描一遍即可找出所有词的所有出现位置（包括相互重叠、相互包含的），
+ * 耗时与文本长度和命中数成线性，与词表大小无关。适用于敏感词过滤、实体标注等场景，词表与分词词典相互独立。
+ * <p>状态按广度优先顺序编号，同一状态的子状态编号连续，转移只需存储每个状态的首个子状态与子状态的字符，
+ * 根状态的转移展开为按字符索引的数组。自动机构造后不可变，可被多线程共享。
+ * <p>默认区分大小写：与分词词典不同，词不会转为小写。需要忽略大小写时使用ignoreCase的构造方式，
+ * 词与文本都逐字符转为小写后匹配，命中的偏移仍对应原文本。
+ * <pre>
+ * AhoCorasick scanner = AhoCorasick.load(Paths.get("sensitive.dict"));
+ * for (TermHit hit : scanner.findAll(message)) { ... }
+ * </pre>
+ **/
+public class AhoCorasick {
+
+    private static final Logger log = LoggerFactory.getLogger(AhoCorasick.class);
+    private static final int ROOT = 0;
+
+    private final String[] terms;
+    private final String[] tags;
+    private final boolean ignoreCase;
+
+    // 根状态按字符直接索引的转移，-1表示回到根
+    private final int[] rootNext;
+    // 状态s的子状态为[childStart[s], childStart[s + 1])，labels[c]为进入子状态c的字符，按升序
+    private final int[] childStart;
+    private final char[] labels;
+    private final int[] fail;
+    // 在状态结束的词的编号，没有时为-1
+    private final int[] output;
+    // 沿失败指针能到达的下一个有输出的状态，没有时为-1
+    private final int[] outputLink;
+
+    /**
+     * 由词构造自动机，词的编号为其在集合中的迭代顺序，重复的词沿用第一次出现的编号
+     *
+     * @param terms 词，忽略null与空串
+     */
+    public AhoCorasick(Collection<String> terms) {
+        this(terms, false);
+    }
+
+    /**
+     * 由词构造自动机
+     *
+     * @param terms      词，忽略null与空串
+     * @param ignoreCase 是否忽略大小写
+     */
+    public AhoCorasick(Collection<String> terms, boolean ignoreCase) {
+        this(terms.toArray(new String[0]), null, ignoreCase);
+    }
+
+    private AhoCorasick(String[] terms, String[] tags, boolean ignoreCase) {
+        this.terms = terms;
+        this.tags = tags;
+        this.ignoreCase = ignoreCase;
+        String[] keys = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            keys[i] = terms[i] == null ? "" : ignoreCase ? lowerCase(terms[i]) : terms[i];
+        }
+
+        // 按字典序插入，每个新节点总是其父节点最后加入的子节点，构造临时的长子-兄弟树
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = keys[a].compareTo(keys[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        IntArray firstChild = new IntArray();
+        IntArray lastChild = new IntArray();
+        IntArray nextSibling = new IntArray();
+        IntArray nodeLabel = new IntArray();
+        IntArray nodeOutput = new IntArray();
+        firstChild.add(-1);
+        lastChild.add(-1);
+        nextSibling.add(-1);
+        nodeLabel.add(0);
+        nodeOutput.add(-1);
+        for (int id : order) {
+            String term = keys[id];
+            if (term.isEmpty()) continue;
+            int node = ROOT;
+            for (int i = 0; i < term.length(); i++) {
+                char ch = term.charAt(i);
+                int last = lastChild.get(node);
+                if (last >= 0 && nodeLabel.get(last) == ch) {
+                    node = last;
+                    continue;
+                }
+                int child = nodeLabel.size();
+                firstChild.add(-1);
+                lastChild.add(-1);
+                nextSibling.add(-1);
+                nodeLabel.add(ch);
+                nodeOutput.add(-1);
+                if (last < 0) {
+                    firstChild.set(node, child);
+                } else {
+                    nextSibling.set(last, child);
+                }
+                lastChild.set(node, child);
+                node = child;
+            }
+            if (nodeOutput.get(node) < 0) nodeOutput.set(node, id);
+        }
+
+        // 按广度优先重新编号
+        int states = nodeLabel.size();
+        int[] bfs = new int[states];
+        this.childStart = new int[states + 1];
+        this.labels = new char[states];
+        this.output = new int[states];
+        int tail = 1;
+        for (int head = 0; head < states; head++) {
+            int node = bfs[head];
+            output[head] = nodeOutput.get(node);
+            childStart[head] = tail;
+            for (int child = firstChild.get(node); child >= 0; child = nextSibling.get(child)) {
+                labels[tail] = (char) nodeLabel.get(child);
+                bfs[tail++] = child;
+            }
+        }
+        childStart[states] = tail;
+
+        this.rootNext = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(rootNext, -1);
+        for (int c = childStart[ROOT]; c < childStart[ROOT + 1]; c++) {
+            rootNext[labels[c]] = c;
+        }
+
+        // 广度优先计算失败指针，父状态的失败指针总是先于子状态算出
+        this.fail = new int[states];
+        this.outputLink = new int[states];
+        outputLink[ROOT] = -1;
+        for (int s = 0; s < states; s++) {
+            for (int c = childStart[s]; c < childStart[s + 1]; c++) {
+                int f = ROOT;
+                if (s != ROOT) {
+                    f = fail[s];
+                    int next;
+                    while ((next = next(f, labels[c])) < 0 && f != ROOT) f = fail[f];
+                    f = Math.max(next, ROOT);
+                }
+                fail[c] = f;
+                outputLink[c] = output[f] >= 0 ? f : outputLink[f];
+            }
+        }
+    }
+
+    /**
+     * 从UTF-8编码的词表文件构造区分大小写的自动机
+     */
+    public static AhoCorasick load(Path path) {
+        return load(path, StandardCharsets.UTF_8, false);
+    }
+
+    /**
+     * 从词表文件构造区分大小写的自动机
+     */
+    public static AhoCorasick load(Path path, Charset charset) {
+        return load(path, charset, false);
+    }
+
+    /**
+     * 从词表文件构造自动机
+     * <p>格式与用户词典相同：每行<code>词 [词频] [标签]</code>，以空格或制表符分隔，词频被忽略。
+     * 词的编号为其所在的行序（从0开始，跳过空行）
+     *
+     * @param path       词表文件
+     * @param charset    字符编码
+     * @param ignoreCase 是否忽略大小写
+     */
+    public static AhoCorasick load(Path path, Charset charset, boolean ignoreCase) {
+        long s = System.currentTimeMillis();
+        List<String> terms = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(path, charset)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] tokens = line.trim().split("[\t ]+");
+                if (tokens[0].isEmpty()) continue;
+                String tag = null;
+                if (tokens.length >= 3) {
+                    tag = tokens[2];
+                } else if (tokens.length == 2 && !isNumber(tokens[1])) {
+                    tag = tokens[1];
+                }
+                terms.add(tokens[0]);
+                tags.add(tag);
+            }
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: load terms failure!", path), e);
+            throw new JiebaException(e);
+        }
+        AhoCorasick automaton = new AhoCorasick(terms.toArray(new String[0]), tags.toArray(new String[0]),
+                ignoreCase);
+        log.debug(String.format(Locale.getDefault(), "%s: %d terms, %d states, time elapsed %d ms", path,
+                terms.size(), automaton.getStateCount(), System.currentTimeMillis() - s));
+        return automaton;
+    }
+
+    /**
+     * 扫描文本，按结束位置从左到右回调每一次命中；结束位置相同时，较长的词先回调
+     *
+     * @param text    文本
+     * @param handler 回调，返回false时停止扫描
+     */
+    public void scan(CharSequence text, MatchHandler handler) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            state = transit(state, ignoreCase ? Character.toLowerCase(ch) : ch);
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int termId = output[s];
+                if (!handler.onMatch(termId, i + 1 - terms[termId].length(), i + 1)) return;
+            }
+        }
+    }
+
+    /**
+     * 找出文本中所有词的所有出现位置
+     */
+    public List<TermHit> findAll(CharSequence text) {
+        List<TermHit> hits = new ArrayList<>();
+        scan(text, (termId, start, end) -> {
+            hits.add(new TermHit(termId, terms[termId], getTag(termId), start, end));
+            return true;
+        });
+        return hits;
+    }
+
+    /**
+     * 最左最长匹配：从左到右取开始位置最靠前的命中，开始位置相同时取最长的，之后从其结束位置继续，结果互不重叠
+     * <p>适用于实体标注等每段文本只应标注一次的场景
+     */
+    public List<TermHit> findLongest(CharSequence text) {
+        // 每个开始位置上最长的词
+        int[] longest = new int[text.length()];
+        Arrays.fill(longest, -1);
+        scan(text, (termId, start, end) -> {
+            if (longest[start] < 0 || terms[longest[start]].length() < end - start) longest[start] = termId;
+            return true;
+        });
+        List<TermHit> hits = new ArrayList<>();
+        for (int i = 0; i < longest.length; ) {
+            int termId = longest[i];
+            if (termId < 0) {
+                i++;
+                continue;
+            }
+            int end = i + terms[termId].length();
+            hits.add(new TermHit(termId, terms[termId], getTag(termId), i, end));
+            i = end;
+        }
+        return hits;
+    }
+
+    /**
+     * 判断文本是否包含任意一个词，命中第一个即返回
+     */
+    public boolean containsAny(CharSequence text) {
+        boolean[] found = new boolean[1];
+        scan(text, (termId, start, end) -> {
+            found[0] = true;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * 词的数量（含重复与空串占用的编号）
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    public String getTerm(int termId) {
+        return terms[termId];
+    }
+
+    /**
+     * 词的标签，没有时返回null
+     */
+    public String getTag(int termId) {
+        return tags == null ? null : tags[termId];
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * 自动机的状态数
+     */
+    public int getStateCount() {
+        return output.length;
+    }
+
+    private int transit(int state, char ch) {
+        int next;
+        while (state != ROOT) {
+            if ((next = next(state, ch)) >= 0) return next;
+            state = fail[state];
+        }
+        return Math.max(rootNext[ch], ROOT);
+    }
+
+    private int next(int state, char ch) {
+        if (state == ROOT) return rootNext[ch];
+        int low = childStart[state];
+        int high = childStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = labels[mid];
+            if (c < ch) {
+                low = mid + 1;
+            } else if (c > ch) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 逐字符转为小写，长度不变，与扫描时对文本的处理一致
+     */
+    private static String lowerCase(String term) {
+        char[] chars = term.toCharArray();
+        for (int i = 0; i < chars.length; i++) chars[i] = Character.toLowerCase(chars[i]);
+        return new String(chars);
+    }
+
+    private static boolean isNumber(String token) {
+        try {
+            Double.parseDouble(token);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 可增长的int数组，构造时使用
+     */
+    private static final class IntArray {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
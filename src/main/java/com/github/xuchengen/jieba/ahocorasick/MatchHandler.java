@@ -0,0 +1,18 @@
+package com.github.xuchengen.jieba.ahocorasick;
+
+/**
+ * <p>扫描命中回调
+ **/
+@FunctionalInterface
+public interface MatchHandler {
+
+    /**
+     * 命中一个词
+     *
+     * @param termId 词的编号
+     * @param start  在文本中的开始偏移
+     * @param end    在文本中的结束偏移（不含）
+     * @return 是否继续扫描
+     */
+    boolean onMatch(int termId, int start, int end);
+}
@@ -0,0 +1,55 @@
+package com.github.xuchengen.jieba.ahocorasick;
+
+/**
+ * <p>扫描命中的词
+ **/
+public class TermHit {
+
+    private final int termId;
+    private final String term;
+    private final String tag;
+    private final int start;
+    private final int end;
+
+    public TermHit(int termId, String term, String tag, int start, int end) {
+        this.termId = termId;
+        this.term = term;
+        this.tag = tag;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getTermId() {
+        return termId;
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    /**
+     * 词表中为该词标注的标签，没有时为null
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * 开始偏移
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * 结束偏移（不含）
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + term + ", " + start + ", " + end + (tag == null ? "" : ", " + tag) + "]";
+    }
+}
@@ -0,0 +1,362 @@
+package com.github.xuchengen.jieba.async;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.tfidf.Keyword;
+import com.github.xuchengen.jieba.tfidf.TFIDFAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>分词与关键词提取的异步接口
+ * <p>分词是纯计算，异步的请求处理线程不应直接调用。这里的每个调用立即返回{@link CompletableFuture}，
+ * 计算在专用的线程池中进行，线程数默认等于CPU核数，更多的线程只会增加切换而不会增加吞吐。
+ * <p>线程池前是有界队列，队列满时按{@link Overflow}处理：
+ * <ul>
+ * <li>REJECT：返回的future立即以{@link RejectedExecutionException}失败，调用方可以降级或回复繁忙</li>
+ * <li>BLOCK：提交的线程等待队列腾出空间，超过等待时间仍未腾出则同样失败；适合调用方运行在虚拟线程上的场合</li>
+ * </ul>
+ * 过载时排队时间有上限，不会随积压无限增长，尾延迟可预期。
+ * <p>合并：同一时刻对相同文本、相同参数的多个请求只计算一次，各调用方得到各自的future，
+ * 取消其中一个不影响其他调用方。结果列表不可修改，由合并的调用方共享。
+ * <p>未在返回的future上使用*Async方法注册的后续操作在计算线程上执行，耗时的后续操作应指定自己的线程池。
+ * <p>JDK 21及以上可以用{@link #newCallerExecutor()}为调用方创建虚拟线程，低版本退化为普通线程，
+ * 本类本身只依赖Java 8。
+ * <pre>
+ * AsyncSegmenter async = new AsyncSegmenter();
+ * async.start();
+ * async.process(text, JiebaSegmenter.SegMode.SEARCH).thenAccept(tokens -&gt; ...);
+ * </pre>
+ **/
+public class AsyncSegmenter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncSegmenter.class);
+
+    /**
+     * 队列已满时的处理方式
+     */
+    public enum Overflow {
+        REJECT,
+        BLOCK
+    }
+
+    private final JiebaSegmenter segmenter;
+    private final TFIDFAnalyzer tfidfAnalyzer;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 1024;
+    private Overflow overflow = Overflow.REJECT;
+    private long blockTimeoutMillis = 100;
+    private boolean coalescing = true;
+
+    private volatile ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public AsyncSegmenter() {
+        this(new JiebaSegmenter());
+    }
+
+    public AsyncSegmenter(JiebaSegmenter segmenter) {
+        this.segmenter = segmenter;
+        this.tfidfAnalyzer = new TFIDFAnalyzer(segmenter);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 等待计算的请求数上限
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * 队列已满时的处理方式，默认{@link Overflow#REJECT}
+     */
+    public void setOverflow(Overflow overflow) {
+        this.overflow = Objects.requireNonNull(overflow);
+    }
+
+    /**
+     * {@link Overflow#BLOCK}时提交线程等待的最长时间
+     */
+    public void setBlockTimeout(long timeout, TimeUnit unit) {
+        this.blockTimeoutMillis = Math.max(0, unit.toMillis(timeout));
+    }
+
+    /**
+     * 是否合并相同的在途请求，默认合并
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    public JiebaSegmenter getSegmenter() {
+        return segmenter;
+    }
+
+    public TFIDFAnalyzer getTfidfAnalyzer() {
+        return tfidfAnalyzer;
+    }
+
+    /**
+     * 预热并启动线程池
+     */
+    public synchronized void start() {
+        if (executor != null) return;
+        // 首次分析时才加载的IDF与HMM模型在这里加载，避免第一个请求承担
+        tfidfAnalyzer.analyze("预热", 1);
+        segmenter.process("预热", JiebaSegmenter.SegMode.SEARCH);
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "jieba-async-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, new OverflowHandler(overflow, blockTimeoutMillis));
+        pool.prestartAllCoreThreads();
+        executor = pool;
+        log.info(String.format(Locale.getDefault(), "async segmenter started, %d threads, queue capacity %d, %s",
+                threads, queueCapacity, overflow));
+    }
+
+    /**
+     * 停止线程池，尚未开始计算的请求以{@link RejectedExecutionException}失败，正在计算的请求继续完成
+     */
+    @Override
+    public synchronized void close() {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) return;
+        executor = null;
+        pool.shutdown();
+        for (Runnable runnable : pool.getQueue().toArray(new Runnable[0])) {
+            if (pool.remove(runnable) && runnable instanceof Task) {
+                ((Task<?>) runnable).future.completeExceptionally(
+                        new RejectedExecutionException("async segmenter closed"));
+            }
+        }
+    }
+
+    /**
+     * 异步的{@link JiebaSegmenter#process(String, JiebaSegmenter.SegMode)}
+     * <p>参数为null时返回的future以{@link NullPointerException}失败
+     */
+    public CompletableFuture<List<SegToken>> process(String paragraph, JiebaSegmenter.SegMode mode) {
+        if (paragraph == null || mode == null) return failed(new NullPointerException("paragraph and mode"));
+        return submit(new Key(Op.PROCESS, paragraph, mode.ordinal()),
+                () -> Collections.unmodifiableList(segmenter.process(paragraph, mode)));
+    }
+
+    /**
+     * 异步的{@link JiebaSegmenter#sentenceProcess(String)}
+     * <p>参数为null时返回的future以{@link NullPointerException}失败
+     */
+    public CompletableFuture<List<String>> sentenceProcess(String sentence) {
+        if (sentence == null) return failed(new NullPointerException("sentence"));
+        return submit(new Key(Op.SENTENCE, sentence, 0),
+                () -> Collections.unmodifiableList(segmenter.sentenceProcess(sentence)));
+    }
+
+    /**
+     * 异步的{@link TFIDFAnalyzer#analyze(String, int)}
+     * <p>参数为null时返回的future以{@link NullPointerException}失败
+     */
+    public CompletableFuture<List<Keyword>> analyze(String content, int topN) {
+        if (content == null) return failed(new NullPointerException("content"));
+        return submit(new Key(Op.TFIDF, content, topN),
+                () -> Collections.unmodifiableList(tfidfAnalyzer.analyze(content, topN)));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(Key key, Supplier<T> supplier) {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) return failed(new RejectedExecutionException("async segmenter not started"));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (coalescing) {
+            CompletableFuture<?> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                coalesced.increment();
+                return ((CompletableFuture<T>) existing).thenApply(result -> result);
+            }
+            future.whenComplete((result, error) -> inFlight.remove(key, future));
+        }
+        submitted.increment();
+        try {
+            pool.execute(new Task<>(future, supplier));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        // 调用方拿到的是副本，取消它不会取消合并的计算
+        return coalescing ? future.thenApply(result -> result) : future;
+    }
+
+    /**
+     * 提交计算的请求数（不含合并的）
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * 因队列已满或等待超时被拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 合并到在途请求上的请求数
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 正在排队的请求数
+     */
+    public int getQueueSize() {
+        ThreadPoolExecutor pool = executor;
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    /**
+     * 为调用方创建线程池：JDK 21及以上每个任务一个虚拟线程，否则为按需创建的守护线程
+     * <p>调用方在虚拟线程上等待结果或在{@link Overflow#BLOCK}下等待入队时不占用平台线程。
+     */
+    public static ExecutorService newCallerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // JDK 21以下，或JDK 19、20未开启预览特性
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "jieba-async-caller");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private enum Op {
+        PROCESS,
+        SENTENCE,
+        TFIDF
+    }
+
+    /**
+     * 合并请求的键：操作、文本与参数（分词模式或topN）
+     */
+    private static final class Key {
+        final Op op;
+        final String text;
+        final int argument;
+        final int hash;
+
+        Key(Op op, String text, int argument) {
+            this.op = op;
+            this.text = text;
+            this.argument = argument;
+            this.hash = (text.hashCode() * 31 + op.ordinal()) * 31 + argument;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && op == key.op && argument == key.argument && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Task<T> implements Runnable {
+        final CompletableFuture<T> future;
+        final Supplier<T> supplier;
+
+        Task(CompletableFuture<T> future, Supplier<T> supplier) {
+            this.future = future;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) return;
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 队列已满时拒绝，或等待一段时间后再拒绝
+     */
+    private static final class OverflowHandler implements RejectedExecutionHandler {
+        private final Overflow overflow;
+        private final long timeoutMillis;
+
+        OverflowHandler(Overflow overflow, long timeoutMillis) {
+            this.overflow = overflow;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) throw new RejectedExecutionException("async segmenter closed");
+            if (overflow == Overflow.BLOCK) {
+                try {
+                    if (executor.getQueue().offer(r, timeoutMillis, TimeUnit.MILLISECONDS)) return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            throw new RejectedExecutionException("async segmenter queue full");
+        }
+    }
+}
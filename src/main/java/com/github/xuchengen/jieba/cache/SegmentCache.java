@@ -0,0 +1,390 @@
+package com.github.xuchengen.jieba.cache;
+
+import com.github.xuchengen.jieba.CharacterUtil;
+import com.github.xuchengen.jieba.Hashing;
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.codec.TokenStreamReader;
+import com.github.xuchengen.jieba.codec.TokenStreamWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <p>持久化的分词结果缓存
+ * <p>{@link JiebaSegmenter#process(String, JiebaSegmenter.SegMode)}的结果以追加方式写入内存映射文件，
+ * 以文本内容的128位哈希与分词模式为键；再次分词相同的文本时直接从文件解码词的偏移，不再分词。
+ * 适用于反复重建索引、大部分文档不变的场景，命中时的开销主要是读取映射页。
+ * <p>文件头记录写入时的{@link JiebaSegmenter#getFingerprint() 分词指纹}，打开文件或分词时发现指纹变化
+ * （词典被修改、重新加载，或HMM模型、保护限制不同）即清空缓存，不会返回过期的结果。
+ * <p>文件按64MB分段映射，记录不跨段；每条记录完整写入后才推进文件头中的提交位置，进程异常退出时最多丢失未提交的记录。
+ * 记录只保存偏移，按{@link TokenStreamWriter}的格式（不带词编号）编码，词由原文按分词时的规则（全角转半角、转小写）还原。
+ * 内存中只保留哈希到记录位置的索引，每条记录约16字节。
+ * <pre>
+ * try (SegmentCache cache = new SegmentCache(segmenter, Paths.get("corpus.segcache"))) {
+ *     List&lt;SegToken&gt; tokens = cache.process(document, SegMode.SEARCH);
+ * }
+ * </pre>
+ **/
+public class SegmentCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentCache.class);
+
+    private static final int MAGIC = 0x4A425343;
+    private static final int FORMAT = 2;
+    private static final int HEADER = 32;
+    private static final int FINGERPRINT_OFFSET = 8;
+    private static final int END_OFFSET = 16;
+    private static final int SEGMENT_BITS = 26;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    // 段尾放不下记录时写入的跳转标记
+    private static final int SKIP = -1;
+    // 模式、两个哈希、文本长度
+    private static final int RECORD_HEAD = 1 + 8 + 8 + 4;
+
+    private final JiebaSegmenter segmenter;
+    private final Path path;
+    private final FileChannel channel;
+    private final StampedLock lock = new StampedLock();
+
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long fingerprint;
+    private long end;
+    // 开放寻址的哈希表，键为0表示空位
+    private long[] keys = new long[1024];
+    private long[] positions = new long[1024];
+    private int size;
+    private byte[] scratch = new byte[4096];
+    private final TokenStreamWriter writer = new TokenStreamWriter(ByteBuffer.wrap(scratch), false);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 打开或创建缓存文件，文件中的指纹与分词器当前的指纹不同时清空
+     *
+     * @param segmenter 分词器
+     * @param path      缓存文件
+     */
+    public SegmentCache(JiebaSegmenter segmenter, Path path) {
+        this.segmenter = segmenter;
+        this.path = path;
+        long s = System.currentTimeMillis();
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long current = segmenter.getFingerprint();
+            long fileSize = channel.size();
+            MappedByteBuffer head = segment(0);
+            long committed = head.getLong(END_OFFSET);
+            if (head.getInt(0) == MAGIC && head.getInt(4) == FORMAT && head.getLong(FINGERPRINT_OFFSET) == current
+                    && committed >= HEADER && committed <= fileSize) {
+                fingerprint = current;
+                end = committed;
+                scan();
+            } else {
+                reset(current);
+            }
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s: open segment cache failure!", path), e);
+            throw new JiebaException(e);
+        }
+        log.debug(String.format(Locale.getDefault(), "%s: %d cached documents, time elapsed %d ms", path, size,
+                System.currentTimeMillis() - s));
+    }
+
+    /**
+     * 分词，结果与{@link JiebaSegmenter#process(String, JiebaSegmenter.SegMode)}相同
+     */
+    public List<SegToken> process(String paragraph, JiebaSegmenter.SegMode mode) {
+        long current = segmenter.getFingerprint();
+        if (current != fingerprint) invalidate(current);
+
+        long h1 = Hashing.hash(paragraph, 0x9E3779B97F4A7C15L);
+        long h2 = Hashing.hash(paragraph, 0xC2B2AE3D27D4EB4FL);
+        long key = key(h1, mode);
+        List<SegToken> tokens = lookup(key, h2, paragraph, mode);
+        if (tokens != null) {
+            hits.increment();
+            return tokens;
+        }
+        misses.increment();
+        tokens = segmenter.process(paragraph, mode);
+        append(current, key, h1, h2, paragraph.length(), mode, tokens);
+        return tokens;
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 缓存的文档数
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 已写入的字节数（含文件头与段尾空隙）
+     */
+    public long getStoredBytes() {
+        long stamp = lock.readLock();
+        try {
+            return end;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            reset(segmenter.getFingerprint());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 把已写入的记录刷到磁盘
+     */
+    public void force() {
+        long stamp = lock.writeLock();
+        try {
+            for (MappedByteBuffer segment : segments) segment.force();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s: close segment cache failure!", path), e);
+            throw new JiebaException(e);
+        }
+    }
+
+    private void invalidate(long current) {
+        long stamp = lock.writeLock();
+        try {
+            if (fingerprint != current) {
+                log.debug(String.format(Locale.getDefault(), "%s: segmenter fingerprint changed, %d cached documents dropped",
+                        path, size));
+                reset(current);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private List<SegToken> lookup(long key, long h2, String paragraph, JiebaSegmenter.SegMode mode) {
+        long position;
+        long stamp = lock.readLock();
+        try {
+            position = get(key);
+            if (position < 0) return null;
+            MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+            int offset = (int) (position & (SEGMENT_SIZE - 1));
+            int length = segment.getInt(offset);
+            offset += 4;
+            if (segment.get(offset) != mode.ordinal() || segment.getLong(offset + 9) != h2
+                    || segment.getInt(offset + 17) != paragraph.length()) {
+                return null;
+            }
+            return decode(segment, offset + RECORD_HEAD, offset + length, paragraph);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static List<SegToken> decode(MappedByteBuffer segment, int offset, int limit, String paragraph) {
+        ByteBuffer record = segment.duplicate();
+        record.limit(limit);
+        record.position(offset);
+        TokenStreamReader reader = new TokenStreamReader(record);
+        reader.nextRecord();
+        List<SegToken> tokens = new ArrayList<>(reader.getTokenCount());
+        char[] chars = new char[16];
+        while (reader.nextToken()) {
+            int start = reader.getStart();
+            int length = reader.getEnd() - start;
+            if (chars.length < length) chars = new char[length];
+            // 与分词时相同：中英文数字等字符经过规范化，其余字符保持原样
+            for (int j = 0; j < length; j++) {
+                char c = paragraph.charAt(start + j);
+                char regular = CharacterUtil.regularize(c);
+                chars[j] = CharacterUtil.ccFind(regular) ? regular : c;
+            }
+            tokens.add(new SegToken(new String(chars, 0, length), start, start + length));
+        }
+        return tokens;
+    }
+
+    private void append(long current, long key, long h1, long h2, int textLength, JiebaSegmenter.SegMode mode,
+                        List<SegToken> tokens) {
+        long stamp = lock.writeLock();
+        try {
+            // 分词期间指纹变化时结果可能已过期
+            if (fingerprint != current || get(key) >= 0) return;
+            int length = encode(h1, h2, textLength, mode, tokens);
+            if (4 + length > SEGMENT_SIZE - HEADER) return;
+
+            int offset = (int) (end & (SEGMENT_SIZE - 1));
+            if (offset + 4 + length > SEGMENT_SIZE) {
+                if (SEGMENT_SIZE - offset >= 4) segment((int) (end >>> SEGMENT_BITS)).putInt(offset, SKIP);
+                end = ((end >>> SEGMENT_BITS) + 1) << SEGMENT_BITS;
+                offset = 0;
+            }
+            MappedByteBuffer segment = segment((int) (end >>> SEGMENT_BITS));
+            segment.putInt(offset, length);
+            for (int i = 0; i < length; i++) segment.put(offset + 4 + i, scratch[i]);
+            put(key, end);
+            end += 4 + length;
+            segments[0].putLong(END_OFFSET, end);
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s: write segment cache failure!", path), e);
+            throw new JiebaException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 把记录（不含长度）编码到scratch
+     *
+     * @return 记录的字节数
+     */
+    private int encode(long h1, long h2, int textLength, JiebaSegmenter.SegMode mode, List<SegToken> tokens) {
+        int required = RECORD_HEAD + TokenStreamWriter.maxRecordBytes(tokens.size(), false);
+        if (scratch.length < required) scratch = new byte[Math.max(required, scratch.length * 2)];
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        record.put((byte) mode.ordinal()).putLong(h1).putLong(h2).putInt(textLength);
+        writer.setBuffer(record);
+        writer.write(tokens);
+        return record.position();
+    }
+
+    /**
+     * 从文件头之后逐条读取已提交的记录，重建索引
+     */
+    private void scan() throws IOException {
+        long position = HEADER;
+        while (position < end) {
+            MappedByteBuffer segment = segment((int) (position >>> SEGMENT_BITS));
+            int offset = (int) (position & (SEGMENT_SIZE - 1));
+            int length = SEGMENT_SIZE - offset >= 4 ? segment.getInt(offset) : SKIP;
+            if (length == SKIP) {
+                position = ((position >>> SEGMENT_BITS) + 1) << SEGMENT_BITS;
+                continue;
+            }
+            if (length < RECORD_HEAD || offset + 4 + length > SEGMENT_SIZE) {
+                // 提交位置之前不应有损坏的记录，保守地丢弃其后的内容
+                log.error(String.format(Locale.getDefault(), "%s: corrupted record at %d, truncated", path, position));
+                end = position;
+                segments[0].putLong(END_OFFSET, end);
+                break;
+            }
+            int mode = segment.get(offset + 4);
+            put(key(segment.getLong(offset + 5), JiebaSegmenter.SegMode.values()[mode]), position);
+            position += 4 + length;
+        }
+    }
+
+    private void reset(long current) {
+        try {
+            MappedByteBuffer head = segment(0);
+            head.putInt(0, MAGIC);
+            head.putInt(4, FORMAT);
+            head.putLong(FINGERPRINT_OFFSET, current);
+            head.putLong(END_OFFSET, HEADER);
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s: reset segment cache failure!", path), e);
+            throw new JiebaException(e);
+        }
+        fingerprint = current;
+        end = HEADER;
+        keys = new long[1024];
+        positions = new long[1024];
+        size = 0;
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        if (index >= segments.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(segments, index + 1);
+            for (int i = segments.length; i <= index; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << SEGMENT_BITS, SEGMENT_SIZE);
+            }
+            segments = grown;
+        }
+        return segments[index];
+    }
+
+    private long get(long key) {
+        int mask = keys.length - 1;
+        for (int i = (int) key & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return positions[i];
+        }
+        return -1;
+    }
+
+    private void put(long key, long position) {
+        if ((size + 1) * 2 > keys.length) {
+            long[] oldKeys = keys;
+            long[] oldPositions = positions;
+            keys = new long[oldKeys.length * 2];
+            positions = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i], oldPositions[i]);
+            }
+        }
+        int mask = keys.length - 1;
+        int i = (int) key & mask;
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == 0) size++;
+        keys[i] = key;
+        positions[i] = position;
+    }
+
+    private static long key(long h1, JiebaSegmenter.SegMode mode) {
+        long key = Hashing.mix(h1 ^ (mode.ordinal() + 1) * 0x9E3779B97F4A7C15L);
+        return key == 0 ? 1 : key;
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.xuchengen.jieba.codec;
+
+import com.github.xuchengen.jieba.WordDictionary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>读取{@link TokenStreamWriter}写入的分词结果
+ * <p>直接在缓冲区上解码，逐条记录、逐个词向前移动，每次只保留当前词的偏移与编号，
+ * 遍历过程中不创建{@link com.github.xuchengen.jieba.SegToken}或字符串。
+ * 读取不改变缓冲区的位置，多个读取器可以共享同一个缓冲区。
+ * <pre>
+ * TokenStreamReader reader = new TokenStreamReader(buffer);
+ * while (reader.nextRecord()) {
+ *     while (reader.nextToken()) {
+ *         index(reader.getWordId(), reader.getStart(), reader.getEnd());
+ *     }
+ * }
+ * </pre>
+ **/
+public class TokenStreamReader {
+
+    private final ByteBuffer buffer;
+    private int position;
+    private final int limit;
+
+    private int remaining;
+    private boolean wordIds;
+    private int tokenCount;
+    private int start;
+    private int end;
+    private int wordId;
+
+    /**
+     * @param buffer 从其当前位置读到上限，须只包含完整的记录
+     */
+    public TokenStreamReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * 移动到下一条记录，当前记录未读完的词被跳过
+     *
+     * @return 是否还有记录
+     */
+    public boolean nextRecord() {
+        while (remaining > 0) nextToken();
+        if (position >= limit) return false;
+        tokenCount = remaining = readVarint();
+        wordIds = (buffer.get(position++) & TokenStreamWriter.FLAG_WORD_IDS) != 0;
+        start = end = 0;
+        wordId = WordDictionary.UNKNOWN_WORD_ID;
+        return true;
+    }
+
+    /**
+     * 移动到当前记录的下一个词
+     *
+     * @return 当前记录是否还有词
+     */
+    public boolean nextToken() {
+        if (remaining == 0) return false;
+        remaining--;
+        int delta = readVarint();
+        start += (delta >>> 1) ^ -(delta & 1);
+        end = start + readVarint();
+        if (wordIds) wordId = readVarint() + WordDictionary.HMM_WORD_ID;
+        return true;
+    }
+
+    /**
+     * 当前记录的词数
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * 当前记录是否带词编号
+     */
+    public boolean hasWordIds() {
+        return wordIds;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * 当前词的编号，记录不带词编号时为{@link WordDictionary#UNKNOWN_WORD_ID}
+     */
+    public int getWordId() {
+        return wordId;
+    }
+
+    /**
+     * 当前词在词典中的词（词典中已有的字符串，不会新建），不在词典中时返回null
+     */
+    public String getWord() {
+        return wordId >= 0 ? WordDictionary.getInstance().getWord(wordId) : null;
+    }
+
+    /**
+     * 已读取到的缓冲区位置
+     */
+    public int position() {
+        return position;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.xuchengen.jieba.codec;
+
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.WordDictionary;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * <p>分词结果的紧凑二进制编码
+ * <p>每篇文档的分词结果编码为一条记录，记录首尾相接写入{@link ByteBuffer}，不经过中间数组：
+ * <pre>
+ * varint 词数 | byte 标志 | 每个词：zigzag-varint 开始偏移增量 | varint 词长 | [varint 词编号+2]
+ * </pre>
+ * 开始偏移增量相对于上一个词的开始偏移（索引模式下可能为负），词长为结束偏移减开始偏移，均按UTF-16字符计；
+ * 标志的最低位表示是否带词编号，词编号为{@link WordDictionary}中的编号，
+ * 加2是为了让{@link WordDictionary#HMM_WORD_ID}与{@link WordDictionary#UNKNOWN_WORD_ID}也编码为非负数。
+ * 中文文本的一个词不带编号时通常占2个字节，带编号时约5个字节。由{@link TokenStreamReader}读取。
+ * <p>缓冲区空间不足时抛出{@link BufferOverflowException}，缓冲区的位置恢复到记录开始前，
+ * 调用方可以清空缓冲区后重试；所需空间的上限见{@link #maxRecordBytes(int, boolean)}。
+ **/
+public class TokenStreamWriter {
+
+    /**
+     * 记录带词编号
+     */
+    public static final int FLAG_WORD_IDS = 1;
+
+    private final WordDictionary wordDict = WordDictionary.getInstance();
+    private final boolean wordIds;
+    private ByteBuffer buffer;
+
+    /**
+     * @param buffer  写入的缓冲区，从其当前位置开始
+     * @param wordIds 是否写入词编号
+     */
+    public TokenStreamWriter(ByteBuffer buffer, boolean wordIds) {
+        this.buffer = buffer;
+        this.wordIds = wordIds;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * 更换缓冲区，例如把写满的缓冲区交给下游后换上空的
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * 一条记录占用字节数的上限
+     *
+     * @param tokenCount 词数
+     * @param wordIds    是否带词编号
+     */
+    public static int maxRecordBytes(int tokenCount, boolean wordIds) {
+        return 5 + 1 + tokenCount * (wordIds ? 15 : 10);
+    }
+
+    /**
+     * 写入一篇文档的分词结果，词编号按词查询词典
+     * <p>{@link SegToken}不带编号，HMM发现的未登录词查不到，写入的是{@link WordDictionary#UNKNOWN_WORD_ID}
+     * 而不是{@link WordDictionary#HMM_WORD_ID}；需要区分时用{@link #write(List, int[])}传入分词时得到的编号
+     */
+    public void write(List<SegToken> tokens) {
+        write(tokens, null);
+    }
+
+    /**
+     * 写入一篇文档的分词结果
+     *
+     * @param tokens     词
+     * @param wordIdList 与tokens一一对应的词编号，例如{@link com.github.xuchengen.jieba.JiebaSegmenter#sentenceProcessIds(String)}
+     *                   的结果；为null时按词查询词典
+     */
+    public void write(List<SegToken> tokens, int[] wordIdList) {
+        int mark = buffer.position();
+        try {
+            writeVarint(tokens.size());
+            buffer.put((byte) (wordIds ? FLAG_WORD_IDS : 0));
+            int previous = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                SegToken token = tokens.get(i);
+                previous = writeToken(previous, token.startOffset, token.endOffset);
+                if (wordIds) {
+                    int wordId = wordIdList != null ? wordIdList[i] : wordDict.getWordId(token.word);
+                    writeVarint(wordId - WordDictionary.HMM_WORD_ID);
+                }
+            }
+        } catch (BufferOverflowException e) {
+            buffer.position(mark);
+            throw e;
+        }
+    }
+
+    /**
+     * 写入一篇文档的分词结果
+     *
+     * @param count      词数
+     * @param starts     开始偏移
+     * @param ends       结束偏移
+     * @param wordIdList 词编号，不写入词编号时可为null
+     */
+    public void write(int count, int[] starts, int[] ends, int[] wordIdList) {
+        int mark = buffer.position();
+        try {
+            writeVarint(count);
+            buffer.put((byte) (wordIds ? FLAG_WORD_IDS : 0));
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous = writeToken(previous, starts[i], ends[i]);
+                if (wordIds) writeVarint(wordIdList[i] - WordDictionary.HMM_WORD_ID);
+            }
+        } catch (BufferOverflowException e) {
+            buffer.position(mark);
+            throw e;
+        }
+    }
+
+    private int writeToken(int previous, int start, int end) {
+        int delta = start - previous;
+        writeVarint((delta << 1) ^ (delta >> 31));
+        writeVarint(end - start);
+        return start;
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
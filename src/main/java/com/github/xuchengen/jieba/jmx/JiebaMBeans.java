@@ -0,0 +1,79 @@
+package com.github.xuchengen.jieba.jmx;
+
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.WordDictionary;
+import com.github.xuchengen.jieba.metrics.JiebaMetrics;
+import com.github.xuchengen.jieba.metrics.MetricsRecorder;
+import com.github.xuchengen.jieba.metrics.PipelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * <p>注册分词器的MBean到平台MBeanServer，可用JConsole、VisualVM或jmxterm查看与操作
+ * <pre>
+ * JiebaMBeans.register();
+ * </pre>
+ * <p>分词统计依赖{@link PipelineMetrics}，注册时若当前的埋点实现不是{@link PipelineMetrics}，
+ * 会安装一个新的实例
+ **/
+public class JiebaMBeans {
+
+    private static final Logger log = LoggerFactory.getLogger(JiebaMBeans.class);
+
+    public static final String DICTIONARY_NAME = "com.github.xuchengen.jieba:type=WordDictionary";
+    public static final String SEGMENTER_NAME = "com.github.xuchengen.jieba:type=Segmenter";
+
+    private JiebaMBeans() {
+    }
+
+    /**
+     * 注册词典与分词MBean，重复调用不会重复注册
+     */
+    public static synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName dictionaryName = new ObjectName(DICTIONARY_NAME);
+            if (!server.isRegistered(dictionaryName)) {
+                server.registerMBean(new WordDictionaryMonitor(WordDictionary.getInstance()), dictionaryName);
+            }
+
+            ObjectName segmenterName = new ObjectName(SEGMENTER_NAME);
+            if (!server.isRegistered(segmenterName)) {
+                MetricsRecorder recorder = JiebaMetrics.getRecorder();
+                PipelineMetrics metrics;
+                if (recorder instanceof PipelineMetrics) {
+                    metrics = (PipelineMetrics) recorder;
+                } else {
+                    metrics = new PipelineMetrics();
+                    JiebaMetrics.setRecorder(metrics);
+                }
+                server.registerMBean(new SegmenterMonitor(metrics), segmenterName);
+            }
+        } catch (Exception e) {
+            log.error("register jieba mbeans failure!", e);
+            throw new JiebaException(e);
+        }
+    }
+
+    /**
+     * 注销词典与分词MBean，已安装的埋点实现保持不变
+     */
+    public static synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (String name : new String[]{DICTIONARY_NAME, SEGMENTER_NAME}) {
+                ObjectName objectName = new ObjectName(name);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            }
+        } catch (Exception e) {
+            log.error("unregister jieba mbeans failure!", e);
+            throw new JiebaException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.xuchengen.jieba.jmx;
+
+/**
+ * <p>分词吞吐统计的JMX管理接口，耗时单位为微秒
+ **/
+public interface SegmenterMXBean {
+
+    long getSegmentCount();
+
+    long getSegmentChars();
+
+    long getSegmentTokens();
+
+    long getSegmentP50Micros();
+
+    long getSegmentP99Micros();
+
+    long getSegmentMaxMicros();
+
+    /**
+     * HMM解码次数
+     */
+    long getHmmCount();
+
+    long getHmmChars();
+
+    /**
+     * HMM解码结果缓存的命中次数
+     */
+    long getHmmMemoHitCount();
+
+    long getHmmMemoMissCount();
+
+    /**
+     * HMM解码结果缓存的命中率，没有访问时为0
+     */
+    double getHmmMemoHitRatio();
+
+    long getKeywordCount();
+
+    /**
+     * 连续中文串超长被切开的次数
+     */
+    long getSpanLimitCount();
+
+    /**
+     * HMM输入超长被切开的次数
+     */
+    long getHmmLimitCount();
+
+    /**
+     * 步数预算耗尽的次数
+     */
+    long getBudgetLimitCount();
+
+    /**
+     * 用内置样例文本分词若干轮，预热词典与JIT
+     *
+     * @param rounds 轮数
+     * @return 耗时（毫秒）
+     */
+    long warmup(int rounds);
+
+    /**
+     * 清空统计
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,117 @@
+package com.github.xuchengen.jieba.jmx;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.metrics.Limit;
+import com.github.xuchengen.jieba.metrics.PipelineMetrics;
+import com.github.xuchengen.jieba.metrics.Stage;
+import com.github.xuchengen.jieba.viterbi.FinalSeg;
+
+/**
+ * <p>分词MBean实现，数据来自{@link PipelineMetrics}
+ **/
+public class SegmenterMonitor implements SegmenterMXBean {
+
+    private static final String WARMUP_TEXT = "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。"
+            + "结婚的和尚未结婚的都应该好好生活，工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作。"
+            + "永和服装饰品有限公司在2022年推出了新产品，研究生命起源需要长期的投入。";
+
+    private final PipelineMetrics metrics;
+
+    public SegmenterMonitor(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public long getSegmentCount() {
+        return metrics.getLatency(Stage.SEGMENT).getCount();
+    }
+
+    @Override
+    public long getSegmentChars() {
+        return metrics.getInputChars(Stage.SEGMENT);
+    }
+
+    @Override
+    public long getSegmentTokens() {
+        return metrics.getTokens(Stage.SEGMENT);
+    }
+
+    @Override
+    public long getSegmentP50Micros() {
+        return metrics.getLatency(Stage.SEGMENT).getValueAtQuantile(0.5) / 1000;
+    }
+
+    @Override
+    public long getSegmentP99Micros() {
+        return metrics.getLatency(Stage.SEGMENT).getValueAtQuantile(0.99) / 1000;
+    }
+
+    @Override
+    public long getSegmentMaxMicros() {
+        return metrics.getLatency(Stage.SEGMENT).getMax() / 1000;
+    }
+
+    @Override
+    public long getHmmCount() {
+        return metrics.getLatency(Stage.HMM).getCount();
+    }
+
+    @Override
+    public long getHmmChars() {
+        return metrics.getInputChars(Stage.HMM);
+    }
+
+    @Override
+    public long getHmmMemoHitCount() {
+        return FinalSeg.getInstance().getMemoHitCount();
+    }
+
+    @Override
+    public long getHmmMemoMissCount() {
+        return FinalSeg.getInstance().getMemoMissCount();
+    }
+
+    @Override
+    public double getHmmMemoHitRatio() {
+        long hits = getHmmMemoHitCount();
+        long total = hits + getHmmMemoMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public long getKeywordCount() {
+        return metrics.getLatency(Stage.KEYWORD).getCount();
+    }
+
+    @Override
+    public long getSpanLimitCount() {
+        return metrics.getLimitCount(Limit.SPAN);
+    }
+
+    @Override
+    public long getHmmLimitCount() {
+        return metrics.getLimitCount(Limit.HMM);
+    }
+
+    @Override
+    public long getBudgetLimitCount() {
+        return metrics.getLimitCount(Limit.BUDGET);
+    }
+
+    @Override
+    public long warmup(int rounds) {
+        long s = System.currentTimeMillis();
+        JiebaSegmenter segmenter = new JiebaSegmenter();
+        for (int i = 0; i < Math.max(1, rounds); i++) {
+            segmenter.sentenceProcess(WARMUP_TEXT);
+            segmenter.process(WARMUP_TEXT, JiebaSegmenter.SegMode.SEARCH);
+        }
+        return System.currentTimeMillis() - s;
+    }
+
+    @Override
+    public void resetStatistics() {
+        metrics.reset();
+        FinalSeg.getInstance().resetMemoStatistics();
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.xuchengen.jieba.jmx;
+
+/**
+ * <p>词典的JMX管理接口
+ **/
+public interface WordDictionaryMXBean {
+
+    /**
+     * 词典中的词数，不含已删除的词
+     */
+    int getWordCount();
+
+    /**
+     * 词典树估算占用的堆内存（字节）
+     */
+    long getEstimatedTrieBytes();
+
+    /**
+     * 主词典加载耗时（毫秒）
+     */
+    long getMainDictLoadMillis();
+
+    /**
+     * 用户词典累计加载耗时（毫秒）
+     */
+    long getUserDictLoadMillis();
+
+    /**
+     * 最近一次重新加载的耗时（毫秒）
+     */
+    long getLastReloadMillis();
+
+    /**
+     * 最近一次重新加载完成的时间戳（毫秒）
+     */
+    long getLastReloadTime();
+
+    /**
+     * 已删除但尚未压缩出词典树的词数
+     */
+    int getTombstoneCount();
+
+    /**
+     * 已加载的用户词典
+     */
+    String[] getUserDictPaths();
+
+    /**
+     * 重新加载主词典与全部用户词典，加载期间分词不受影响
+     */
+    void reload();
+
+    /**
+     * 压缩词典树，移除已删除的词
+     */
+    void compact();
+}
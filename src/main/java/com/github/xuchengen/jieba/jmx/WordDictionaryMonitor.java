@@ -0,0 +1,68 @@
+package com.github.xuchengen.jieba.jmx;
+
+import com.github.xuchengen.jieba.WordDictionary;
+
+import java.util.List;
+
+/**
+ * <p>词典MBean实现，直接读取{@link WordDictionary}单例的状态
+ **/
+public class WordDictionaryMonitor implements WordDictionaryMXBean {
+
+    private final WordDictionary dictionary;
+
+    public WordDictionaryMonitor(WordDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int getWordCount() {
+        return dictionary.getWordCount();
+    }
+
+    @Override
+    public long getEstimatedTrieBytes() {
+        return dictionary.getEstimatedTrieBytes();
+    }
+
+    @Override
+    public long getMainDictLoadMillis() {
+        return dictionary.getMainDictLoadMillis();
+    }
+
+    @Override
+    public long getUserDictLoadMillis() {
+        return dictionary.getUserDictLoadMillis();
+    }
+
+    @Override
+    public long getLastReloadMillis() {
+        return dictionary.getLastReloadMillis();
+    }
+
+    @Override
+    public long getLastReloadTime() {
+        return dictionary.getLastReloadTime();
+    }
+
+    @Override
+    public int getTombstoneCount() {
+        return dictionary.getTombstoneCount();
+    }
+
+    @Override
+    public String[] getUserDictPaths() {
+        List<String> paths = dictionary.getUserDictPaths();
+        return paths.toArray(new String[0]);
+    }
+
+    @Override
+    public void reload() {
+        dictionary.reload();
+    }
+
+    @Override
+    public void compact() {
+        dictionary.compact();
+    }
+}
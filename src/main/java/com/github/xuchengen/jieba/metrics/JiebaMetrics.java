@@ -0,0 +1,25 @@
+package com.github.xuchengen.jieba.metrics;
+
+/**
+ * <p>全局埋点入口，{@link com.github.xuchengen.jieba.JiebaSegmenter}、
+ * {@link com.github.xuchengen.jieba.viterbi.FinalSeg}与{@link com.github.xuchengen.jieba.tfidf.TFIDFAnalyzer}
+ * 均通过这里取得当前的{@link MetricsRecorder}，默认不记录
+ **/
+public final class JiebaMetrics {
+
+    private static volatile MetricsRecorder recorder = MetricsRecorder.NOOP;
+
+    private JiebaMetrics() {
+    }
+
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * 安装埋点实现，传入null表示关闭
+     */
+    public static void setRecorder(MetricsRecorder recorder) {
+        JiebaMetrics.recorder = recorder == null ? MetricsRecorder.NOOP : recorder;
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.xuchengen.jieba.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>无锁直方图
+ * <p>与HdrHistogram相同的对数-线性分桶：每个2的幂区间等分为32个桶，相对误差不超过1/32，
+ * 0到63的值精确记录。所有桶共1888个，记录一次只做一次原子自增，可被任意多线程同时写入。
+ **/
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * 记录一个非负值，负值按0记录
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.getAndIncrement(bucket(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * 计算分位数
+     *
+     * @param quantile 0到1之间，如0.99
+     * @return 分位数所在桶的中值，没有数据时返回0
+     */
+    public long getValueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(middle(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * 清空
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * 累加另一个直方图的数据
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) counts.addAndGet(i, count);
+        }
+        total.add(other.getCount());
+        sum.add(other.getSum());
+        max.accumulate(other.getMax());
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_COUNT;
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < 2 * SUB_COUNT) return bucket;
+        int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        int sub = bucket & (SUB_COUNT - 1);
+        return (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    private static long middle(int bucket) {
+        long lower = lowerBound(bucket);
+        if (bucket < 2 * SUB_COUNT) return lower;
+        long width = 1L << ((bucket >>> SUB_BITS) - 1);
+        return lower + width / 2;
+    }
+}
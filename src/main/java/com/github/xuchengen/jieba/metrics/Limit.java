@@ -0,0 +1,19 @@
+package com.github.xuchengen.jieba.metrics;
+
+/**
+ * <p>分词时触发的保护限制
+ **/
+public enum Limit {
+    /**
+     * 连续中文串超过最大长度，按固定长度切开后分别处理
+     */
+    SPAN,
+    /**
+     * 交给HMM的连续单字超过最大长度，按固定长度切开后分别解码
+     */
+    HMM,
+    /**
+     * 单次调用的步数预算耗尽，其余连续单字不再经过HMM，直接按单字输出
+     */
+    BUDGET
+}
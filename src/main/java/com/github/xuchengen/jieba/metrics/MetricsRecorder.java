@@ -0,0 +1,49 @@
+package com.github.xuchengen.jieba.metrics;
+
+/**
+ * <p>分词流程埋点接口
+ * <p>埋点处先调用{@link #startTime()}，阶段结束时调用{@link #record}。
+ * 默认的{@link #NOOP}不读取时钟、不记录任何数据，未启用时埋点可被JIT完全内联消除。
+ **/
+public interface MetricsRecorder {
+
+    /**
+     * 不做任何记录的实现
+     */
+    MetricsRecorder NOOP = new MetricsRecorder() {
+        @Override
+        public long startTime() {
+            return 0L;
+        }
+
+        @Override
+        public void record(Stage stage, long startTime, int inputLength, int tokens) {
+        }
+    };
+
+    /**
+     * 阶段开始时调用
+     *
+     * @return 开始时间（纳秒），传回{@link #record}
+     */
+    long startTime();
+
+    /**
+     * 阶段结束时调用
+     *
+     * @param stage       阶段
+     * @param startTime   {@link #startTime()}的返回值
+     * @param inputLength 输入字符数
+     * @param tokens      产出的词数，阶段不产出词时为0
+     */
+    void record(Stage stage, long startTime, int inputLength, int tokens);
+
+    /**
+     * 触发保护限制时调用
+     *
+     * @param limit       触发的限制
+     * @param inputLength 受影响的输入字符数
+     */
+    default void limit(Limit limit, int inputLength) {
+    }
+}
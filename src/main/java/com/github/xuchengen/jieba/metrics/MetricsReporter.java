@@ -0,0 +1,16 @@
+package com.github.xuchengen.jieba.metrics;
+
+import java.util.Map;
+
+/**
+ * <p>统计数据输出接口，由使用方桥接到自己的监控系统
+ **/
+public interface MetricsReporter {
+
+    /**
+     * 输出统计快照
+     *
+     * @param snapshots 各阶段的累计统计，只包含发生过调用的阶段
+     */
+    void report(Map<Stage, StageSnapshot> snapshots);
+}
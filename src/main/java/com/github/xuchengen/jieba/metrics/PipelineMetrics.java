@@ -0,0 +1,119 @@
+package com.github.xuchengen.jieba.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>默认的埋点实现
+ * <p>每个阶段一个{@link LatencyHistogram}记录耗时分布，输入字符数与产出词数使用分段计数的{@link LongAdder}，
+ * 多线程并发记录时互不阻塞。
+ * <pre>
+ * PipelineMetrics metrics = new PipelineMetrics();
+ * JiebaMetrics.setRecorder(metrics);
+ * ...
+ * metrics.report(reporter);
+ * </pre>
+ **/
+public class PipelineMetrics implements MetricsRecorder {
+
+    private final Stage[] stages = Stage.values();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[stages.length];
+    private final LongAdder[] inputChars = new LongAdder[stages.length];
+    private final LongAdder[] tokens = new LongAdder[stages.length];
+    private final LongAdder[] limits = new LongAdder[Limit.values().length];
+
+    public PipelineMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            inputChars[i] = new LongAdder();
+            tokens[i] = new LongAdder();
+        }
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public long startTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void record(Stage stage, long startTime, int inputLength, int tokenCount) {
+        int i = stage.ordinal();
+        latencies[i].record(System.nanoTime() - startTime);
+        inputChars[i].add(inputLength);
+        if (tokenCount != 0) tokens[i].add(tokenCount);
+    }
+
+    @Override
+    public void limit(Limit limit, int inputLength) {
+        limits[limit.ordinal()].increment();
+    }
+
+    /**
+     * 获取某一保护限制的触发次数
+     */
+    public long getLimitCount(Limit limit) {
+        return limits[limit.ordinal()].sum();
+    }
+
+    /**
+     * 获取某一阶段的耗时直方图
+     */
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    /**
+     * 获取某一阶段的累计输入字符数
+     */
+    public long getInputChars(Stage stage) {
+        return inputChars[stage.ordinal()].sum();
+    }
+
+    /**
+     * 获取某一阶段的累计产出词数
+     */
+    public long getTokens(Stage stage) {
+        return tokens[stage.ordinal()].sum();
+    }
+
+    /**
+     * 生成当前的统计快照
+     */
+    public Map<Stage, StageSnapshot> snapshot() {
+        Map<Stage, StageSnapshot> snapshots = new EnumMap<>(Stage.class);
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram latency = latencies[i];
+            long count = latency.getCount();
+            if (count == 0) continue;
+            snapshots.put(stages[i], new StageSnapshot(stages[i], count, inputChars[i].sum(), tokens[i].sum(),
+                    latency.getSum(), latency.getValueAtQuantile(0.5), latency.getValueAtQuantile(0.99),
+                    latency.getValueAtQuantile(0.999), latency.getMax()));
+        }
+        return snapshots;
+    }
+
+    /**
+     * 将当前的统计快照交给reporter输出
+     */
+    public void report(MetricsReporter reporter) {
+        reporter.report(snapshot());
+    }
+
+    /**
+     * 清空全部统计
+     */
+    public void reset() {
+        for (int i = 0; i < stages.length; i++) {
+            latencies[i].reset();
+            inputChars[i].reset();
+            tokens[i].reset();
+        }
+        for (LongAdder limit : limits) {
+            limit.reset();
+        }
+    }
+}
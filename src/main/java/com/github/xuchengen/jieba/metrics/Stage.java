@@ -0,0 +1,27 @@
+package com.github.xuchengen.jieba.metrics;
+
+/**
+ * <p>分词流程的阶段
+ **/
+public enum Stage {
+    /**
+     * 基于词典树构造有向无环图
+     */
+    DAG,
+    /**
+     * 动态规划计算最大概率路径
+     */
+    ROUTE,
+    /**
+     * HMM（Viterbi）解码未登录词，每次解码记录一次
+     */
+    HMM,
+    /**
+     * 一次完整的句子切分，包含上面三个阶段
+     */
+    SEGMENT,
+    /**
+     * 一次完整的关键词提取，包含分词与打分
+     */
+    KEYWORD
+}
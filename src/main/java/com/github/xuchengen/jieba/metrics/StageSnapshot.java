@@ -0,0 +1,81 @@
+package com.github.xuchengen.jieba.metrics;
+
+/**
+ * <p>某一阶段的累计统计快照，耗时单位为纳秒
+ **/
+public class StageSnapshot {
+
+    private final Stage stage;
+    private final long count;
+    private final long inputChars;
+    private final long tokens;
+    private final long totalNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    public StageSnapshot(Stage stage, long count, long inputChars, long tokens, long totalNanos,
+                         long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.stage = stage;
+        this.count = count;
+        this.inputChars = inputChars;
+        this.tokens = tokens;
+        this.totalNanos = totalNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * 调用次数，HMM阶段即HMM解码次数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 累计输入字符数
+     */
+    public long getInputChars() {
+        return inputChars;
+    }
+
+    /**
+     * 累计产出词数
+     */
+    public long getTokens() {
+        return tokens;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + stage + ", count=" + count + ", chars=" + inputChars + ", tokens=" + tokens
+                + ", p50=" + p50Nanos + "ns, p99=" + p99Nanos + "ns, p999=" + p999Nanos + "ns, max=" + maxNanos + "ns]";
+    }
+}
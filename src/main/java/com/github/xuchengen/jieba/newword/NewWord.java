@@ -0,0 +1,31 @@
+package com.github.xuchengen.jieba.newword;
+
+/**
+ * <p>新词候选
+ **/
+public class NewWord {
+
+    private final String word;
+    private final long count;
+
+    public NewWord(String word, long count) {
+        this.word = word;
+        this.count = count;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * 估计的出现次数，不低于真实次数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return word + " " + count;
+    }
+}
@@ -0,0 +1,259 @@
+package com.github.xuchengen.jieba.newword;
+
+import com.github.xuchengen.jieba.CharacterUtil;
+import com.github.xuchengen.jieba.Hashing;
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.WordDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>未登录词（新词）收集
+ * <p>交给HMM的字串都是词典未覆盖的部分，Viterbi从中切出的多字词即新词候选。
+ * 通过{@link com.github.xuchengen.jieba.JiebaSegmenter#setNewWordCollector(NewWordCollector)}挂到分词器上后，
+ * 所有线程切出的候选都计入这里。
+ * <p>计数使用Count-Min Sketch：每个候选在4行计数器中各按哈希原子地加一，以各行的最小值作为次数的估计，
+ * 估计只会偏高；不同的词落在不同的计数器上，线程之间几乎没有争用。
+ * 只有估计次数能进入前capacity名的候选才会被记入候选表，候选表超过两倍容量时由恰好拿到锁的线程裁剪，
+ * 其他线程不等待。已在候选表中的词只用CAS更新其计数器中的估计，不再写候选表，高频词不会争用表的同一个桶。
+ * 内存占用与语料大小无关。
+ * <p>定期导出的文件为用户词典格式（<code>词 次数</code>），可直接用
+ * {@link WordDictionary#loadUserDict(Path)}加载，让这些文本不再经过HMM。
+ **/
+public class NewWordCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(NewWordCollector.class);
+
+    private static final int DEPTH = 4;
+
+    private final int capacity;
+    private final int widthMask;
+    private final AtomicLongArray sketch;
+    // 候选词及其估计次数
+    private final ConcurrentHashMap<String, AtomicLong> candidates = new ConcurrentHashMap<>();
+    private final ReentrantLock pruneLock = new ReentrantLock();
+    // 进入候选表所需的最低估计次数，裁剪后更新
+    private volatile long threshold;
+    private final LongAdder offered = new LongAdder();
+    private final WordDictionary wordDict = WordDictionary.getInstance();
+
+    private ScheduledExecutorService exporter;
+
+    /**
+     * 使用默认容量：保留1万个候选，每行计数器64K个
+     */
+    public NewWordCollector() {
+        this(10000, 1 << 16);
+    }
+
+    /**
+     * @param capacity 保留的候选数
+     * @param width    每行计数器数，向上取整为2的幂；越大估计越准
+     */
+    public NewWordCollector(int capacity, int width) {
+        this.capacity = Math.max(1, capacity);
+        int size = Integer.highestOneBit(Math.max(16, width) - 1) << 1;
+        this.widthMask = size - 1;
+        this.sketch = new AtomicLongArray(DEPTH * size);
+    }
+
+    /**
+     * 计入一个HMM切出的词，单字词、含非中文字符的词与词典中已有的词被忽略
+     *
+     * @param word 词
+     */
+    public void offer(String word) {
+        if (word.length() < 2) return;
+        for (int i = 0; i < word.length(); i++) {
+            if (!CharacterUtil.isChineseLetter(word.charAt(i))) return;
+        }
+        if (wordDict.containsWord(word)) return;
+        offered.increment();
+
+        long hash = Hashing.hash(word, 0x9E3779B97F4A7C15L);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+            estimate = Math.min(estimate, sketch.incrementAndGet(index));
+        }
+
+        AtomicLong stored = candidates.get(word);
+        if (stored != null) {
+            raise(stored, estimate);
+            return;
+        }
+        if (estimate > threshold || candidates.size() < capacity) {
+            stored = candidates.putIfAbsent(word, new AtomicLong(estimate));
+            if (stored != null) raise(stored, estimate);
+            if (candidates.size() > capacity * 2 && pruneLock.tryLock()) {
+                try {
+                    prune();
+                } finally {
+                    pruneLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 估计只增不减，只在新的估计更大时写入
+     */
+    private static void raise(AtomicLong stored, long estimate) {
+        long current;
+        while ((current = stored.get()) < estimate && !stored.compareAndSet(current, estimate)) {
+            // 其他线程已写入，重新比较
+        }
+    }
+
+    /**
+     * 估计次数最高的n个候选，按次数降序，排除此时已在词典中的词
+     *
+     * @param n        个数
+     * @param minCount 最低估计次数
+     */
+    public List<NewWord> top(int n, long minCount) {
+        List<NewWord> words = new ArrayList<>();
+        for (Map.Entry<String, AtomicLong> entry : candidates.entrySet()) {
+            long count = entry.getValue().get();
+            if (count >= minCount && !wordDict.containsWord(entry.getKey())) {
+                words.add(new NewWord(entry.getKey(), count));
+            }
+        }
+        words.sort((a, b) -> a.getCount() != b.getCount() ? Long.compare(b.getCount(), a.getCount())
+                : a.getWord().compareTo(b.getWord()));
+        return words.size() > n ? new ArrayList<>(words.subList(0, n)) : words;
+    }
+
+    /**
+     * 把前n个候选以用户词典格式写入文件，先写临时文件再替换，读取方不会看到写了一半的文件
+     *
+     * @param path     文件
+     * @param n        个数
+     * @param minCount 最低估计次数
+     */
+    public void export(Path path, int n, long minCount) {
+        List<NewWord> words = top(n, minCount);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (NewWord word : words) {
+                    writer.write(word.getWord());
+                    writer.write(' ');
+                    writer.write(Long.toString(word.getCount()));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: export new words failure!", path), e);
+            throw new JiebaException(e);
+        }
+        log.debug(String.format(Locale.getDefault(), "%s: %d new words exported", path, words.size()));
+    }
+
+    /**
+     * 启动后台线程定期导出，已启动时先停止原来的
+     *
+     * @param path     文件
+     * @param n        个数
+     * @param minCount 最低估计次数
+     * @param period   周期
+     * @param unit     周期的单位
+     */
+    public synchronized void startExport(Path path, int n, long minCount, long period, TimeUnit unit) {
+        stopExport();
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jieba-new-word-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleWithFixedDelay(() -> {
+            try {
+                export(path, n, minCount);
+            } catch (JiebaException ignored) {
+                // 已记录日志，下个周期重试
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * 停止定期导出
+     */
+    public synchronized void stopExport() {
+        if (exporter != null) {
+            exporter.shutdownNow();
+            exporter = null;
+        }
+    }
+
+    /**
+     * 已计入的候选次数（不含被忽略的词）
+     */
+    public long getOfferedCount() {
+        return offered.sum();
+    }
+
+    /**
+     * 候选表中的词数
+     */
+    public int getCandidateCount() {
+        return candidates.size();
+    }
+
+    /**
+     * 清空计数与候选
+     */
+    public void reset() {
+        pruneLock.lock();
+        try {
+            for (int i = 0; i < sketch.length(); i++) sketch.set(i, 0);
+            candidates.clear();
+            threshold = 0;
+            offered.reset();
+        } finally {
+            pruneLock.unlock();
+        }
+    }
+
+    /**
+     * 只保留估计次数最高的capacity个候选
+     */
+    private void prune() {
+        List<Map.Entry<String, AtomicLong>> entries = new ArrayList<>(candidates.entrySet());
+        if (entries.size() <= capacity) return;
+        // 先取快照，排序期间计数仍可能被更新
+        long[] counts = new long[entries.size()];
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            counts[i] = entries.get(i).getValue().get();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+        threshold = counts[order[capacity - 1]];
+        for (int i = capacity; i < order.length; i++) {
+            Map.Entry<String, AtomicLong> entry = entries.get(order[i]);
+            candidates.remove(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.github.xuchengen.jieba.server;
+
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.tfidf.Keyword;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>二进制协议与HTTP的编解码
+ * <p>二进制请求帧：<code>int32 长度 | byte 操作 | [int16 topN] | UTF-8文本</code>，长度不含自身，
+ * 操作为1切分（sentenceProcess）、2搜索模式、3索引模式、4 TFIDF关键词、5 TextRank关键词，仅关键词操作带topN。
+ * <p>二进制响应帧：<code>int32 长度 | byte 状态 | 内容</code>，状态为0成功、1请求错误、2繁忙、3内部错误。
+ * 分词成功时内容为<code>int32 词数</code>，随后每个词为<code>int32 开始 | int32 结束 | uint16 字节数 | UTF-8词</code>，
+ * 偏移为文本的UTF-16字符偏移；关键词成功时每个词为<code>float64 权重 | uint16 字节数 | UTF-8词</code>；
+ * 失败时内容为<code>uint16 字节数 | UTF-8错误信息</code>。所有整数均为大端序。
+ **/
+final class Codec {
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_BAD_REQUEST = 1;
+    static final byte STATUS_BUSY = 2;
+    static final byte STATUS_ERROR = 3;
+
+    private Codec() {
+    }
+
+    /**
+     * 解析一个二进制请求帧的内容（不含长度）
+     *
+     * @return 请求，格式错误时抛出IllegalArgumentException
+     */
+    static Exchange decodeFrame(Connection connection, ByteBuffer frame) {
+        if (!frame.hasRemaining()) throw new IllegalArgumentException("empty frame");
+        int code = frame.get();
+        if (code < 1 || code > Exchange.Op.values().length) throw new IllegalArgumentException("unknown op " + code);
+        Exchange.Op op = Exchange.Op.values()[code - 1];
+        int topN = 0;
+        if (op == Exchange.Op.TFIDF || op == Exchange.Op.TEXTRANK) {
+            if (frame.remaining() < 2) throw new IllegalArgumentException("missing topN");
+            topN = frame.getShort() & 0xffff;
+        }
+        String text = StandardCharsets.UTF_8.decode(frame).toString();
+        return new Exchange(connection, op, text, topN, false, true);
+    }
+
+    static byte[] encodeTokens(Exchange exchange, List<SegToken> tokens) {
+        if (exchange.http) {
+            StringBuilder json = new StringBuilder(tokens.size() * 32 + 16).append("{\"tokens\":[");
+            for (int i = 0; i < tokens.size(); i++) {
+                SegToken token = tokens.get(i);
+                if (i > 0) json.append(',');
+                json.append("{\"word\":");
+                appendJsonString(json, token.word);
+                json.append(",\"start\":").append(token.startOffset).append(",\"end\":").append(token.endOffset).append('}');
+            }
+            return httpResponse(200, "OK", json.append("]}").toString(), exchange.keepAlive);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(tokens.size() * 16 + 16);
+            DataOutputStream out = beginFrame(bytes, STATUS_OK);
+            out.writeInt(tokens.size());
+            for (SegToken token : tokens) {
+                out.writeInt(token.startOffset);
+                out.writeInt(token.endOffset);
+                writeString(out, token.word);
+            }
+            return endFrame(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] encodeKeywords(Exchange exchange, List<Keyword> keywords) {
+        if (exchange.http) {
+            StringBuilder json = new StringBuilder(keywords.size() * 32 + 16).append("{\"keywords\":[");
+            for (int i = 0; i < keywords.size(); i++) {
+                Keyword keyword = keywords.get(i);
+                if (i > 0) json.append(',');
+                json.append("{\"word\":");
+                appendJsonString(json, keyword.getName());
+                json.append(",\"score\":");
+                appendJsonNumber(json, keyword.getTfidfvalue());
+                json.append('}');
+            }
+            return httpResponse(200, "OK", json.append("]}").toString(), exchange.keepAlive);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(keywords.size() * 16 + 16);
+            DataOutputStream out = beginFrame(bytes, STATUS_OK);
+            out.writeInt(keywords.size());
+            for (Keyword keyword : keywords) {
+                out.writeDouble(keyword.getTfidfvalue());
+                writeString(out, keyword.getName());
+            }
+            return endFrame(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 编码错误响应
+     *
+     * @param http   是否为HTTP响应
+     * @param status 二进制协议的状态
+     */
+    static byte[] encodeError(boolean http, boolean keepAlive, byte status, String message) {
+        if (http) {
+            int code = status == STATUS_BAD_REQUEST ? 400 : status == STATUS_BUSY ? 503 : 500;
+            String reason = status == STATUS_BAD_REQUEST ? "Bad Request"
+                    : status == STATUS_BUSY ? "Service Unavailable" : "Internal Server Error";
+            StringBuilder json = new StringBuilder("{\"error\":");
+            appendJsonString(json, message);
+            return httpResponse(code, reason, json.append('}').toString(), keepAlive);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = beginFrame(bytes, status);
+            writeString(out, message == null ? "" : message);
+            return endFrame(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataOutputStream beginFrame(ByteArrayOutputStream bytes, byte status) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        // 长度占位，结束时回填
+        out.writeInt(0);
+        out.writeByte(status);
+        return out;
+    }
+
+    private static byte[] endFrame(ByteArrayOutputStream bytes) {
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - 4;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    /**
+     * 写入uint16字节数与UTF-8字节，超长时在字符边界处截断，不会截断多字节字符
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length > 0xffff) {
+            length = 0xffff;
+            // 截断处是后续字节（10xxxxxx）时退到该字符的首字节之前
+            while (length > 0 && (bytes[length] & 0xc0) == 0x80) length--;
+        }
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * 解析的HTTP请求头
+     */
+    static final class HttpRequest {
+        String method;
+        String path;
+        Map<String, String> query = new HashMap<>();
+        int contentLength;
+        boolean keepAlive;
+    }
+
+    /**
+     * 解析HTTP请求头
+     *
+     * @param head 请求行与请求头，不含结尾的空行
+     */
+    static HttpRequest parseHttpHead(String head) {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3) throw new IllegalArgumentException("malformed request line");
+        HttpRequest request = new HttpRequest();
+        request.method = requestLine[0];
+        String target = requestLine[1];
+        int question = target.indexOf('?');
+        request.path = question < 0 ? target : target.substring(0, question);
+        if (question >= 0) {
+            for (String pair : target.substring(question + 1).split("&")) {
+                if (pair.isEmpty()) continue;
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                request.query.put(urlDecode(key), urlDecode(value));
+            }
+        }
+        boolean http11 = "HTTP/1.1".equals(requestLine[2]);
+        request.keepAlive = http11;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon < 0) continue;
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if ("content-length".equals(name)) {
+                request.contentLength = Integer.parseInt(value);
+                if (request.contentLength < 0) throw new IllegalArgumentException("negative content length");
+            } else if ("connection".equals(name)) {
+                request.keepAlive = http11 ? !"close".equalsIgnoreCase(value) : "keep-alive".equalsIgnoreCase(value);
+            } else if ("transfer-encoding".equals(name)) {
+                throw new IllegalArgumentException("transfer-encoding is not supported, use content-length");
+            }
+        }
+        return request;
+    }
+
+    private static String urlDecode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] httpResponse(int code, String reason, String json, boolean keepAlive) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + code + " " + reason + "\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] response = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, response, 0, headBytes.length);
+        System.arraycopy(body, 0, response, headBytes.length, body.length);
+        return response;
+    }
+
+    /**
+     * JSON没有NaN与无穷大，NaN写为0，无穷大写为同号的最大有限值
+     */
+    static void appendJsonNumber(StringBuilder json, double value) {
+        if (Double.isNaN(value)) {
+            json.append(0.0);
+        } else if (Double.isInfinite(value)) {
+            json.append(value > 0 ? Double.MAX_VALUE : -Double.MAX_VALUE);
+        } else {
+            json.append(value);
+        }
+    }
+
+    static void appendJsonString(StringBuilder json, String value) {
+        if (value == null) value = "";
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.xuchengen.jieba.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>一个客户端连接，除{@link #scheduled}外只由IO线程访问
+ * <p>首个字节决定协议：以HTTP方法开头的按HTTP处理，否则按二进制帧处理。
+ * 同一连接上的请求可以流水线发送，响应严格按请求顺序返回
+ **/
+final class Connection {
+
+    private static final int MAX_HEAD = 8 * 1024;
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    private final int maxFrame;
+
+    private ByteBuffer input = ByteBuffer.allocate(4096);
+    private final ArrayDeque<Exchange> pending = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    // 0未知，1二进制，2 HTTP
+    private int protocol;
+    // 正在等待请求体的HTTP请求
+    private Codec.HttpRequest httpRequest;
+    private boolean closeAfterFlush;
+    private boolean inputClosed;
+
+    // 是否已在待写回队列中，工作线程与IO线程共用
+    final AtomicBoolean scheduled = new AtomicBoolean();
+
+    Connection(SocketChannel channel, SelectionKey key, int maxFrame) {
+        this.channel = channel;
+        this.key = key;
+        this.maxFrame = maxFrame;
+    }
+
+    /**
+     * 读取数据
+     *
+     * @return 对端是否已关闭
+     */
+    boolean read() throws IOException {
+        if (!input.hasRemaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(input.capacity() * 2);
+            input.flip();
+            grown.put(input);
+            input = grown;
+        }
+        return channel.read(input) < 0;
+    }
+
+    /**
+     * 从已读取的数据中解析出完整的请求
+     *
+     * @param requests 输出新请求，按到达顺序
+     * @param limit    最多解析的请求数
+     */
+    void parse(List<Exchange> requests, int limit) {
+        input.flip();
+        try {
+            while (requests.size() < limit && !closeAfterFlush) {
+                if (protocol == 0) {
+                    if (input.remaining() < 4) break;
+                    protocol = isHttp(input) ? 2 : 1;
+                }
+                Exchange exchange = protocol == 1 ? parseFrame() : parseHttp();
+                if (exchange == null) break;
+                requests.add(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            // 无法继续解析，回复错误后关闭连接
+            requests.add(fail(e.getMessage()));
+        } finally {
+            input.compact();
+        }
+    }
+
+    private Exchange parseFrame() {
+        if (input.remaining() < 4) return null;
+        int length = input.getInt(input.position());
+        if (length <= 0 || length > maxFrame) throw new IllegalArgumentException("invalid frame length " + length);
+        if (input.remaining() < 4 + length) {
+            ensureCapacity(4 + length);
+            return null;
+        }
+        input.position(input.position() + 4);
+        ByteBuffer frame = input.slice();
+        frame.limit(length);
+        input.position(input.position() + length);
+        return Codec.decodeFrame(this, frame);
+    }
+
+    private Exchange parseHttp() {
+        if (httpRequest == null) {
+            int end = indexOfHeadEnd();
+            if (end < 0) {
+                if (input.remaining() > MAX_HEAD) throw new IllegalArgumentException("request head too large");
+                return null;
+            }
+            byte[] head = new byte[end - input.position()];
+            input.get(head);
+            input.position(input.position() + 4);
+            httpRequest = Codec.parseHttpHead(new String(head, StandardCharsets.ISO_8859_1));
+            if (httpRequest.contentLength > maxFrame) throw new IllegalArgumentException("request body too large");
+        }
+        Codec.HttpRequest request = httpRequest;
+        if (input.remaining() < request.contentLength) {
+            ensureCapacity(request.contentLength);
+            return null;
+        }
+        byte[] body = new byte[request.contentLength];
+        input.get(body);
+        httpRequest = null;
+
+        String text = request.query.get("text");
+        if (body.length > 0) text = new String(body, StandardCharsets.UTF_8);
+        Exchange.Op op;
+        int topN = 0;
+        try {
+            if ("/segment".equals(request.path)) {
+                op = Exchange.Op.valueOf(request.query.getOrDefault("mode", "search").toUpperCase(Locale.ROOT));
+                if (op == Exchange.Op.TFIDF || op == Exchange.Op.TEXTRANK) throw new IllegalArgumentException();
+            } else if ("/analyze".equals(request.path)) {
+                op = Exchange.Op.valueOf(request.query.getOrDefault("method", "tfidf").toUpperCase(Locale.ROOT));
+                if (op != Exchange.Op.TFIDF && op != Exchange.Op.TEXTRANK) throw new IllegalArgumentException();
+                topN = Integer.parseInt(request.query.getOrDefault("topN", "10"));
+            } else {
+                return answered(request.keepAlive, "unknown path " + request.path);
+            }
+        } catch (IllegalArgumentException e) {
+            return answered(request.keepAlive, "invalid parameters");
+        }
+        if (text == null) return answered(request.keepAlive, "missing text");
+        if (!request.keepAlive) closeAfterFlush = true;
+        return new Exchange(this, op, text, topN, true, request.keepAlive);
+    }
+
+    /**
+     * 请求本身有误，不交给工作线程，直接生成错误响应
+     */
+    private Exchange answered(boolean keepAlive, String message) {
+        if (!keepAlive) closeAfterFlush = true;
+        Exchange exchange = new Exchange(this, null, null, 0, true, keepAlive);
+        exchange.complete(Codec.encodeError(true, keepAlive, Codec.STATUS_BAD_REQUEST, message));
+        return exchange;
+    }
+
+    private Exchange fail(String message) {
+        closeAfterFlush = true;
+        Exchange exchange = new Exchange(this, null, null, 0, protocol == 2, false);
+        exchange.complete(Codec.encodeError(protocol == 2, false, Codec.STATUS_BAD_REQUEST, message));
+        return exchange;
+    }
+
+    private int indexOfHeadEnd() {
+        for (int i = input.position(); i + 3 < input.limit(); i++) {
+            if (input.get(i) == '\r' && input.get(i + 1) == '\n' && input.get(i + 2) == '\r' && input.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (input.capacity() >= needed) return;
+        // 读模式下扩容，之后的compact会保留未读数据
+        ByteBuffer grown = ByteBuffer.allocate(Integer.highestOneBit(needed - 1) << 1);
+        grown.put(input);
+        grown.flip();
+        input = grown;
+    }
+
+    private static boolean isHttp(ByteBuffer buffer) {
+        int p = buffer.position();
+        return (buffer.get(p) == 'G' && buffer.get(p + 1) == 'E' && buffer.get(p + 2) == 'T' && buffer.get(p + 3) == ' ')
+                || (buffer.get(p) == 'P' && buffer.get(p + 1) == 'O' && buffer.get(p + 2) == 'S' && buffer.get(p + 3) == 'T');
+    }
+
+    /**
+     * 对端已关闭写方向，写完已接收请求的响应后关闭连接
+     */
+    void shutdownInput() {
+        inputClosed = true;
+    }
+
+    boolean isInputClosed() {
+        return inputClosed;
+    }
+
+    void enqueue(Exchange exchange) {
+        pending.add(exchange);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 把已完成的响应按顺序移入写缓冲并尽量写出
+     *
+     * @return 连接是否应当关闭
+     */
+    boolean flush() throws IOException {
+        Exchange head;
+        while ((head = pending.peek()) != null && head.getResponse() != null) {
+            output.add(ByteBuffer.wrap(head.getResponse()));
+            pending.poll();
+        }
+        ByteBuffer buffer;
+        while ((buffer = output.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) break;
+            output.poll();
+        }
+        return (closeAfterFlush || inputClosed) && pending.isEmpty() && output.isEmpty();
+    }
+
+    boolean hasOutput() {
+        return !output.isEmpty();
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.xuchengen.jieba.server;
+
+/**
+ * <p>一次请求与其响应
+ * <p>由IO线程创建并按到达顺序挂在连接上，工作线程填入响应，IO线程按顺序写回
+ **/
+final class Exchange {
+
+    /**
+     * 请求的操作
+     */
+    enum Op {
+        CUT,
+        SEARCH,
+        INDEX,
+        TFIDF,
+        TEXTRANK
+    }
+
+    final Connection connection;
+    final Op op;
+    final String text;
+    final int topN;
+    final boolean http;
+    // HTTP响应后是否保持连接
+    final boolean keepAlive;
+
+    private volatile byte[] response;
+
+    Exchange(Connection connection, Op op, String text, int topN, boolean http, boolean keepAlive) {
+        this.connection = connection;
+        this.op = op;
+        this.text = text;
+        this.topN = topN;
+        this.http = http;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * 已编码的响应，未完成时为null
+     */
+    byte[] getResponse() {
+        return response;
+    }
+
+    void complete(byte[] response) {
+        this.response = response;
+    }
+}
@@ -0,0 +1,415 @@
+package com.github.xuchengen.jieba.server;
+
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.tfidf.TFIDFAnalyzer;
+import com.github.xuchengen.jieba.tfidf.TextRankAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>内嵌的分词服务
+ * <p>在本机端口上同时提供长度前缀的二进制协议（格式见{@link Codec}）与HTTP，使非JVM的服务可以共用一个已预热的进程，
+ * 不必各自加载词典。不依赖任何第三方库。
+ * <p>HTTP接口：
+ * <ul>
+ * <li><code>/segment?mode=cut|search|index</code>，返回<code>{"tokens":[{"word","start","end"}]}</code></li>
+ * <li><code>/analyze?method=tfidf|textrank&amp;topN=10</code>，返回<code>{"keywords":[{"word","score"}]}</code></li>
+ * </ul>
+ * 文本取自请求体（UTF-8），没有请求体时取自<code>text</code>参数；仅支持Content-Length，不支持分块传输。
+ * <p>一个IO线程负责接收连接、读取与解析请求、按请求顺序写回响应；请求进入有界队列，
+ * 工作线程每次取出一个请求后再顺带取出队列中已积压的请求（至多maxBatch个）成批处理，
+ * 处理完一批才唤醒一次IO线程，高并发下唤醒与线程切换的开销由一批请求分摊。
+ * <p>背压：每个连接在途的请求数达到上限后不再读取该连接，由TCP流控让客户端减速；
+ * 队列已满时直接回复繁忙（二进制状态2，HTTP 503），不会无限堆积。
+ * <pre>
+ * java -cp jieba-analysis.jar com.github.xuchengen.jieba.server.SegmentServer -p 8090 -t 8
+ * curl --data-binary '这是一个伸手不见五指的黑夜' 'http://127.0.0.1:8090/segment?mode=search'
+ * </pre>
+ **/
+public class SegmentServer {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentServer.class);
+
+    private final JiebaSegmenter segmenter;
+    private final TFIDFAnalyzer tfidfAnalyzer;
+    private final TextRankAnalyzer textRankAnalyzer;
+
+    private String host = "127.0.0.1";
+    private int port = 8090;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 4096;
+    private int maxBatch = 64;
+    private int maxPendingPerConnection = 128;
+    private int maxFrameBytes = 16 << 20;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean running;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private BlockingQueue<Exchange> queue;
+    private final ConcurrentLinkedQueue<Connection> ready = new ConcurrentLinkedQueue<>();
+    private Thread ioThread;
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    public SegmentServer() {
+        this(new JiebaSegmenter());
+    }
+
+    public SegmentServer(JiebaSegmenter segmenter) {
+        this.segmenter = segmenter;
+        this.tfidfAnalyzer = new TFIDFAnalyzer(segmenter);
+        this.textRankAnalyzer = new TextRankAnalyzer(segmenter);
+    }
+
+    /**
+     * 监听地址，默认只监听本机回环地址
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 监听端口，0表示由系统分配，实际端口见{@link #getPort()}
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * 等待处理的请求数上限，超出时回复繁忙
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * 工作线程一次处理的请求数上限
+     */
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    /**
+     * 单个连接在途的请求数上限，达到后暂停读取该连接
+     */
+    public void setMaxPendingPerConnection(int maxPendingPerConnection) {
+        this.maxPendingPerConnection = Math.max(1, maxPendingPerConnection);
+    }
+
+    /**
+     * 单个请求（二进制帧或HTTP请求体）的字节数上限，超出时关闭连接
+     */
+    public void setMaxFrameBytes(int maxFrameBytes) {
+        this.maxFrameBytes = Math.max(1024, maxFrameBytes);
+    }
+
+    public TFIDFAnalyzer getTfidfAnalyzer() {
+        return tfidfAnalyzer;
+    }
+
+    public TextRankAnalyzer getTextRankAnalyzer() {
+        return textRankAnalyzer;
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getPort() {
+        return serverChannel == null ? port : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * 已处理的请求数（不含被拒绝的）
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * 工作线程处理的批次数，与请求数之比即平均批大小
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * 因队列已满被拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * 预热并启动服务，返回时已开始监听
+     */
+    public synchronized void start() {
+        if (running) return;
+        // 首次分析时才加载的IDF与HMM模型在这里加载，避免第一个请求承担
+        tfidfAnalyzer.analyze("预热", 1);
+        segmenter.process("预热", JiebaSegmenter.SegMode.SEARCH);
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(host, port), 1024);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s:%d: server start failure!", host, port), e);
+            closeQuietly();
+            throw new JiebaException(e);
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "jieba-server-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+        ioThread = new Thread(this::serve, "jieba-server-io");
+        ioThread.start();
+        log.info(String.format(Locale.getDefault(), "segment server listening on %s:%d, %d workers",
+                host, getPort(), workers));
+    }
+
+    /**
+     * 停止服务并关闭所有连接，未写回的响应被丢弃
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+        for (Thread worker : workerThreads) worker.interrupt();
+        try {
+            ioThread.join();
+            for (Thread worker : workerThreads) worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workerThreads.clear();
+        ready.clear();
+    }
+
+    private void serve() {
+        List<Exchange> parsed = new ArrayList<>();
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable() && connection.read()) connection.shutdownInput();
+                        service(connection, parsed);
+                    } catch (IOException e) {
+                        close(connection);
+                    }
+                }
+                Connection connection;
+                while ((connection = ready.poll()) != null) {
+                    connection.scheduled.set(false);
+                    if (!connection.key.isValid()) continue;
+                    try {
+                        service(connection, parsed);
+                    } catch (IOException e) {
+                        close(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("segment server failure!", e);
+        } finally {
+            running = false;
+            closeQuietly();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key, maxFrameBytes));
+        }
+    }
+
+    /**
+     * 解析并派发已读取的请求，写出已完成的响应，再根据在途请求数与写缓冲调整关注的事件
+     */
+    private void service(Connection connection, List<Exchange> parsed) throws IOException {
+        int room = maxPendingPerConnection - connection.pendingCount();
+        if (room > 0) {
+            parsed.clear();
+            connection.parse(parsed, room);
+            for (Exchange exchange : parsed) {
+                connection.enqueue(exchange);
+                if (exchange.getResponse() == null && !queue.offer(exchange)) {
+                    rejected.incrementAndGet();
+                    exchange.complete(Codec.encodeError(exchange.http, exchange.keepAlive, Codec.STATUS_BUSY,
+                            "server busy"));
+                }
+            }
+        }
+        if (connection.flush()) {
+            close(connection);
+            return;
+        }
+        int ops = 0;
+        if (!connection.isInputClosed() && connection.pendingCount() < maxPendingPerConnection) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (connection.hasOutput()) ops |= SelectionKey.OP_WRITE;
+        if (connection.key.interestOps() != ops) connection.key.interestOps(ops);
+    }
+
+    private void work() {
+        List<Exchange> batch = new ArrayList<>(maxBatch);
+        List<Connection> done = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            try {
+                for (Exchange exchange : batch) {
+                    exchange.complete(handle(exchange));
+                }
+            } finally {
+                // 处理中抛出Error时也回复本批未完成的请求并唤醒IO线程，连接不会一直等待
+                for (Exchange exchange : batch) {
+                    if (exchange.getResponse() == null) {
+                        exchange.complete(Codec.encodeError(exchange.http, exchange.keepAlive, Codec.STATUS_ERROR,
+                                "internal error"));
+                    }
+                    if (exchange.connection.scheduled.compareAndSet(false, true)) done.add(exchange.connection);
+                }
+                requests.addAndGet(batch.size());
+                batches.incrementAndGet();
+                batch.clear();
+                if (!done.isEmpty()) {
+                    ready.addAll(done);
+                    done.clear();
+                    selector.wakeup();
+                }
+            }
+        }
+    }
+
+    private byte[] handle(Exchange exchange) {
+        try {
+            switch (exchange.op) {
+                case CUT:
+                    return Codec.encodeTokens(exchange, cut(exchange.text));
+                case SEARCH:
+                    return Codec.encodeTokens(exchange, segmenter.process(exchange.text, JiebaSegmenter.SegMode.SEARCH));
+                case INDEX:
+                    return Codec.encodeTokens(exchange, segmenter.process(exchange.text, JiebaSegmenter.SegMode.INDEX));
+                case TFIDF:
+                    return Codec.encodeKeywords(exchange, tfidfAnalyzer.analyze(exchange.text, exchange.topN));
+                default:
+                    return Codec.encodeKeywords(exchange, textRankAnalyzer.analyze(exchange.text, exchange.topN));
+            }
+        } catch (RuntimeException e) {
+            log.error(String.format(Locale.getDefault(), "%s: request failure!", exchange.op), e);
+            return Codec.encodeError(exchange.http, exchange.keepAlive, Codec.STATUS_ERROR, String.valueOf(e));
+        }
+    }
+
+    private List<SegToken> cut(String text) {
+        List<String> words = segmenter.sentenceProcess(text);
+        List<SegToken> tokens = new ArrayList<>(words.size());
+        int offset = 0;
+        for (String word : words) {
+            tokens.add(new SegToken(word, offset, offset + word.length()));
+            offset += word.length();
+        }
+        return tokens;
+    }
+
+    private void close(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) {
+                    try {
+                        key.channel().close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                selector.close();
+            }
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public static void main(String[] args) {
+        SegmentServer server = new SegmentServer();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-h":
+                    server.setHost(args[++i]);
+                    break;
+                case "-p":
+                    server.setPort(Integer.parseInt(args[++i]));
+                    break;
+                case "-t":
+                    server.setWorkers(Integer.parseInt(args[++i]));
+                    break;
+                case "-q":
+                    server.setQueueCapacity(Integer.parseInt(args[++i]));
+                    break;
+                case "-b":
+                    server.setMaxBatch(Integer.parseInt(args[++i]));
+                    break;
+                default:
+                    System.err.println("usage: SegmentServer [-h host] [-p port] [-t workers] [-q queueCapacity]"
+                            + " [-b maxBatch]");
+                    System.exit(1);
+            }
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
@@ -0,0 +1,456 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p>IDF表生成器
+ * <p>在本地语料上并行分词并统计文档频率（DF），输出{@link TFIDFAnalyzer}可直接加载的IDF表：
+ * <pre>idf = log(文档总数 / 包含该词的文档数)</pre>
+ * <p>每个工作线程独占一份词频计数，互不竞争；计数占用的内存超过预算时，按词排序后溢写到临时文件，
+ * 最后对所有溢写文件与内存中的剩余计数做多路归并，流式写出IDF表，整张表不会同时驻留内存。
+ * <p>文本格式每行一个<code>词 IDF值</code>，与<code>/idf_dict.txt</code>一致；二进制格式见{@link #readBinary(Path)}。
+ **/
+public class IDFBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(IDFBuilder.class);
+
+    // 二进制IDF表魔数 "JIDF"
+    static final int BINARY_MAGIC = 0x4A494446;
+    static final int BINARY_VERSION = 1;
+
+    // 每批交给工作线程的文档数
+    private static final int BATCH_SIZE = 256;
+    // 估算一个计数项的内存占用：HashMap.Node + String + char[] + Integer
+    private static final int ENTRY_OVERHEAD = 96;
+    // 溢写文件与二进制IDF表用writeUTF写词，至多65535字节，每个字符至多占3字节
+    private static final int MAX_TERM_LENGTH = 65535 / 3;
+
+    private static final List<String> POISON = Collections.emptyList();
+
+    private final JiebaSegmenter segmenter;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long memoryBudget = 256L * 1024 * 1024;
+    private boolean documentPerLine = true;
+    private Path tempDir;
+
+    public IDFBuilder(JiebaSegmenter segmenter) {
+        this.segmenter = segmenter;
+    }
+
+    /**
+     * 设置分词线程数，默认为CPU核数
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        this.threads = threads;
+    }
+
+    /**
+     * 设置所有线程计数合计可占用的内存预算（字节），超出后溢写磁盘，默认256MB
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 1) throw new IllegalArgumentException("memory budget must be positive");
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * 设置文档划分方式：true表示每行一篇文档（默认），false表示每个文件一篇文档
+     */
+    public void setDocumentPerLine(boolean documentPerLine) {
+        this.documentPerLine = documentPerLine;
+    }
+
+    /**
+     * 设置溢写文件目录，默认使用系统临时目录
+     */
+    public void setTempDir(Path tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * 统计语料并写出IDF表
+     *
+     * @param corpus       语料文件（UTF-8）
+     * @param textOutput   文本格式输出路径
+     * @param binaryOutput 二进制格式输出路径，可为null
+     * @return 文档总数
+     */
+    public long build(List<Path> corpus, Path textOutput, Path binaryOutput) {
+        long s = System.currentTimeMillis();
+        Path spillDir = null;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            spillDir = tempDir == null ? Files.createTempDirectory("jieba-idf")
+                    : Files.createTempDirectory(tempDir, "jieba-idf");
+
+            BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(threads * 4);
+            List<Counter> counters = new ArrayList<>(threads);
+            List<Future<?>> futures = new ArrayList<>(threads);
+            long budgetPerThread = Math.max(1, memoryBudget / threads);
+            for (int i = 0; i < threads; i++) {
+                Counter counter = new Counter(queue, spillDir, budgetPerThread);
+                counters.add(counter);
+                futures.add(executor.submit(counter));
+            }
+
+            produce(corpus, queue, futures);
+            for (int i = 0; i < threads; i++) {
+                put(queue, POISON, futures);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            long docCount = 0;
+            List<Run> runs = new ArrayList<>();
+            for (Counter counter : counters) {
+                docCount += counter.docCount;
+                runs.addAll(counter.spills);
+                if (!counter.counts.isEmpty()) runs.add(new MemoryRun(counter.counts));
+            }
+            long terms = merge(runs, docCount, textOutput, binaryOutput);
+            log.debug(String.format(Locale.getDefault(), "idf build finished, %d docs, %d terms, time elapsed %d ms",
+                    docCount, terms, System.currentTimeMillis() - s));
+            return docCount;
+        } catch (ExecutionException e) {
+            log.error("IDF统计异常：", e.getCause());
+            throw new JiebaException(e.getCause());
+        } catch (Exception e) {
+            log.error("IDF统计异常：", e);
+            throw new JiebaException(e);
+        } finally {
+            executor.shutdownNow();
+            deleteQuietly(spillDir);
+        }
+    }
+
+    private void produce(List<Path> corpus, BlockingQueue<List<String>> queue, List<Future<?>> futures)
+            throws IOException, InterruptedException, ExecutionException {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        for (Path path : corpus) {
+            if (documentPerLine) {
+                try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        if (StringUtils.isBlank(line)) continue;
+                        batch.add(line);
+                        if (batch.size() == BATCH_SIZE) {
+                            put(queue, batch, futures);
+                            batch = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                }
+            } else {
+                batch.add(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+                if (batch.size() == BATCH_SIZE) {
+                    put(queue, batch, futures);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+        if (!batch.isEmpty()) put(queue, batch, futures);
+    }
+
+    /**
+     * 投递一批文档，工作线程异常退出时立即抛出，避免生产者永久阻塞
+     */
+    private static void put(BlockingQueue<List<String>> queue, List<String> batch, List<Future<?>> futures)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> future : futures) {
+                if (future.isDone()) future.get();
+            }
+        }
+    }
+
+    /**
+     * 多路归并各计数片段，同一个词的DF求和后计算IDF并写出
+     */
+    private long merge(List<Run> runs, long docCount, Path textOutput, Path binaryOutput) throws IOException {
+        PriorityQueue<Run> heap = new PriorityQueue<>(Math.max(1, runs.size()), Comparator.comparing(r -> r.term));
+        for (Run run : runs) {
+            if (run.advance()) heap.add(run);
+        }
+
+        long terms = 0;
+        try (BufferedWriter text = Files.newBufferedWriter(textOutput, StandardCharsets.UTF_8);
+             DataOutputStream binary = binaryOutput == null ? null : new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(binaryOutput), 1 << 16))) {
+            if (binary != null) {
+                binary.writeInt(BINARY_MAGIC);
+                binary.writeInt(BINARY_VERSION);
+                binary.writeLong(docCount);
+            }
+            while (!heap.isEmpty()) {
+                Run run = heap.poll();
+                String term = run.term;
+                long df = run.count;
+                if (run.advance()) heap.add(run);
+                while (!heap.isEmpty() && heap.peek().term.equals(term)) {
+                    Run same = heap.poll();
+                    df += same.count;
+                    if (same.advance()) heap.add(same);
+                }
+
+                double idf = Math.log((double) docCount / df);
+                text.write(term);
+                text.write(' ');
+                text.write(Double.toString(idf));
+                text.newLine();
+                if (binary != null) {
+                    binary.writeUTF(term);
+                    binary.writeDouble(idf);
+                }
+                terms++;
+            }
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 读取二进制IDF表
+     * <p>格式：魔数(int) 版本(int) 文档总数(long)，之后每项为 词(modified UTF-8) IDF值(double)，直到文件结尾
+     *
+     * @param path 文件路径
+     * @return 词到IDF值的映射
+     */
+    public static Map<String, Double> readBinary(Path path) {
+        Map<String, Double> map = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != BINARY_MAGIC) throw new JiebaException(path + " is not a binary idf table");
+            int version = in.readInt();
+            if (version != BINARY_VERSION) throw new JiebaException("unsupported idf table version " + version);
+            in.readLong();
+            while (true) {
+                String term;
+                try {
+                    term = in.readUTF();
+                } catch (EOFException eof) {
+                    break;
+                }
+                map.put(term, in.readDouble());
+            }
+            return map;
+        } catch (JiebaException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: load idf failure!", path), e);
+            throw new JiebaException(e);
+        }
+    }
+
+    /**
+     * 判断文件是否为二进制IDF表
+     */
+    static boolean isBinary(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readInt() == BINARY_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            log.warn("删除IDF溢写目录失败：{}", dir, e);
+        }
+    }
+
+    /**
+     * 工作线程：分词、按文档去重后累加DF，超出预算时溢写
+     */
+    private final class Counter implements Runnable {
+        private final BlockingQueue<List<String>> queue;
+        private final Path spillDir;
+        private final long budget;
+        private final Map<String, Integer> counts = new HashMap<>();
+        private final Set<String> seen = new HashSet<>();
+        private final List<Run> spills = new ArrayList<>();
+        private long bytes;
+        private long docCount;
+
+        Counter(BlockingQueue<List<String>> queue, Path spillDir, long budget) {
+            this.queue = queue;
+            this.spillDir = spillDir;
+            this.budget = budget;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<String> batch;
+                while ((batch = queue.take()) != POISON) {
+                    for (String doc : batch) {
+                        count(doc);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void count(String doc) throws IOException {
+            docCount++;
+            seen.clear();
+            for (String word : segmenter.sentenceProcess(doc)) {
+                // 含空白的词无法写入以空格分隔的IDF表，超长的词无法写入溢写文件与二进制IDF表
+                if (StringUtils.isBlank(word) || StringUtils.containsWhitespace(word) || word.length() > MAX_TERM_LENGTH
+                        || !seen.add(word)) continue;
+                Integer df = counts.get(word);
+                if (df == null) {
+                    counts.put(word, 1);
+                    bytes += ENTRY_OVERHEAD + 2L * word.length();
+                } else {
+                    counts.put(word, df + 1);
+                }
+            }
+            if (bytes > budget) spill();
+        }
+
+        private void spill() throws IOException {
+            Path file = Files.createTempFile(spillDir, "df", ".run");
+            String[] terms = counts.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                for (String term : terms) {
+                    out.writeUTF(term);
+                    out.writeInt(counts.get(term));
+                }
+            }
+            spills.add(new FileRun(file));
+            counts.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * 按词有序的计数片段
+     */
+    private abstract static class Run implements Closeable {
+        String term;
+        long count;
+
+        /**
+         * 前进到下一项，没有更多时返回false
+         */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class MemoryRun extends Run {
+        private final Map<String, Integer> counts;
+        private final String[] terms;
+        private int position;
+
+        MemoryRun(Map<String, Integer> counts) {
+            this.counts = counts;
+            this.terms = counts.keySet().toArray(new String[0]);
+            Arrays.sort(this.terms);
+        }
+
+        @Override
+        boolean advance() {
+            if (position >= terms.length) return false;
+            term = terms[position++];
+            count = counts.get(term);
+            return true;
+        }
+    }
+
+    private static final class FileRun extends Run {
+        private final Path file;
+        private DataInputStream in;
+
+        FileRun(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            }
+            try {
+                term = in.readUTF();
+            } catch (EOFException e) {
+                return false;
+            }
+            count = in.readInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) in.close();
+        }
+    }
+
+    /**
+     * 命令行入口
+     * <pre>IDFBuilder [-t 线程数] [-m 内存预算MB] [-b 二进制输出] [-f] -o 文本输出 语料文件...</pre>
+     * <p><code>-f</code>表示每个文件一篇文档，默认每行一篇文档
+     */
+    public static void main(String[] args) {
+        IDFBuilder builder = new IDFBuilder(new JiebaSegmenter());
+        Path text = null;
+        Path binary = null;
+        List<Path> corpus = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t":
+                    builder.setThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "-m":
+                    builder.setMemoryBudget(Long.parseLong(args[++i]) * 1024 * 1024);
+                    break;
+                case "-o":
+                    text = Paths.get(args[++i]);
+                    break;
+                case "-b":
+                    binary = Paths.get(args[++i]);
+                    break;
+                case "-f":
+                    builder.setDocumentPerLine(false);
+                    break;
+                default:
+                    corpus.add(Paths.get(args[i]));
+            }
+        }
+        if (text == null || corpus.isEmpty()) {
+            System.err.println("usage: IDFBuilder [-t threads] [-m budgetMB] [-b binary] [-f] -o output corpus...");
+            System.exit(1);
+        }
+        long docs = builder.build(corpus, text, binary);
+        System.out.println(docs + " documents");
+    }
+}
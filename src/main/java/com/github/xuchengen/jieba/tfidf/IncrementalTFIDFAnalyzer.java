@@ -0,0 +1,155 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.CharacterUtil;
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.JiebaSegmenter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * <p>增量TFIDF分析
+ * <p>按块接收文本（或直接读取{@link Reader}），逐段分词并累加词频，随时可查询当前TFIDF值最高的N个关键词，
+ * 适用于超长文本与持续到达的文本流，无需持有全文。
+ * <p>与{@link JiebaSegmenter#process}一致，文本先按非中英文数字字符切分为片段，再对每个片段分词；
+ * 块末尾未结束的片段会保留到下一块拼接，因此分块位置不影响结果。
+ * <p>计数的词数上限为<code>capacity</code>，超出时淘汰出现次数最少的一半词语，
+ * 高频词的计数不受影响，低频词的计数可能偏小。
+ * <p>实例方法均已同步，允许一个线程写入、其他线程查询。
+ **/
+public class IncrementalTFIDFAnalyzer {
+
+    // 未结束片段的长度上限，超出时强制切分，避免无分隔符的输入无限累积
+    private static final int MAX_PENDING = 4096;
+    private static final int READ_BUFFER = 8192;
+
+    private final TFIDFAnalyzer analyzer;
+    private final JiebaSegmenter segmenter;
+    private final int capacity;
+
+    private final Map<String, int[]> counts = new HashMap<>();
+    private final StringBuilder pending = new StringBuilder();
+    private long wordSum;
+
+    /**
+     * 构造方法
+     *
+     * @param analyzer TFIDF分析器，提供分词器、停用词表与IDF表
+     * @param capacity 保留计数的词数上限
+     */
+    public IncrementalTFIDFAnalyzer(TFIDFAnalyzer analyzer, int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+        this.analyzer = analyzer;
+        this.segmenter = analyzer.getSegmenter();
+        this.capacity = capacity;
+        analyzer.loadDefaults();
+    }
+
+    /**
+     * 追加一段文本
+     *
+     * @param chunk 文本块
+     */
+    public synchronized void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); ++i) {
+            char ch = CharacterUtil.regularize(chunk.charAt(i));
+            if (CharacterUtil.ccFind(ch)) {
+                pending.append(ch);
+                if (pending.length() >= MAX_PENDING) flush();
+            } else {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * 读取并追加Reader中的全部文本，不关闭Reader
+     *
+     * @param reader 文本来源
+     */
+    public void feed(Reader reader) {
+        char[] buffer = new char[READ_BUFFER];
+        try {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                feed(CharBuffer.wrap(buffer, 0, n));
+            }
+        } catch (IOException e) {
+            throw new JiebaException(e);
+        }
+    }
+
+    /**
+     * 标记文本结束，处理块末尾未结束的片段
+     */
+    public synchronized void finish() {
+        flush();
+    }
+
+    /**
+     * 获取当前TFIDF值最高的N个关键词，不包含尚未结束的片段
+     *
+     * @param topN 关键词个数
+     * @return 按TFIDF值从大到小排列的关键词
+     */
+    public synchronized List<Keyword> topN(int topN) {
+        if (topN <= 0 || wordSum == 0) return new ArrayList<>();
+        PriorityQueue<Keyword> heap = new PriorityQueue<>(Math.min(topN, counts.size()) + 1, Collections.reverseOrder());
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            String word = entry.getKey();
+            double tf = entry.getValue()[0] * 0.1 / wordSum;
+            heap.add(new Keyword(word, analyzer.idf(word) * tf));
+            if (heap.size() > topN) heap.poll();
+        }
+        List<Keyword> keywordList = new ArrayList<>(heap);
+        Collections.sort(keywordList);
+        return keywordList;
+    }
+
+    /**
+     * 已计入的词语总数
+     */
+    public synchronized long getWordSum() {
+        return wordSum;
+    }
+
+    /**
+     * 清空计数与未结束的片段
+     */
+    public synchronized void reset() {
+        counts.clear();
+        pending.setLength(0);
+        wordSum = 0;
+    }
+
+    private void flush() {
+        if (pending.length() == 0) return;
+        for (String word : segmenter.sentenceProcess(pending.toString())) {
+            word = TFIDFAnalyzer.filterWord(word);
+            if (word == null) continue;
+            wordSum++;
+            int[] count = counts.get(word);
+            if (count == null) {
+                counts.put(word, new int[]{1});
+                if (counts.size() > capacity) prune();
+            } else {
+                count[0]++;
+            }
+        }
+        pending.setLength(0);
+    }
+
+    /**
+     * 淘汰出现次数最少的词，保留capacity/2个
+     */
+    private void prune() {
+        List<Map.Entry<String, int[]>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Integer.compare(a.getValue()[0], b.getValue()[0]));
+        int remove = entries.size() - capacity / 2;
+        for (int i = 0; i < remove; i++) {
+            counts.remove(entries.get(i).getKey());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.Hashing;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * <p>SimHash文档指纹
+ * <p><a href="https://www.cs.princeton.edu/courses/archive/spr04/cos598B/bib/CharikarEstim.pdf">SimHash算法原理参考</a>
+ * <p>文档分词后按{@link TFIDFAnalyzer}的规则过滤，每出现一次词语，就以该词的IDF值为权重累加到其64位哈希的各个比特上，
+ * 累加结果为正的比特置1，得到64位指纹。词语出现多次即累加多次，等价于以TF*IDF为权重。
+ * <p>计算过程不创建{@link Keyword}或词频表，实例无状态，可被多线程共享。
+ * 相似文档的指纹海明距离较小，可配合{@link SimHashIndex}查找近似重复文档。
+ **/
+public class SimHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TFIDFAnalyzer analyzer;
+
+    public SimHash(TFIDFAnalyzer analyzer) {
+        this.analyzer = analyzer;
+        analyzer.loadDefaults();
+    }
+
+    /**
+     * 计算文档指纹
+     *
+     * @param content 文档内容
+     * @return 64位指纹，空文档返回0
+     */
+    public long fingerprint(String content) {
+        if (content == null || content.equals(StringUtils.EMPTY)) return 0L;
+        return fingerprint(analyzer.getSegmenter().sentenceProcess(content));
+    }
+
+    /**
+     * 根据已分好的词计算指纹
+     *
+     * @param words 分词结果
+     * @return 64位指纹
+     */
+    public long fingerprint(List<String> words) {
+        double[] vector = new double[64];
+        for (String word : words) {
+            word = TFIDFAnalyzer.filterWord(word);
+            if (word == null) continue;
+            double weight = analyzer.idf(word);
+            long hash = hash(word);
+            for (int bit = 0; bit < 64; bit++) {
+                if ((hash & (1L << bit)) != 0) {
+                    vector[bit] += weight;
+                } else {
+                    vector[bit] -= weight;
+                }
+            }
+        }
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (vector[bit] > 0) fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 计算两个指纹的海明距离
+     */
+    public static int hammingDistance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 词语的64位哈希：逐字符FNV-1a，再用MurmurHash3的fmix64打散，避免构造字节数组
+     */
+    static long hash(String word) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < word.length(); i++) {
+            h ^= word.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return Hashing.mix(h);
+    }
+}
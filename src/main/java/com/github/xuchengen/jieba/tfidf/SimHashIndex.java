@@ -0,0 +1,158 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.Hashing;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>SimHash近似重复索引
+ * <p>64位指纹被切分为<code>maxDistance + 1</code>段，由抽屉原理，海明距离不超过<code>maxDistance</code>的两个指纹
+ * 至少有一段完全相同，因此只需按每一段分别建桶，查询时取出同段的候选并校验完整海明距离，召回没有遗漏。
+ * <p>每个桶是一个只在头部插入的不可变链表，写入时为每一段分配一个节点并CAS替换桶头，
+ * 开销与桶中已有的文档数无关；查询只沿链表读取，不加锁也不分配内存，写入与查询可并发进行。
+ * 所有段的桶存放在同一个数组中，第band段的桶位于<code>band * capacity</code>之后。
+ **/
+public class SimHashIndex {
+
+    private static final LongConsumer NOOP = id -> {
+    };
+
+    private final int maxDistance;
+    private final int bands;
+    private final int[] shifts;
+    private final long[] masks;
+    private final int capacity;
+    private final AtomicReferenceArray<Node> buckets;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * 构造方法
+     *
+     * @param maxDistance  判定为近似重复的最大海明距离
+     * @param expectedSize 预计文档数，决定桶的数量
+     */
+    public SimHashIndex(int maxDistance, int expectedSize) {
+        if (maxDistance < 0 || maxDistance > 31) throw new IllegalArgumentException("maxDistance must be in [0, 31]");
+        this.maxDistance = maxDistance;
+        this.bands = maxDistance + 1;
+        this.shifts = new int[bands];
+        this.masks = new long[bands];
+        int shift = 0;
+        for (int band = 0; band < bands; band++) {
+            int bits = 64 / bands + (band < 64 % bands ? 1 : 0);
+            shifts[band] = shift;
+            masks[band] = bits == 64 ? -1L : (1L << bits) - 1;
+            shift += bits;
+        }
+
+        int capacity = 16;
+        while (capacity < expectedSize && (long) capacity * 2 * bands <= (1 << 30)) capacity <<= 1;
+        this.capacity = capacity;
+        this.buckets = new AtomicReferenceArray<>(capacity * bands);
+    }
+
+    /**
+     * 加入一篇文档的指纹
+     *
+     * @param fingerprint 指纹
+     * @param docId       文档编号，非负
+     */
+    public void add(long fingerprint, long docId) {
+        if (docId < 0) throw new IllegalArgumentException("docId must not be negative");
+        for (int band = 0; band < bands; band++) {
+            int slot = slot(band, fingerprint);
+            Node head;
+            Node node;
+            do {
+                head = buckets.get(slot);
+                node = new Node(fingerprint, docId, head);
+            } while (!buckets.compareAndSet(slot, head, node));
+        }
+        size.increment();
+    }
+
+    /**
+     * 查找任意一篇近似重复文档
+     *
+     * @param fingerprint 指纹
+     * @return 文档编号，没有近似重复时返回-1
+     */
+    public long findFirst(long fingerprint) {
+        for (int band = 0; band < bands; band++) {
+            for (Node node = buckets.get(slot(band, fingerprint)); node != null; node = node.next) {
+                if (SimHash.hammingDistance(node.fingerprint, fingerprint) <= maxDistance) return node.docId;
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * 判断是否存在近似重复文档
+     */
+    public boolean containsNear(long fingerprint) {
+        return findFirst(fingerprint) >= 0;
+    }
+
+    /**
+     * 查找全部近似重复文档，每篇文档只回调一次
+     *
+     * @param fingerprint 指纹
+     * @param consumer    接收文档编号
+     * @return 近似重复文档数
+     */
+    public int findAll(long fingerprint, LongConsumer consumer) {
+        if (consumer == null) consumer = NOOP;
+        int found = 0;
+        for (int band = 0; band < bands; band++) {
+            for (Node node = buckets.get(slot(band, fingerprint)); node != null; node = node.next) {
+                long candidate = node.fingerprint;
+                if (segment(band, candidate) != segment(band, fingerprint)) continue;
+                if (SimHash.hammingDistance(candidate, fingerprint) > maxDistance) continue;
+                // 与更早的段也相同的候选已在那一段报告过
+                if (matchesEarlierBand(band, candidate, fingerprint)) continue;
+                consumer.accept(node.docId);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 已加入的文档数
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    private boolean matchesEarlierBand(int band, long candidate, long fingerprint) {
+        for (int earlier = 0; earlier < band; earlier++) {
+            if (segment(earlier, candidate) == segment(earlier, fingerprint)) return true;
+        }
+        return false;
+    }
+
+    private long segment(int band, long fingerprint) {
+        return (fingerprint >>> shifts[band]) & masks[band];
+    }
+
+    private int slot(int band, long fingerprint) {
+        return band * capacity + ((int) Hashing.mix(segment(band, fingerprint) + band) & (capacity - 1));
+    }
+
+    /**
+     * 桶中的一篇文档，创建后不再修改
+     */
+    private static final class Node {
+        final long fingerprint;
+        final long docId;
+        final Node next;
+
+        Node(long fingerprint, long docId, Node next) {
+            this.fingerprint = fingerprint;
+            this.docId = docId;
+            this.next = next;
+        }
+    }
+}
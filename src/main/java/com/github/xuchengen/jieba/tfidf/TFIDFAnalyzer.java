@@ -2,6 +2,9 @@ package com.github.xuchengen.jieba.tfidf;
 
 import com.github.xuchengen.jieba.JiebaException;
 import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.metrics.JiebaMetrics;
+import com.github.xuchengen.jieba.metrics.MetricsRecorder;
+import com.github.xuchengen.jieba.metrics.Stage;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +12,9 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -23,9 +29,9 @@ public class TFIDFAnalyzer {
 
     private static final Logger log = LoggerFactory.getLogger(TFIDFAnalyzer.class);
 
-    private static HashMap<String, Double> idfMap;
-    private static HashSet<String> stopWordsSet;
-    private static double idfMedian;
+    // IDF表与其中位数一起发布，读取方不会看到填充了一半的表，也不会把新的中位数与旧的表搭配
+    private static volatile IdfTable idfTable;
+    private static volatile Set<String> stopWordsSet;
 
     private final JiebaSegmenter JIEBA_SEGMENTER;
 
@@ -41,25 +47,17 @@ public class TFIDFAnalyzer {
      * @return List&lt;Keyword&gt;
      */
     public List<Keyword> analyze(String content, int topN) {
+        MetricsRecorder recorder = JiebaMetrics.getRecorder();
+        long start = recorder.startTime();
         List<Keyword> keywordList = new ArrayList<>();
 
-        if (stopWordsSet == null) {
-            stopWordsSet = new HashSet<>();
-            loadStopWords(stopWordsSet, this.getClass().getResourceAsStream("/stop_words.txt"));
-        }
-
-        if (idfMap == null) {
-            idfMap = new HashMap<>();
-            loadIDFMap(idfMap, this.getClass().getResourceAsStream("/idf_dict.txt"));
-        }
+        loadDefaults();
 
+        // 整篇文档使用同一张IDF表
+        IdfTable table = idfTable();
         Map<String, Double> tfMap = getTF(content);
         for (String word : tfMap.keySet()) {
-            // 若该词不在IDF文档中，则使用平均的IDF值(可能定期需要对新出现的网络词语进行纳入)
-            if (idfMap.containsKey(word)) {
-                keywordList.add(new Keyword(word, idfMap.get(word) * tfMap.get(word)));
-            } else
-                keywordList.add(new Keyword(word, idfMedian * tfMap.get(word)));
+            keywordList.add(new Keyword(word, table.idf(word) * tfMap.get(word)));
         }
 
         Collections.sort(keywordList);
@@ -70,9 +68,109 @@ public class TFIDFAnalyzer {
                 keywordList.remove(topN);
             }
         }
+        recorder.record(Stage.KEYWORD, start, content == null ? 0 : content.length(), keywordList.size());
         return keywordList;
     }
 
+    JiebaSegmenter getSegmenter() {
+        return JIEBA_SEGMENTER;
+    }
+
+    /**
+     * 按需加载默认的停用词表与IDF表
+     */
+    void loadDefaults() {
+        stopWords();
+        idfTable();
+    }
+
+    /**
+     * 停用词表，首次使用时加载；加载失败时保持未加载，下次使用时重试
+     */
+    private static Set<String> stopWords() {
+        Set<String> set = stopWordsSet;
+        if (set == null) {
+            synchronized (TFIDFAnalyzer.class) {
+                set = stopWordsSet;
+                if (set == null) {
+                    set = new HashSet<>();
+                    loadStopWords(set, TFIDFAnalyzer.class.getResourceAsStream("/stop_words.txt"));
+                    stopWordsSet = set;
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * 当前的IDF表，未加载时加载默认的<code>/idf_dict.txt</code>；加载失败时保持未加载，下次使用时重试
+     */
+    private IdfTable idfTable() {
+        IdfTable table = idfTable;
+        if (table == null) {
+            synchronized (TFIDFAnalyzer.class) {
+                table = idfTable;
+                if (table == null) {
+                    table = new IdfTable(loadIDFMap(this.getClass().getResourceAsStream("/idf_dict.txt")));
+                    idfTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 获取词的IDF值
+     * <p>若该词不在IDF文档中，则使用平均的IDF值(可能定期需要对新出现的网络词语进行纳入)
+     *
+     * @param word 词
+     * @return IDF值
+     */
+    double idf(String word) {
+        return idfTable().idf(word);
+    }
+
+    /**
+     * 过滤候选词：停用词不予考虑，单字词不予考虑，标点符号词不予考虑
+     * <p>TFIDF、TextRank与SimHash共用此过滤规则
+     *
+     * @param word 分词结果
+     * @return 去除标点后的词，不予考虑时返回null
+     */
+    static String filterWord(String word) {
+        if (stopWords().contains(word) || word.length() <= 1) return null;
+        word = word.replaceAll("\\p{P}", StringUtils.EMPTY);
+        return word.length() <= 1 ? null : word;
+    }
+
+    /**
+     * 从文件加载IDF表，替换默认的<code>/idf_dict.txt</code>
+     * <p>支持文本格式与{@link IDFBuilder}生成的二进制格式
+     *
+     * @param path IDF表路径
+     */
+    public void loadIDF(Path path) {
+        Map<String, Double> map;
+        try {
+            map = IDFBuilder.isBinary(path) ? new HashMap<>(IDFBuilder.readBinary(path))
+                    : loadIDFMap(Files.newInputStream(path));
+        } catch (JiebaException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("加载IDF异常：", e);
+            throw new JiebaException(e);
+        }
+        // 加载完成后才替换，加载失败时继续使用原来的表
+        idfTable = new IdfTable(map);
+    }
+
+    /**
+     * 丢弃通过{@link #loadIDF(Path)}加载的IDF表，下次分析时重新加载默认的<code>/idf_dict.txt</code>
+     */
+    public void resetIDF() {
+        idfTable = null;
+    }
+
     /**
      * TF值计算公式
      * <pre>tf = N(i,j) / (sum(N(k,j) for all k))</pre>
@@ -91,16 +189,13 @@ public class TFIDFAnalyzer {
 
         int wordSum = 0;
         for (String word : words) {
-            //停用词不予考虑，单字词不予考虑，标点符号词不予考虑
-            if (!stopWordsSet.contains(word) && word.length() > 1) {
-                word = word.replaceAll("\\p{P}", StringUtils.EMPTY);
-                if (word.length() <= 1) continue;
-                wordSum++;
-                if (freqMap.containsKey(word)) {
-                    freqMap.put(word, freqMap.get(word) + 1);
-                } else {
-                    freqMap.put(word, 1);
-                }
+            word = filterWord(word);
+            if (word == null) continue;
+            wordSum++;
+            if (freqMap.containsKey(word)) {
+                freqMap.put(word, freqMap.get(word) + 1);
+            } else {
+                freqMap.put(word, 1);
             }
         }
 
@@ -119,8 +214,8 @@ public class TFIDFAnalyzer {
      * @param set set集合
      * @param in  输入流
      */
-    private void loadStopWords(Set<String> set, InputStream in) {
-        try (BufferedReader bufr = new BufferedReader(new InputStreamReader(in))) {
+    private static void loadStopWords(Set<String> set, InputStream in) {
+        try (BufferedReader bufr = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
             String line;
             while ((line = bufr.readLine()) != null) {
                 set.add(line.trim());
@@ -136,24 +231,52 @@ public class TFIDFAnalyzer {
      * <p>IDF值本来需要语料库来自己按照公式进行计算，不过jieba分词已经提供了一份很好的IDF字典，所以默认直接使用jieba分词的IDF字典
      * <p><a href="https://raw.githubusercontent.com/yanyiwu/nodejieba/master/dict/idf.utf8">结巴分词IDF表</a>
      *
-     * @param map map集合
-     * @param in  输入流
+     * @param in 输入流
+     * @return IDF表
      */
-    private void loadIDFMap(Map<String, Double> map, InputStream in) {
-        try (BufferedReader bufr = new BufferedReader(new InputStreamReader(in))) {
+    private Map<String, Double> loadIDFMap(InputStream in) {
+        Map<String, Double> map = new HashMap<>();
+        try (BufferedReader bufr = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
             String line;
             while ((line = bufr.readLine()) != null) {
                 String[] kv = line.trim().split(" ");
                 map.put(kv[0], Double.parseDouble(kv[1]));
             }
-
-            // 计算IDF值的中位数
-            List<Double> idfList = new ArrayList<>(map.values());
-            Collections.sort(idfList);
-            idfMedian = idfList.get(idfList.size() / 2);
+            return map;
         } catch (Exception e) {
             log.error("加载IDF异常：", e);
             throw new JiebaException(e);
         }
     }
+
+    /**
+     * 计算IDF值的中位数
+     */
+    private static double median(Map<String, Double> map) {
+        if (map.isEmpty()) return 0.0;
+        List<Double> idfList = new ArrayList<>(map.values());
+        Collections.sort(idfList);
+        return idfList.get(idfList.size() / 2);
+    }
+
+    /**
+     * 加载完成、不再修改的IDF表及其中位数
+     */
+    private static final class IdfTable {
+        final Map<String, Double> idf;
+        final double median;
+
+        IdfTable(Map<String, Double> idf) {
+            this.idf = idf;
+            this.median = median(idf);
+        }
+
+        /**
+         * 词的IDF值，不在表中时取中位数
+         */
+        double idf(String word) {
+            Double value = idf.get(word);
+            return value == null ? median : value;
+        }
+    }
 }
@@ -0,0 +1,228 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * <p>TextRank关键词提取
+ * <p><a href="https://web.eecs.umich.edu/~mihalcea/papers/mihalcea.emnlp04.pdf">TextRank算法原理参考</a>
+ * <p><a href="https://github.com/fxsjy/jieba">实现思路参考jieba分词</a>
+ * <p>分词后在固定窗口内统计词语共现，构造无向带权图并迭代PageRank，无需IDF表。
+ * 图以整数词编号的邻接数组（CSR）存储，迭代在相邻两轮得分变化小于阈值时提前结束。
+ * <p>候选词的过滤规则与停用词表与{@link TFIDFAnalyzer}相同。
+ **/
+public class TextRankAnalyzer {
+
+    private final JiebaSegmenter segmenter;
+
+    private int window = 5;
+    private double damping = 0.85;
+    private int maxIterations = 100;
+    private double tolerance = 1e-4;
+
+    public TextRankAnalyzer(JiebaSegmenter segmenter) {
+        this.segmenter = segmenter;
+    }
+
+    /**
+     * 设置共现窗口大小，默认为5，即词语与其后4个词之间连边
+     */
+    public void setWindow(int window) {
+        if (window < 2) throw new IllegalArgumentException("window must be at least 2");
+        this.window = window;
+    }
+
+    /**
+     * 设置阻尼系数，默认为0.85
+     */
+    public void setDamping(double damping) {
+        this.damping = damping;
+    }
+
+    /**
+     * 设置最大迭代次数，默认为100
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * 设置收敛阈值，相邻两轮所有词得分的最大变化小于该值时停止迭代，默认为1e-4
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * TextRank分析方法
+     *
+     * @param content 需要分析的文本/文档内容
+     * @param topN    需要返回的得分最高的N个关键词，若超过content本身含有的词语上限数目，则默认返回全部
+     * @return List&lt;Keyword&gt;
+     */
+    public List<Keyword> analyze(String content, int topN) {
+        if (content == null || content.equals(StringUtils.EMPTY) || topN <= 0) return new ArrayList<>();
+
+        // 词语编号，被过滤的词编号为-1，仍占据窗口位置
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> vocab = new ArrayList<>();
+        List<String> words = segmenter.sentenceProcess(content);
+        int[] sequence = new int[words.size()];
+        for (int i = 0; i < sequence.length; i++) {
+            String word = TFIDFAnalyzer.filterWord(words.get(i));
+            if (word == null) {
+                sequence[i] = -1;
+                continue;
+            }
+            Integer id = ids.get(word);
+            if (id == null) {
+                id = vocab.size();
+                ids.put(word, id);
+                vocab.add(word);
+            }
+            sequence[i] = id;
+        }
+
+        Graph graph = buildGraph(sequence, vocab.size());
+        double[] ranks = rank(graph);
+
+        PriorityQueue<Keyword> heap = new PriorityQueue<>(Math.min(topN, graph.size) + 1, Collections.reverseOrder());
+        for (int v = 0; v < graph.size; v++) {
+            if (graph.offsets[v] == graph.offsets[v + 1]) continue;
+            heap.add(new Keyword(vocab.get(v), ranks[v]));
+            if (heap.size() > topN) heap.poll();
+        }
+        List<Keyword> keywordList = new ArrayList<>(heap);
+        Collections.sort(keywordList);
+        return keywordList;
+    }
+
+    /**
+     * 构造共现图：窗口内每对有效词语连一条无向边，重复共现累加为边权
+     */
+    private Graph buildGraph(int[] sequence, int size) {
+        // 先收集有向边（每条无向边两个方向各一次）
+        int[] from = new int[Math.max(16, sequence.length * 2)];
+        int[] to = new int[from.length];
+        int edges = 0;
+        for (int i = 0; i < sequence.length; i++) {
+            int a = sequence[i];
+            if (a < 0) continue;
+            int end = Math.min(sequence.length, i + window);
+            for (int j = i + 1; j < end; j++) {
+                int b = sequence[j];
+                if (b < 0 || b == a) continue;
+                if (edges + 2 > from.length) {
+                    from = Arrays.copyOf(from, from.length * 2);
+                    to = Arrays.copyOf(to, to.length * 2);
+                }
+                from[edges] = a;
+                to[edges++] = b;
+                from[edges] = b;
+                to[edges++] = a;
+            }
+        }
+
+        // 按起点计数排序为CSR
+        int[] offsets = new int[size + 1];
+        for (int e = 0; e < edges; e++) {
+            offsets[from[e] + 1]++;
+        }
+        for (int v = 0; v < size; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] cursor = Arrays.copyOf(offsets, size);
+        int[] neighbors = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            neighbors[cursor[from[e]]++] = to[e];
+        }
+
+        // 合并重复边，边权为共现次数
+        int[] compactOffsets = new int[size + 1];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        int n = 0;
+        for (int v = 0; v < size; v++) {
+            int begin = offsets[v];
+            int end = offsets[v + 1];
+            Arrays.sort(neighbors, begin, end);
+            for (int k = begin; k < end; k++) {
+                if (k > begin && neighbors[k] == neighbors[k - 1]) {
+                    weights[n - 1] += 1;
+                } else {
+                    targets[n] = neighbors[k];
+                    weights[n++] = 1;
+                }
+            }
+            compactOffsets[v + 1] = n;
+        }
+        return new Graph(size, compactOffsets, targets, weights);
+    }
+
+    /**
+     * 迭代PageRank：<pre>WS(Vi) = (1 - d) + d * sum(w(j,i) / sum(w(j,k)) * WS(Vj))</pre>
+     * <p>结果按 (ws - min/10) / (max - min/10) 归一化，与jieba一致
+     */
+    private double[] rank(Graph graph) {
+        int size = graph.size;
+        double[] outSum = new double[size];
+        for (int v = 0; v < size; v++) {
+            for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; k++) {
+                outSum[v] += graph.weights[k];
+            }
+        }
+
+        double[] ws = new double[size];
+        double[] contribution = new double[size];
+        Arrays.fill(ws, size == 0 ? 0 : 1.0 / size);
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            for (int v = 0; v < size; v++) {
+                contribution[v] = outSum[v] > 0 ? ws[v] / outSum[v] : 0;
+            }
+            double delta = 0;
+            for (int v = 0; v < size; v++) {
+                double sum = 0;
+                for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; k++) {
+                    sum += graph.weights[k] * contribution[graph.targets[k]];
+                }
+                double next = (1 - damping) + damping * sum;
+                delta = Math.max(delta, Math.abs(next - ws[v]));
+                ws[v] = next;
+            }
+            if (delta < tolerance) break;
+        }
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int v = 0; v < size; v++) {
+            if (outSum[v] == 0) continue;
+            min = Math.min(min, ws[v]);
+            max = Math.max(max, ws[v]);
+        }
+        double floor = min / 10.0;
+        for (int v = 0; v < size; v++) {
+            ws[v] = max > floor ? (ws[v] - floor) / (max - floor) : 1.0;
+        }
+        return ws;
+    }
+
+    /**
+     * 压缩邻接表形式的无向带权图
+     */
+    private static final class Graph {
+        final int size;
+        // 顶点v的边位于[offsets[v], offsets[v + 1])
+        final int[] offsets;
+        final int[] targets;
+        final double[] weights;
+
+        Graph(int size, int[] offsets, int[] targets, double[] weights) {
+            this.size = size;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.github.xuchengen.jieba.tool;
+
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.cache.SegmentCache;
+import com.github.xuchengen.jieba.codec.TokenStreamWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>大文件批量分词
+ * <p>输入文件按行分隔，每行一篇文档。文件被分段映射到内存，主线程在换行处把映射区切成若干块交给工作线程，
+ * 工作线程整块解码UTF-8、逐行分词并编码输出，主线程按提交顺序取回结果，经由直接缓冲区写入{@link FileChannel}，
+ * 输出行序与输入一致。同时在途的块数有上限，内存占用与输入大小无关。
+ * <p>输出格式：
+ * <ul>
+ * <li>text：词之间以分隔符（默认空格）连接，空白词被丢弃</li>
+ * <li>offset：每个词输出为<code>词,开始偏移,结束偏移</code>，以分隔符（默认制表符）连接，偏移为行内字符偏移</li>
+ * <li>binary：每行编码为一条{@link TokenStreamWriter}记录（带词编号），记录首尾相接，不含换行</li>
+ * </ul>
+ * <pre>
+ * java -cp jieba-analysis.jar com.github.xuchengen.jieba.tool.BatchSegmenter -t 16 -o out.txt in1.txt in2.txt
+ * </pre>
+ **/
+public class BatchSegmenter {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchSegmenter.class);
+
+    /**
+     * 分词方式
+     */
+    public enum Mode {
+        /**
+         * {@link JiebaSegmenter#sentenceProcess(String)}
+         */
+        CUT,
+        SEARCH,
+        INDEX
+    }
+
+    private static final int REGION_SIZE = 512 << 20;
+    private static final int WRITE_BUFFER_SIZE = 16 << 20;
+
+    private final JiebaSegmenter segmenter;
+    private Mode mode = Mode.CUT;
+    private boolean offsets = false;
+    private boolean binary = false;
+    private String delimiter;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int blockSize = 4 << 20;
+    private SegmentCache cache;
+
+    private long lines;
+    private long bytes;
+
+    public BatchSegmenter(JiebaSegmenter segmenter) {
+        this.segmenter = segmenter;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * 是否输出词的偏移
+     */
+    public void setOffsets(boolean offsets) {
+        this.offsets = offsets;
+    }
+
+    /**
+     * 是否以{@link TokenStreamWriter}的二进制格式输出，优先于{@link #setOffsets(boolean)}
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * 词之间的分隔符，默认text格式为空格，offset格式为制表符
+     */
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 每个任务处理的字节数，实际在其后的第一个换行处切分
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = Math.max(4096, blockSize);
+    }
+
+    /**
+     * 搜索与索引模式下复用的分词结果缓存，为null时不使用缓存
+     */
+    public void setCache(SegmentCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 已处理的行数
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * 已处理的输入字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 依次分词所有输入文件，写入同一个输出文件
+     *
+     * @param inputs 输入文件
+     * @param output 输出文件，已存在时覆盖
+     */
+    public void process(List<Path> inputs, Path output) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "jieba-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Block>> pending = new ArrayDeque<>();
+        int maxPending = threads * 2;
+        ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path input : inputs) {
+                try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        long length = Math.min(REGION_SIZE, size - position);
+                        MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                        boolean last = position + length == size;
+                        int end = last ? (int) length : lastLineEnd(region, (int) length);
+                        if (end <= 0) throw new JiebaException(input + ": line longer than " + REGION_SIZE + " bytes");
+
+                        int begin = 0;
+                        while (begin < end) {
+                            int blockEnd = begin + blockSize >= end ? end : lineEnd(region, begin + blockSize, end);
+                            ByteBuffer slice = region.duplicate();
+                            slice.position(begin).limit(blockEnd);
+                            ByteBuffer block = slice.slice();
+                            if (pending.size() >= maxPending) write(pending.poll(), out, writeBuffer);
+                            pending.add(executor.submit(() -> segment(block)));
+                            begin = blockEnd;
+                        }
+                        position += end;
+                    }
+                }
+            }
+            while (!pending.isEmpty()) write(pending.poll(), out, writeBuffer);
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) out.write(writeBuffer);
+        } catch (JiebaException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: batch segmentation failure!", output), e);
+            throw new JiebaException(e);
+        } finally {
+            for (Future<Block> future : pending) future.cancel(true);
+            executor.shutdownNow();
+        }
+    }
+
+    private void write(Future<Block> future, FileChannel out, ByteBuffer writeBuffer)
+            throws IOException, InterruptedException, ExecutionException {
+        Block block = future.get();
+        lines += block.lines;
+        bytes += block.inputBytes;
+        byte[] data = block.output;
+        int offset = 0;
+        while (offset < data.length) {
+            if (!writeBuffer.hasRemaining()) {
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) out.write(writeBuffer);
+                writeBuffer.clear();
+            }
+            int n = Math.min(writeBuffer.remaining(), data.length - offset);
+            writeBuffer.put(data, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * 解码一块输入并逐行分词
+     */
+    private Block segment(ByteBuffer input) {
+        int inputBytes = input.remaining();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars;
+        try {
+            chars = decoder.decode(input);
+        } catch (IOException e) {
+            throw new JiebaException(e);
+        }
+
+        if (binary) return segmentBinary(chars, inputBytes);
+        String separator = delimiter != null ? delimiter : offsets ? "\t" : " ";
+        StringBuilder out = new StringBuilder(chars.length() * 2);
+        int lineCount = 0;
+        int begin = 0;
+        int length = chars.length();
+        while (begin < length) {
+            int end = begin;
+            while (end < length && chars.get(end) != '\n') end++;
+            int contentEnd = end > begin && chars.get(end - 1) == '\r' ? end - 1 : end;
+            String line = chars.subSequence(begin, contentEnd).toString();
+            appendLine(out, line, separator);
+            out.append('\n');
+            lineCount++;
+            begin = end + 1;
+        }
+        return new Block(out.toString().getBytes(StandardCharsets.UTF_8), lineCount, inputBytes);
+    }
+
+    private Block segmentBinary(CharBuffer chars, int inputBytes) {
+        ByteBuffer out = ByteBuffer.allocate(chars.length() * 2 + 64);
+        TokenStreamWriter writer = new TokenStreamWriter(out, true);
+        List<SegToken> tokens = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        int lineCount = 0;
+        int begin = 0;
+        int length = chars.length();
+        while (begin < length) {
+            int end = begin;
+            while (end < length && chars.get(end) != '\n') end++;
+            int contentEnd = end > begin && chars.get(end - 1) == '\r' ? end - 1 : end;
+            String line = chars.subSequence(begin, contentEnd).toString();
+            tokens.clear();
+            // 精确模式用分词时得到的编号，HMM发现的词记为HMM_WORD_ID；其他模式按词查询词典
+            int[] wordIds = null;
+            if (!line.isEmpty()) {
+                if (mode == Mode.CUT) {
+                    words.clear();
+                    wordIds = segmenter.sentenceProcess(line, words);
+                    int offset = 0;
+                    for (String word : words) {
+                        tokens.add(new SegToken(word, offset, offset += word.length()));
+                    }
+                } else {
+                    JiebaSegmenter.SegMode segMode = mode == Mode.INDEX ? JiebaSegmenter.SegMode.INDEX
+                            : JiebaSegmenter.SegMode.SEARCH;
+                    tokens.addAll(cache != null ? cache.process(line, segMode) : segmenter.process(line, segMode));
+                }
+            }
+            try {
+                writer.write(tokens, wordIds);
+            } catch (BufferOverflowException e) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2,
+                        out.position() + TokenStreamWriter.maxRecordBytes(tokens.size(), true)));
+                out.flip();
+                grown.put(out);
+                out = grown;
+                writer.setBuffer(out);
+                writer.write(tokens, wordIds);
+            }
+            lineCount++;
+            begin = end + 1;
+        }
+        return new Block(Arrays.copyOf(out.array(), out.position()), lineCount, inputBytes);
+    }
+
+    private void appendLine(StringBuilder out, String line, String separator) {
+        if (line.isEmpty()) return;
+        boolean first = true;
+        if (mode == Mode.CUT) {
+            int offset = 0;
+            for (String word : segmenter.sentenceProcess(line)) {
+                int start = offset;
+                offset += word.length();
+                if (!offsets && word.trim().isEmpty()) continue;
+                if (!first) out.append(separator);
+                first = false;
+                out.append(word);
+                if (offsets) out.append(',').append(start).append(',').append(offset);
+            }
+        } else {
+            JiebaSegmenter.SegMode segMode = mode == Mode.INDEX ? JiebaSegmenter.SegMode.INDEX
+                    : JiebaSegmenter.SegMode.SEARCH;
+            List<SegToken> tokens = cache != null ? cache.process(line, segMode) : segmenter.process(line, segMode);
+            for (SegToken token : tokens) {
+                if (!offsets && token.word.trim().isEmpty()) continue;
+                if (!first) out.append(separator);
+                first = false;
+                out.append(token.word);
+                if (offsets) out.append(',').append(token.startOffset).append(',').append(token.endOffset);
+            }
+        }
+    }
+
+    /**
+     * 从from开始查找第一个换行，返回其后的位置；没有换行时返回limit
+     */
+    private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return limit;
+    }
+
+    /**
+     * 最后一个换行之后的位置，没有换行时返回0
+     */
+    private static int lastLineEnd(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    private static final class Block {
+        final byte[] output;
+        final int lines;
+        final int inputBytes;
+
+        Block(byte[] output, int lines, int inputBytes) {
+            this.output = output;
+            this.lines = lines;
+            this.inputBytes = inputBytes;
+        }
+    }
+
+    public static void main(String[] args) {
+        BatchSegmenter batch = new BatchSegmenter(new JiebaSegmenter());
+        Path output = null;
+        Path cacheFile = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-m":
+                    batch.setMode(Mode.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+                    break;
+                case "-f":
+                    String format = args[++i];
+                    batch.setOffsets("offset".equalsIgnoreCase(format));
+                    batch.setBinary("binary".equalsIgnoreCase(format));
+                    break;
+                case "-s":
+                    batch.setDelimiter(args[++i]);
+                    break;
+                case "-t":
+                    batch.setThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "-b":
+                    batch.setBlockSize(Integer.parseInt(args[++i]) * 1024);
+                    break;
+                case "-o":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "-c":
+                    cacheFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+        if (output == null || inputs.isEmpty()) {
+            System.err.println("usage: BatchSegmenter [-m cut|search|index] [-f text|offset|binary] [-s delimiter]"
+                    + " [-t threads] [-b blockKB] [-c cacheFile] -o output input...");
+            System.exit(1);
+        }
+        SegmentCache cache = cacheFile == null ? null : new SegmentCache(batch.segmenter, cacheFile);
+        batch.setCache(cache);
+        long s = System.currentTimeMillis();
+        batch.process(inputs, output);
+        if (cache != null) {
+            cache.close();
+            System.out.println(String.format(Locale.ROOT, "cache: %d hits, %d misses, %d documents",
+                    cache.getHitCount(), cache.getMissCount(), cache.size()));
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - s);
+        System.out.println(String.format(Locale.ROOT, "%d lines, %.1f MB in %d ms, %.1f MB/s",
+                batch.getLines(), batch.getBytes() / 1048576.0, elapsed, batch.getBytes() / 1048.576 / elapsed));
+    }
+}
@@ -0,0 +1,329 @@
+package com.github.xuchengen.jieba.tool;
+
+import com.github.xuchengen.jieba.CharacterUtil;
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.viterbi.FinalSeg;
+import com.github.xuchengen.jieba.viterbi.HmmModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>从已分词的语料训练HMM模型
+ * <p>语料按行分隔，词之间以空白分隔，词性标注语料（<code>词/词性</code>）可去掉词性后使用。
+ * 每个单字词标为S，多字词标为B、M…、E；连续的中文词构成一个观测序列，非中文的词与行尾结束序列。
+ * <p>与{@link BatchSegmenter}相同，文件被分段映射到内存并在换行处切块，各块由工作线程独立计数，
+ * 计数使用按字符直接索引的基本类型数组，不涉及装箱与哈希；主线程合并各块的计数后换算为对数概率，
+ * 未出现过的转移与发射不写入模型。
+ * <pre>
+ * java -cp jieba-analysis.jar com.github.xuchengen.jieba.tool.HmmTrainer -t 16 -o model/ corpus.txt
+ * </pre>
+ * 训练得到的模型由{@link FinalSeg#loadModel(Path)}加载。
+ **/
+public class HmmTrainer {
+
+    private static final Logger log = LoggerFactory.getLogger(HmmTrainer.class);
+
+    private static final int REGION_SIZE = 512 << 20;
+    private static final char[] STATES = new char[]{'B', 'M', 'E', 'S'};
+    private static final int B = 0, M = 1, E = 2, S = 3;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int blockSize = 4 << 20;
+    private boolean posTagged = false;
+
+    private long lines;
+    private long bytes;
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 每个任务处理的字节数，实际在其后的第一个换行处切分
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = Math.max(4096, blockSize);
+    }
+
+    /**
+     * 语料是否带词性，带词性时去掉每个词最后一个'/'及其后的部分
+     */
+    public void setPosTagged(boolean posTagged) {
+        this.posTagged = posTagged;
+    }
+
+    /**
+     * 已处理的行数
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * 已处理的输入字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 统计所有输入文件并生成模型
+     *
+     * @param inputs 已分词的语料文件
+     */
+    public HmmModel train(List<Path> inputs) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "jieba-hmm-train");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Counts>> pending = new ArrayDeque<>();
+        int maxPending = threads * 2;
+        Counts total = new Counts();
+
+        try {
+            for (Path input : inputs) {
+                try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        long length = Math.min(REGION_SIZE, size - position);
+                        MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                        boolean last = position + length == size;
+                        int end = last ? (int) length : lastLineEnd(region, (int) length);
+                        if (end <= 0) throw new JiebaException(input + ": line longer than " + REGION_SIZE + " bytes");
+
+                        int begin = 0;
+                        while (begin < end) {
+                            int blockEnd = begin + blockSize >= end ? end : lineEnd(region, begin + blockSize, end);
+                            ByteBuffer slice = region.duplicate();
+                            slice.position(begin).limit(blockEnd);
+                            ByteBuffer block = slice.slice();
+                            if (pending.size() >= maxPending) total.merge(pending.poll().get());
+                            pending.add(executor.submit(() -> count(block)));
+                            begin = blockEnd;
+                        }
+                        position += end;
+                    }
+                }
+            }
+            while (!pending.isEmpty()) total.merge(pending.poll().get());
+        } catch (JiebaException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: train HMM model failure!", inputs), e);
+            throw new JiebaException(e);
+        } finally {
+            for (Future<Counts> future : pending) future.cancel(true);
+            executor.shutdownNow();
+        }
+        lines = total.lines;
+        bytes = total.bytes;
+        return total.toModel();
+    }
+
+    /**
+     * 解码一块输入并逐行计数
+     */
+    private Counts count(ByteBuffer input) {
+        Counts counts = new Counts();
+        counts.bytes = input.remaining();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars;
+        try {
+            chars = decoder.decode(input);
+        } catch (IOException e) {
+            throw new JiebaException(e);
+        }
+
+        int length = chars.length();
+        int i = 0;
+        // 序列中上一个字的状态，-1表示序列尚未开始
+        int previous = -1;
+        while (i < length) {
+            char ch = chars.get(i);
+            if (ch == '\n') {
+                counts.lines++;
+                previous = -1;
+                i++;
+                continue;
+            }
+            if (Character.isWhitespace(ch)) {
+                i++;
+                continue;
+            }
+            int begin = i;
+            while (i < length && !Character.isWhitespace(chars.get(i))) i++;
+            int end = i;
+            if (posTagged) {
+                for (int j = end - 1; j > begin; j--) {
+                    if (chars.get(j) == '/') {
+                        end = j;
+                        break;
+                    }
+                }
+            }
+            if (!isChineseWord(chars, begin, end)) {
+                previous = -1;
+                continue;
+            }
+            for (int j = begin; j < end; j++) {
+                int state = end - begin == 1 ? S : j == begin ? B : j == end - 1 ? E : M;
+                if (previous < 0) counts.start[state]++;
+                else counts.trans[previous * 4 + state]++;
+                counts.emit[state][chars.get(j)]++;
+                previous = state;
+            }
+        }
+        if (length > 0 && chars.get(length - 1) != '\n') counts.lines++;
+        return counts;
+    }
+
+    private static boolean isChineseWord(CharBuffer chars, int begin, int end) {
+        if (begin == end) return false;
+        for (int i = begin; i < end; i++) {
+            if (!CharacterUtil.isChineseLetter(chars.get(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 从from开始查找第一个换行，返回其后的位置；没有换行时返回limit
+     */
+    private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return limit;
+    }
+
+    /**
+     * 最后一个换行之后的位置，没有换行时返回0
+     */
+    private static int lastLineEnd(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 一块输入或全部输入的计数，状态按B、M、E、S编号，发射按字符直接索引
+     */
+    private static final class Counts {
+        final long[] start = new long[4];
+        final long[] trans = new long[16];
+        final long[][] emit = new long[4][Character.MAX_VALUE + 1];
+        long lines;
+        long bytes;
+
+        void merge(Counts other) {
+            for (int i = 0; i < 4; i++) start[i] += other.start[i];
+            for (int i = 0; i < 16; i++) trans[i] += other.trans[i];
+            for (int state = 0; state < 4; state++) {
+                long[] to = emit[state];
+                long[] from = other.emit[state];
+                for (int c = 0; c < to.length; c++) to[c] += from[c];
+            }
+            lines += other.lines;
+            bytes += other.bytes;
+        }
+
+        HmmModel toModel() {
+            Map<Character, Double> startProb = new HashMap<>();
+            long startTotal = 0;
+            for (long count : start) startTotal += count;
+            for (int state = 0; state < 4; state++) {
+                if (start[state] > 0) startProb.put(STATES[state], Math.log((double) start[state] / startTotal));
+            }
+
+            Map<Character, Map<Character, Double>> transProb = new HashMap<>();
+            for (int from = 0; from < 4; from++) {
+                long rowTotal = 0;
+                for (int to = 0; to < 4; to++) rowTotal += trans[from * 4 + to];
+                Map<Character, Double> values = new HashMap<>();
+                for (int to = 0; to < 4; to++) {
+                    long count = trans[from * 4 + to];
+                    if (count > 0) values.put(STATES[to], Math.log((double) count / rowTotal));
+                }
+                transProb.put(STATES[from], values);
+            }
+
+            Map<Character, Map<Character, Double>> emitProb = new HashMap<>();
+            for (int state = 0; state < 4; state++) {
+                long[] counts = emit[state];
+                long stateTotal = 0;
+                for (long count : counts) stateTotal += count;
+                Map<Character, Double> values = new HashMap<>();
+                for (int c = 0; c < counts.length; c++) {
+                    if (counts[c] > 0) values.put((char) c, Math.log((double) counts[c] / stateTotal));
+                }
+                emitProb.put(STATES[state], values);
+            }
+            return new HmmModel(startProb, transProb, emitProb);
+        }
+    }
+
+    public static void main(String[] args) {
+        HmmTrainer trainer = new HmmTrainer();
+        Path textDir = null;
+        Path binaryFile = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t":
+                    trainer.setThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "-b":
+                    trainer.setBlockSize(Integer.parseInt(args[++i]) * 1024);
+                    break;
+                case "-p":
+                    trainer.setPosTagged(true);
+                    break;
+                case "-o":
+                    textDir = Paths.get(args[++i]);
+                    break;
+                case "-B":
+                    binaryFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+        if ((textDir == null && binaryFile == null) || inputs.isEmpty()) {
+            System.err.println("usage: HmmTrainer [-t threads] [-b blockKB] [-p] [-o modelDir] [-B modelFile] input...");
+            System.exit(1);
+        }
+        long s = System.currentTimeMillis();
+        HmmModel model = trainer.train(inputs);
+        if (textDir != null) model.writeText(textDir);
+        if (binaryFile != null) model.writeBinary(binaryFile);
+        long elapsed = Math.max(1, System.currentTimeMillis() - s);
+        System.out.println(String.format(Locale.ROOT, "%d lines, %d bytes, %d emissions in %d ms (%.1f MB/s)",
+                trainer.getLines(), trainer.getBytes(), model.getEmitCount(), elapsed,
+                trainer.getBytes() / 1048576.0 / (elapsed / 1000.0)));
+    }
+}
@@ -0,0 +1,439 @@
+package com.github.xuchengen.jieba.tool;
+
+import com.github.xuchengen.jieba.JiebaException;
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.WordDictionary;
+import com.github.xuchengen.jieba.metrics.LatencyHistogram;
+import com.github.xuchengen.jieba.tfidf.TFIDFAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>语料回放压测
+ * <p>将语料文件的每一行作为一篇文档，用多个线程在限定时间或限定输入字符数内反复分词或提取关键词，
+ * 输出文档吞吐、字符吞吐、单篇耗时的p50/p99/p999，以及期间的GC次数、GC耗时与各线程分配的内存。
+ * <p>可以指定多组词典/IDF配置依次压测，以第一组为基准输出对比，用于词典或代码更新上线前的检查：
+ * <pre>
+ * java -cp jieba-analysis.jar com.github.xuchengen.jieba.tool.LoadTest -t 8 -d 30 \
+ *     -c name=old -c name=new,userdict=/data/dict corpus.txt
+ * </pre>
+ * <p>配置项以逗号分隔：<code>name</code>名称，<code>userdict</code>用户词典文件或目录，
+ * <code>idf</code>IDF文件（文本或二进制）。每组配置开始前词典都会重置为主词典。
+ **/
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    /**
+     * 压测的调用方式
+     */
+    public enum Mode {
+        SENTENCE,
+        SEARCH,
+        INDEX,
+        TFIDF
+    }
+
+    private final List<String> docs;
+    private Mode mode = Mode.SEARCH;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long durationMillis = 10_000L;
+    private long warmupMillis = 2_000L;
+    private long maxChars = Long.MAX_VALUE;
+    private int topN = 10;
+
+    public LoadTest(List<String> docs) {
+        if (docs.isEmpty()) throw new IllegalArgumentException("corpus is empty");
+        this.docs = docs;
+    }
+
+    /**
+     * 读取语料文件，忽略空行
+     */
+    public static List<String> readCorpus(Path corpus) {
+        try {
+            List<String> docs = new ArrayList<>();
+            for (String line : Files.readAllLines(corpus, StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) docs.add(line);
+            }
+            return docs;
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: read corpus failure!", corpus), e);
+            throw new JiebaException(e);
+        }
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 压测时长，与{@link #setMaxChars(long)}先达到者为准
+     */
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * 预热时长，预热期间的结果不计入统计
+     */
+    public void setWarmupMillis(long warmupMillis) {
+        this.warmupMillis = warmupMillis;
+    }
+
+    /**
+     * 输入字符总数上限，与{@link #setDurationMillis(long)}先达到者为准
+     */
+    public void setMaxChars(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * TFIDF模式下提取的关键词数
+     */
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    /**
+     * 按给定配置加载词典与IDF后压测
+     */
+    public Result run(Config config) {
+        WordDictionary dictionary = WordDictionary.getInstance();
+        dictionary.loadDict();
+        if (config.userDict != null) {
+            if (Files.isDirectory(config.userDict)) {
+                dictionary.init(config.userDict);
+            } else {
+                dictionary.loadUserDict(config.userDict);
+            }
+        }
+        TFIDFAnalyzer analyzer = new TFIDFAnalyzer(new JiebaSegmenter());
+        if (config.idf != null) {
+            analyzer.loadIDF(config.idf);
+        } else {
+            analyzer.resetIDF();
+        }
+
+        if (warmupMillis > 0) execute(analyzer, warmupMillis, Long.MAX_VALUE, new LatencyHistogram());
+        System.gc();
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long gcCount = 0, gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount -= Math.max(0, gc.getCollectionCount());
+            gcMillis -= Math.max(0, gc.getCollectionTime());
+        }
+        long s = System.nanoTime();
+        Counters counters = execute(analyzer, durationMillis, maxChars, latency);
+        long elapsed = System.nanoTime() - s;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        return new Result(config.name, elapsed, counters.docs.sum(), counters.chars.sum(), counters.tokens.sum(),
+                latency, gcCount, gcMillis, counters.allocatedBytes.sum());
+    }
+
+    private Counters execute(TFIDFAnalyzer analyzer, long millis, long charLimit, LatencyHistogram latency) {
+        JiebaSegmenter segmenter = new JiebaSegmenter();
+        Counters counters = new Counters();
+        AtomicLong budget = new AtomicLong(charLimit);
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Throwable> errors = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = (int) ((long) docs.size() * t / threads);
+            Thread thread = new Thread(() -> {
+                try {
+                    long allocated = allocatedBytes();
+                    int i = offset;
+                    while (System.nanoTime() < deadline) {
+                        String doc = docs.get(i);
+                        if (++i == docs.size()) i = 0;
+                        if (charLimit != Long.MAX_VALUE && budget.addAndGet(-doc.length()) < 0) break;
+
+                        long start = System.nanoTime();
+                        int tokens = invoke(segmenter, analyzer, doc);
+                        latency.record(System.nanoTime() - start);
+                        counters.docs.increment();
+                        counters.chars.add(doc.length());
+                        counters.tokens.add(tokens);
+                    }
+                    if (allocated >= 0) counters.allocatedBytes.add(allocatedBytes() - allocated);
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "jieba-load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JiebaException(e);
+        }
+        if (!errors.isEmpty()) {
+            log.error("load test failure!", errors.get(0));
+            throw new JiebaException(errors.get(0));
+        }
+        return counters;
+    }
+
+    private int invoke(JiebaSegmenter segmenter, TFIDFAnalyzer analyzer, String doc) {
+        switch (mode) {
+            case SENTENCE:
+                return segmenter.sentenceProcess(doc).size();
+            case INDEX:
+                return segmenter.process(doc, JiebaSegmenter.SegMode.INDEX).size();
+            case TFIDF:
+                return analyzer.analyze(doc, topN).size();
+            default:
+                return segmenter.process(doc, JiebaSegmenter.SegMode.SEARCH).size();
+        }
+    }
+
+    /**
+     * 当前线程累计分配的字节数，JVM不支持时返回-1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+
+    private static final class Counters {
+        final LongAdder docs = new LongAdder();
+        final LongAdder chars = new LongAdder();
+        final LongAdder tokens = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+    }
+
+    /**
+     * 一组词典/IDF配置
+     */
+    public static final class Config {
+        private final String name;
+        private final Path userDict;
+        private final Path idf;
+
+        public Config(String name, Path userDict, Path idf) {
+            this.name = name;
+            this.userDict = userDict;
+            this.idf = idf;
+        }
+
+        /**
+         * 解析<code>name=a,userdict=path,idf=path</code>形式的配置
+         */
+        public static Config parse(String spec, String defaultName) {
+            String name = defaultName;
+            Path userDict = null;
+            Path idf = null;
+            for (String item : spec.split(",")) {
+                int eq = item.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("invalid config item: " + item);
+                String key = item.substring(0, eq).trim();
+                String value = item.substring(eq + 1).trim();
+                switch (key) {
+                    case "name":
+                        name = value;
+                        break;
+                    case "userdict":
+                        userDict = Paths.get(value);
+                        break;
+                    case "idf":
+                        idf = Paths.get(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown config key: " + key);
+                }
+            }
+            return new Config(name, userDict, idf);
+        }
+    }
+
+    /**
+     * 一组配置的压测结果，耗时单位为纳秒
+     */
+    public static final class Result {
+        private final String name;
+        private final long elapsedNanos;
+        private final long docs;
+        private final long chars;
+        private final long tokens;
+        private final LatencyHistogram latency;
+        private final long gcCount;
+        private final long gcMillis;
+        private final long allocatedBytes;
+
+        Result(String name, long elapsedNanos, long docs, long chars, long tokens, LatencyHistogram latency,
+               long gcCount, long gcMillis, long allocatedBytes) {
+            this.name = name;
+            this.elapsedNanos = elapsedNanos;
+            this.docs = docs;
+            this.chars = chars;
+            this.tokens = tokens;
+            this.latency = latency;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDocs() {
+            return docs;
+        }
+
+        public long getChars() {
+            return chars;
+        }
+
+        public long getTokens() {
+            return tokens;
+        }
+
+        public double getDocsPerSecond() {
+            return docs * 1e9 / elapsedNanos;
+        }
+
+        public double getCharsPerSecond() {
+            return chars * 1e9 / elapsedNanos;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-12s docs=%d tokens=%d docs/s=%.1f chars/s=%.1f p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus"
+                            + " gc=%d/%dms alloc=%.1fMB (%.1fKB/doc)",
+                    name, docs, tokens, getDocsPerSecond(), getCharsPerSecond(),
+                    latency.getValueAtQuantile(0.5) / 1e3, latency.getValueAtQuantile(0.99) / 1e3,
+                    latency.getValueAtQuantile(0.999) / 1e3, latency.getMax() / 1e3,
+                    gcCount, gcMillis, allocatedBytes / 1048576.0, docs == 0 ? 0 : allocatedBytes / 1024.0 / docs);
+        }
+    }
+
+    private static String compare(Result base, Result other) {
+        return String.format(Locale.ROOT, "%-12s vs %s: docs/s %+.1f%%, p50 %+.1f%%, p99 %+.1f%%, alloc/doc %+.1f%%",
+                other.name, base.name,
+                change(base.getDocsPerSecond(), other.getDocsPerSecond()),
+                change(base.latency.getValueAtQuantile(0.5), other.latency.getValueAtQuantile(0.5)),
+                change(base.latency.getValueAtQuantile(0.99), other.latency.getValueAtQuantile(0.99)),
+                change(base.docs == 0 ? 0 : (double) base.allocatedBytes / base.docs,
+                        other.docs == 0 ? 0 : (double) other.allocatedBytes / other.docs));
+    }
+
+    private static double change(double base, double other) {
+        return base == 0 ? 0 : (other - base) * 100 / base;
+    }
+
+    public static void main(String[] args) {
+        Path corpus = null;
+        List<Config> configs = new ArrayList<>();
+        Mode mode = Mode.SEARCH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long duration = 10, warmup = 2, maxChars = Long.MAX_VALUE;
+        int topN = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-m":
+                    mode = Mode.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-d":
+                    duration = Long.parseLong(args[++i]);
+                    break;
+                case "-w":
+                    warmup = Long.parseLong(args[++i]);
+                    break;
+                case "-n":
+                    maxChars = Long.parseLong(args[++i]);
+                    break;
+                case "-k":
+                    topN = Integer.parseInt(args[++i]);
+                    break;
+                case "-c":
+                    configs.add(Config.parse(args[++i], "config" + (configs.size() + 1)));
+                    break;
+                default:
+                    corpus = Paths.get(args[i]);
+            }
+        }
+        if (corpus == null) {
+            System.err.println("usage: LoadTest [-m sentence|search|index|tfidf] [-t threads] [-d seconds]"
+                    + " [-w warmupSeconds] [-n maxChars] [-k topN] [-c name=a,userdict=path,idf=path]... corpus");
+            System.exit(1);
+        }
+        if (configs.isEmpty()) configs.add(new Config("default", null, null));
+
+        LoadTest test = new LoadTest(readCorpus(corpus));
+        test.setMode(mode);
+        test.setThreads(threads);
+        test.setDurationMillis(duration * 1000);
+        test.setWarmupMillis(warmup * 1000);
+        test.setMaxChars(maxChars);
+        test.setTopN(topN);
+
+        System.out.println(String.format(Locale.ROOT, "mode=%s threads=%d docs=%d", mode, threads, test.docs.size()));
+        List<Result> results = new ArrayList<>();
+        for (Config config : configs) {
+            Result result = test.run(config);
+            results.add(result);
+            System.out.println(result);
+        }
+        for (int i = 1; i < results.size(); i++) {
+            System.out.println(compare(results.get(0), results.get(i)));
+        }
+    }
+}
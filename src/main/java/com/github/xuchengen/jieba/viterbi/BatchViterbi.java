@@ -0,0 +1,236 @@
+package com.github.xuchengen.jieba.viterbi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>批量Viterbi解码
+ * <p>{@link FinalSeg#viterbi(String, List)}逐句解码，每一步都要查Map、装箱与创建路径节点，
+ * 对大量很短的字串，这些开销远大于解码本身。这里一次解码一批字串：
+ * <ul>
+ * <li>模型展开为基本类型数组，发射概率按字符直接索引，缺失的概率预先填为极小值</li>
+ * <li>字串按长度降序排列后每lanes个一组，组内每个字串占一个通道；第i步对所有仍未结束的通道做同样的4状态
+ * max-plus递推，状态分数按状态、通道连续存放，回溯信息每步每通道一个字节</li>
+ * <li>长度相近的字串在同一组，通道很少空转，利用率见{@link #getLaneUtilization()}</li>
+ * </ul>
+ * 加法次序、相等时取后一个前驱状态、结尾在E与S之间的选择都与逐句解码相同，结果逐字相同。
+ * <p>实例只读取构造时的模型，可被多个线程同时使用。
+ **/
+public class BatchViterbi {
+
+    /**
+     * 默认的通道数
+     */
+    public static final int DEFAULT_LANES = 64;
+
+    private static final int B = 0, M = 1, E = 2, S = 3;
+    // 各状态的两个前驱状态，顺序与逐句解码相同，回溯信息中的位为1表示取第二个
+    private static final int[][] PREV = {{E, S}, {M, B}, {B, M}, {S, E}};
+    private static final double MIN_FLOAT = HmmModel.MIN_FLOAT;
+
+    private final HmmModel model;
+    private final int lanes;
+    private final double[] start = new double[4];
+    private final double tEB, tSB, tMM, tBM, tBE, tME, tSS, tES;
+    private final double[] emitB, emitM, emitE, emitS;
+
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder laneSteps = new LongAdder();
+
+    public BatchViterbi(HmmModel model) {
+        this(model, DEFAULT_LANES);
+    }
+
+    /**
+     * @param model 模型
+     * @param lanes 每组的通道数
+     */
+    public BatchViterbi(HmmModel model, int lanes) {
+        this.model = model;
+        this.lanes = Math.max(1, lanes);
+        for (int state = 0; state < 4; state++) start[state] = model.start.get(HmmModel.STATES[state]);
+        tEB = trans(model, 'E', 'B');
+        tSB = trans(model, 'S', 'B');
+        tMM = trans(model, 'M', 'M');
+        tBM = trans(model, 'B', 'M');
+        tBE = trans(model, 'B', 'E');
+        tME = trans(model, 'M', 'E');
+        tSS = trans(model, 'S', 'S');
+        tES = trans(model, 'E', 'S');
+        emitB = emit(model, 'B');
+        emitM = emit(model, 'M');
+        emitE = emit(model, 'E');
+        emitS = emit(model, 'S');
+    }
+
+    private static double trans(HmmModel model, char from, char to) {
+        Double value = model.trans.get(from).get(to);
+        return value == null ? MIN_FLOAT : value;
+    }
+
+    private static double[] emit(HmmModel model, char state) {
+        double[] table = new double[Character.MAX_VALUE + 1];
+        Arrays.fill(table, MIN_FLOAT);
+        for (Map.Entry<Character, Double> entry : model.emit.get(state).entrySet()) {
+            table[entry.getKey()] = entry.getValue();
+        }
+        return table;
+    }
+
+    public HmmModel getModel() {
+        return model;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * 已解码的字数
+     */
+    public long getCharCount() {
+        return chars.sum();
+    }
+
+    /**
+     * 通道利用率：已解码的字数与各组通道数乘以组内最大长度之和的比
+     */
+    public double getLaneUtilization() {
+        long steps = laneSteps.sum();
+        return steps == 0 ? 0 : (double) chars.sum() / steps;
+    }
+
+    /**
+     * 解码一批中文字串
+     *
+     * @param sentences 字串，每个都只含中文字符
+     * @return 与输入顺序相同的切分结果，空串的结果为空列表
+     */
+    public List<List<String>> decode(List<String> sentences) {
+        int n = sentences.size();
+        // 高位为长度的补，低位为下标，升序即按长度降序
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (long) (Integer.MAX_VALUE - sentences.get(i).length()) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        List<List<String>> results = new ArrayList<>(Collections.nCopies(n, Collections.<String>emptyList()));
+        for (int from = 0; from < n; from += lanes) {
+            int width = Math.min(lanes, n - from);
+            // 空串排在最后，遇到即结束
+            while (width > 0 && sentences.get((int) order[from + width - 1]).isEmpty()) width--;
+            if (width == 0) break;
+            decodeGroup(sentences, order, from, width, results);
+        }
+        return results;
+    }
+
+    private void decodeGroup(List<String> sentences, long[] order, int from, int width,
+                             List<List<String>> results) {
+        String[] group = new String[width];
+        for (int lane = 0; lane < width; lane++) group[lane] = sentences.get((int) order[from + lane]);
+        int maxLength = group[0].length();
+
+        // 按步、通道存放的字符与回溯信息
+        char[] text = new char[maxLength * width];
+        for (int lane = 0; lane < width; lane++) {
+            String sentence = group[lane];
+            for (int i = 0; i < sentence.length(); i++) text[i * width + lane] = sentence.charAt(i);
+        }
+        byte[] back = new byte[maxLength * width];
+        double[] vB = new double[width], vM = new double[width], vE = new double[width], vS = new double[width];
+        double[] finalE = new double[width], finalS = new double[width];
+
+        for (int lane = 0; lane < width; lane++) {
+            char c = text[lane];
+            vB[lane] = start[B] + emitB[c];
+            vM[lane] = start[M] + emitM[c];
+            vE[lane] = start[E] + emitE[c];
+            vS[lane] = start[S] + emitS[c];
+        }
+        int active = width;
+        while (active > 0 && group[active - 1].length() == 1) {
+            active--;
+            finalE[active] = vE[active];
+            finalS[active] = vS[active];
+        }
+
+        for (int i = 1; i < maxLength; i++) {
+            int base = i * width;
+            for (int lane = 0; lane < active; lane++) {
+                char c = text[base + lane];
+                double pB = vB[lane], pM = vM[lane], pE = vE[lane], pS = vS[lane];
+                double eB = emitB[c], eM = emitM[c], eE = emitE[c], eS = emitS[c];
+                int bits = 0;
+
+                double a = tEB + (eB + pE), b = tSB + (eB + pS);
+                if (a <= b) bits |= 1 << B;
+                vB[lane] = a <= b ? b : a;
+                a = tMM + (eM + pM);
+                b = tBM + (eM + pB);
+                if (a <= b) bits |= 1 << M;
+                vM[lane] = a <= b ? b : a;
+                a = tBE + (eE + pB);
+                b = tME + (eE + pM);
+                if (a <= b) bits |= 1 << E;
+                vE[lane] = a <= b ? b : a;
+                a = tSS + (eS + pS);
+                b = tES + (eS + pE);
+                if (a <= b) bits |= 1 << S;
+                vS[lane] = a <= b ? b : a;
+
+                back[base + lane] = (byte) bits;
+            }
+            while (active > 0 && group[active - 1].length() == i + 1) {
+                active--;
+                finalE[active] = vE[active];
+                finalS[active] = vS[active];
+            }
+        }
+
+        long charCount = 0;
+        for (int lane = 0; lane < width; lane++) {
+            String sentence = group[lane];
+            int length = sentence.length();
+            charCount += length;
+            byte[] states = new byte[length];
+            int state = finalE[lane] < finalS[lane] ? S : E;
+            states[length - 1] = (byte) state;
+            for (int i = length - 1; i > 0; i--) {
+                state = PREV[state][(back[i * width + lane] >> state) & 1];
+                states[i - 1] = (byte) state;
+            }
+            results.set((int) order[from + lane], tokens(sentence, states));
+        }
+        chars.add(charCount);
+        laneSteps.add((long) maxLength * width);
+    }
+
+    /**
+     * 按状态序列切词，与逐句解码相同
+     */
+    private static List<String> tokens(String sentence, byte[] states) {
+        List<String> tokens = new ArrayList<>();
+        int begin = 0, next = 0;
+        for (int i = 0; i < states.length; ++i) {
+            int state = states[i];
+            if (state == B)
+                begin = i;
+            else if (state == E) {
+                tokens.add(sentence.substring(begin, i + 1));
+                next = i + 1;
+            } else if (state == S) {
+                tokens.add(sentence.substring(i, i + 1));
+                next = i + 1;
+            }
+        }
+        if (next < sentence.length())
+            tokens.add(sentence.substring(next));
+        return tokens;
+    }
+}
@@ -4,6 +4,9 @@ import com.github.xuchengen.jieba.CharacterUtil;
 import com.github.xuchengen.jieba.JiebaException;
 import com.github.xuchengen.jieba.Node;
 import com.github.xuchengen.jieba.Pair;
+import com.github.xuchengen.jieba.metrics.JiebaMetrics;
+import com.github.xuchengen.jieba.metrics.MetricsRecorder;
+import com.github.xuchengen.jieba.metrics.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,7 +15,10 @@ import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 
 
@@ -20,23 +26,44 @@ public class FinalSeg {
 
     private static final Logger log = LoggerFactory.getLogger(FinalSeg.class);
 
-    private static FinalSeg singleInstance;
+    private static volatile FinalSeg singleInstance;
     private static final String PROB_EMIT = "/prob_emit.txt";
-    private static final char[] states = new char[]{'B', 'M', 'E', 'S'};
-    private static Map<Character, Map<Character, Double>> emit;
-    private static Map<Character, Double> start;
-    private static Map<Character, Map<Character, Double>> trans;
+    private static final char[] states = HmmModel.STATES;
+    // 整体替换，解码时只读取一次
+    private static volatile HmmModel model;
     private static Map<Character, char[]> prevStatus;
-    private static final Double MIN_FLOAT = -3.14e100;
+    private static final Double MIN_FLOAT = HmmModel.MIN_FLOAT;
+    // 当前模型的批量解码器，模型替换后首次批量解码时重建
+    private static volatile BatchViterbi batchViterbi;
+
+    // 只缓存不超过此长度的字串，更长的字串很少重复出现
+    private static final int MEMO_MAX_LENGTH = 64;
+    /**
+     * 解码结果缓存的默认容量
+     */
+    public static final int DEFAULT_MEMO_CAPACITY = 4096;
+
+    // 按哈希直接定位的槽位，冲突时新结果覆盖旧结果；为null表示不缓存
+    private volatile AtomicReferenceArray<Memo> memo = new AtomicReferenceArray<>(DEFAULT_MEMO_CAPACITY);
+    // 模型的代数，加载模型或清空缓存时递增，旧代数的缓存结果不再命中
+    private volatile int generation;
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder memoMisses = new LongAdder();
 
     private FinalSeg() {
     }
 
 
-    public synchronized static FinalSeg getInstance() {
-        if (null == singleInstance) {
-            singleInstance = new FinalSeg();
-            singleInstance.loadModel();
+    public static FinalSeg getInstance() {
+        if (singleInstance == null) {
+            synchronized (FinalSeg.class) {
+                if (singleInstance == null) {
+                    FinalSeg finalSeg = new FinalSeg();
+                    finalSeg.loadModel();
+                    // 模型加载完成后才发布实例，之后获取实例不需要同步
+                    singleInstance = finalSeg;
+                }
+            }
         }
         return singleInstance;
     }
@@ -50,13 +77,13 @@ public class FinalSeg {
         prevStatus.put('S', new char[]{'S', 'E'});
         prevStatus.put('E', new char[]{'B', 'M'});
 
-        start = new HashMap<>();
+        Map<Character, Double> start = new HashMap<>();
         start.put('B', -0.26268660809250016);
         start.put('E', -3.14e+100);
         start.put('M', -3.14e+100);
         start.put('S', -1.4652633398537678);
 
-        trans = new HashMap<>();
+        Map<Character, Map<Character, Double>> trans = new HashMap<>();
         Map<Character, Double> transB = new HashMap<>();
         transB.put('E', -0.510825623765990);
         transB.put('M', -0.916290731874155);
@@ -77,19 +104,8 @@ public class FinalSeg {
         try (InputStream is = this.getClass().getResourceAsStream(PROB_EMIT)) {
             if (Objects.isNull(is)) throw new FileNotFoundException("dictionary file not found");
             BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-            emit = new HashMap<>();
-            Map<Character, Double> values = null;
-            while (br.ready()) {
-                String line = br.readLine();
-                String[] tokens = line.split("\t");
-                if (tokens.length == 1) {
-                    values = new HashMap<>();
-                    emit.put(tokens[0].charAt(0), values);
-                } else {
-                    values.put(tokens[0].charAt(0), Double.valueOf(tokens[1]));
-                }
-            }
-            br.close();
+            model = new HmmModel(start, trans, HmmModel.readEmit(br));
+            generation++;
             log.debug(String.format(Locale.getDefault(), "model load finished, time elapsed %d ms.",
                     System.currentTimeMillis() - s));
         } catch (Exception e) {
@@ -99,7 +115,121 @@ public class FinalSeg {
     }
 
 
+    /**
+     * 加载训练得到的模型，替换当前模型，解码结果缓存随之失效
+     * <p>正在进行的解码继续使用旧模型完成
+     *
+     * @param path 文本格式的模型目录或二进制格式的模型文件，见{@link HmmModel}
+     */
+    public void loadModel(Path path) {
+        setModel(HmmModel.load(path));
+    }
+
+
+    /**
+     * 替换当前模型，解码结果缓存随之失效
+     */
+    public void setModel(HmmModel hmmModel) {
+        synchronized (FinalSeg.class) {
+            model = hmmModel;
+            generation++;
+        }
+    }
+
+
+    public HmmModel getModel() {
+        return model;
+    }
+
+
+    /**
+     * HMM模型参数的64位哈希，模型相同则指纹相同
+     */
+    public long getModelFingerprint() {
+        return model.getFingerprint();
+    }
+
+
+    /**
+     * 设置解码结果缓存的容量，向上取整为2的幂
+     *
+     * @param capacity 容量，不大于0表示不缓存
+     */
+    public void setMemoCapacity(int capacity) {
+        if (capacity <= 0) {
+            memo = null;
+            return;
+        }
+        memo = new AtomicReferenceArray<>(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+     * 清空解码结果缓存
+     */
+    public void clearMemo() {
+        generation++;
+    }
+
+    /**
+     * 解码结果缓存的命中次数
+     */
+    public long getMemoHitCount() {
+        return memoHits.sum();
+    }
+
+    /**
+     * 解码结果缓存的未命中次数（不含超长而不缓存的字串）
+     */
+    public long getMemoMissCount() {
+        return memoMisses.sum();
+    }
+
+    /**
+     * 清空命中统计
+     */
+    public void resetMemoStatistics() {
+        memoHits.reset();
+        memoMisses.reset();
+    }
+
+
+    /**
+     * 切分词典未覆盖的字串，中文部分由Viterbi解码
+     * <p>同一字串反复出现时（如人名、品牌名），直接复用上次的切分边界，不再解码
+     *
+     * @param sentence 字串
+     * @param tokens   输出词
+     */
     public void cut(String sentence, List<String> tokens) {
+        AtomicReferenceArray<Memo> table = memo;
+        if (table == null || sentence.length() > MEMO_MAX_LENGTH) {
+            decode(sentence, tokens);
+            return;
+        }
+        int hash = sentence.hashCode();
+        int index = (hash ^ hash >>> 16) & (table.length() - 1);
+        int current = generation;
+        Memo entry = table.get(index);
+        if (entry != null && entry.generation == current && entry.sentence.equals(sentence)) {
+            memoHits.increment();
+            int begin = 0;
+            for (byte length : entry.lengths) {
+                tokens.add(sentence.substring(begin, begin += length));
+            }
+            return;
+        }
+        memoMisses.increment();
+        int from = tokens.size();
+        decode(sentence, tokens);
+        byte[] lengths = new byte[tokens.size() - from];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = (byte) tokens.get(from + i).length();
+        }
+        table.set(index, new Memo(sentence, lengths, current));
+    }
+
+
+    private void decode(String sentence, List<String> tokens) {
         StringBuilder chinese = new StringBuilder();
         StringBuilder other = new StringBuilder();
         for (int i = 0; i < sentence.length(); ++i) {
@@ -128,7 +258,13 @@ public class FinalSeg {
 
 
     public void viterbi(String sentence, List<String> tokens) {
-        Vector<Map<Character, Double>> v = new Vector<>();
+        MetricsRecorder recorder = JiebaMetrics.getRecorder();
+        long startTime = recorder.startTime();
+        int before = tokens.size();
+        HmmModel m = model;
+        Map<Character, Map<Character, Double>> emit = m.emit;
+        Map<Character, Map<Character, Double>> trans = m.trans;
+        List<Map<Character, Double>> v = new ArrayList<>(sentence.length());
         Map<Character, Node> path = new HashMap<>();
 
         v.add(new HashMap<>());
@@ -136,7 +272,7 @@ public class FinalSeg {
             Double emP = emit.get(state).get(sentence.charAt(0));
             if (null == emP)
                 emP = MIN_FLOAT;
-            v.get(0).put(state, start.get(state) + emP);
+            v.get(0).put(state, m.start.get(state) + emP);
             path.put(state, new Node(state, null));
         }
 
@@ -168,7 +304,7 @@ public class FinalSeg {
         }
         double probE = v.get(sentence.length() - 1).get('E');
         double probS = v.get(sentence.length() - 1).get('S');
-        Vector<Character> posList = new Vector<>(sentence.length());
+        List<Character> posList = new ArrayList<>(sentence.length());
         Node win;
         if (probE < probS)
             win = path.get('S');
@@ -196,6 +332,33 @@ public class FinalSeg {
         }
         if (next < sentence.length())
             tokens.add(sentence.substring(next));
+        recorder.record(Stage.HMM, startTime, sentence.length(), tokens.size() - before);
+    }
+
+
+    /**
+     * 批量解码多个中文字串，结果与逐个调用{@link #viterbi(String, List)}相同，见{@link BatchViterbi}
+     *
+     * @param sentences 字串，每个都只含中文字符
+     * @return 与输入顺序相同的切分结果
+     */
+    public List<List<String>> viterbi(List<String> sentences) {
+        MetricsRecorder recorder = JiebaMetrics.getRecorder();
+        long startTime = recorder.startTime();
+        HmmModel m = model;
+        BatchViterbi decoder = batchViterbi;
+        if (decoder == null || decoder.getModel() != m) {
+            decoder = new BatchViterbi(m);
+            batchViterbi = decoder;
+        }
+        List<List<String>> results = decoder.decode(sentences);
+        int chars = 0, count = 0;
+        for (int i = 0; i < results.size(); i++) {
+            chars += sentences.get(i).length();
+            count += results.get(i).size();
+        }
+        recorder.record(Stage.HMM, startTime, chars, count);
+        return results;
     }
 
 
@@ -212,4 +375,19 @@ public class FinalSeg {
         if (offset < other.length())
             tokens.add(other.substring(offset));
     }
+
+    /**
+     * 一个字串的切分结果，以各词的长度表示
+     */
+    private static final class Memo {
+        final String sentence;
+        final byte[] lengths;
+        final int generation;
+
+        Memo(String sentence, byte[] lengths, int generation) {
+            this.sentence = sentence;
+            this.lengths = lengths;
+            this.generation = generation;
+        }
+    }
 }
@@ -0,0 +1,244 @@
+package com.github.xuchengen.jieba.viterbi;
+
+import com.github.xuchengen.jieba.JiebaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>HMM分词模型：初始状态、状态转移与发射的对数概率，状态为B（词首）、M（词中）、E（词尾）、S（单字词）
+ * <p>文本格式为一个目录下的三个文件，均以制表符分隔：
+ * <ul>
+ * <li>prob_start.txt：<code>状态 概率</code></li>
+ * <li>prob_trans.txt：<code>前一状态 状态 概率</code></li>
+ * <li>prob_emit.txt：与内置模型相同，单独一行的状态之后是该状态下的<code>字 概率</code></li>
+ * </ul>
+ * 二进制格式为单个文件，加载时不需要解析文本。缺失的转移与发射概率在解码时视为极小值。
+ * <p>模型加载后不可变，{@link FinalSeg#loadModel(Path)}整体替换正在使用的模型。
+ **/
+public class HmmModel {
+
+    private static final Logger log = LoggerFactory.getLogger(HmmModel.class);
+
+    static final char[] STATES = new char[]{'B', 'M', 'E', 'S'};
+    static final double MIN_FLOAT = -3.14e100;
+
+    /**
+     * 文本格式的文件名
+     */
+    public static final String START_FILE = "prob_start.txt";
+    public static final String TRANS_FILE = "prob_trans.txt";
+    public static final String EMIT_FILE = "prob_emit.txt";
+
+    private static final int MAGIC = 0x4A42484D;
+    private static final int FORMAT = 1;
+
+    final Map<Character, Double> start;
+    final Map<Character, Map<Character, Double>> trans;
+    final Map<Character, Map<Character, Double>> emit;
+    private final long fingerprint;
+
+    /**
+     * @param start 初始状态概率，缺失的状态取极小值
+     * @param trans 转移概率，按前一状态、状态索引
+     * @param emit  发射概率，按状态、字索引
+     */
+    public HmmModel(Map<Character, Double> start, Map<Character, Map<Character, Double>> trans,
+                    Map<Character, Map<Character, Double>> emit) {
+        Map<Character, Double> starts = new HashMap<>(start);
+        Map<Character, Map<Character, Double>> transitions = new HashMap<>();
+        Map<Character, Map<Character, Double>> emissions = new HashMap<>();
+        for (char state : STATES) {
+            starts.putIfAbsent(state, MIN_FLOAT);
+            transitions.put(state, new HashMap<>(trans.getOrDefault(state, Collections.emptyMap())));
+            emissions.put(state, new HashMap<>(emit.getOrDefault(state, Collections.emptyMap())));
+        }
+        this.start = starts;
+        this.trans = transitions;
+        this.emit = emissions;
+        this.fingerprint = fingerprint(fingerprint(fingerprint(0xcbf29ce484222325L, starts), transitions), emissions);
+    }
+
+    /**
+     * 模型参数的64位哈希，模型相同则指纹相同
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 发射概率的条目数
+     */
+    public int getEmitCount() {
+        int count = 0;
+        for (Map<Character, Double> values : emit.values()) count += values.size();
+        return count;
+    }
+
+    /**
+     * 加载模型，目录按文本格式读取，文件按二进制格式读取
+     *
+     * @param path 目录或文件
+     */
+    public static HmmModel load(Path path) {
+        long s = System.currentTimeMillis();
+        try {
+            HmmModel model = Files.isDirectory(path) ? readText(path) : readBinary(path);
+            log.debug(String.format(Locale.getDefault(), "%s: model load finished, time elapsed %d ms", path,
+                    System.currentTimeMillis() - s));
+            return model;
+        } catch (Exception e) {
+            log.error(String.format(Locale.getDefault(), "%s: load model failure!", path), e);
+            throw new JiebaException(e);
+        }
+    }
+
+    private static HmmModel readText(Path dir) throws IOException {
+        Map<Character, Double> start = new HashMap<>();
+        for (String line : Files.readAllLines(dir.resolve(START_FILE), StandardCharsets.UTF_8)) {
+            String[] tokens = line.split("\t");
+            if (tokens.length == 2) start.put(tokens[0].charAt(0), Double.valueOf(tokens[1]));
+        }
+        Map<Character, Map<Character, Double>> trans = new HashMap<>();
+        for (String line : Files.readAllLines(dir.resolve(TRANS_FILE), StandardCharsets.UTF_8)) {
+            String[] tokens = line.split("\t");
+            if (tokens.length == 3) {
+                trans.computeIfAbsent(tokens[0].charAt(0), k -> new HashMap<>())
+                        .put(tokens[1].charAt(0), Double.valueOf(tokens[2]));
+            }
+        }
+        try (BufferedReader br = Files.newBufferedReader(dir.resolve(EMIT_FILE), StandardCharsets.UTF_8)) {
+            return new HmmModel(start, trans, readEmit(br));
+        }
+    }
+
+    /**
+     * 读取prob_emit.txt格式的发射概率
+     */
+    static Map<Character, Map<Character, Double>> readEmit(BufferedReader br) throws IOException {
+        Map<Character, Map<Character, Double>> emit = new HashMap<>();
+        Map<Character, Double> values = null;
+        String line;
+        while ((line = br.readLine()) != null) {
+            String[] tokens = line.split("\t");
+            if (tokens.length == 1) {
+                if (tokens[0].isEmpty()) continue;
+                values = new HashMap<>();
+                emit.put(tokens[0].charAt(0), values);
+            } else if (values != null) {
+                values.put(tokens[0].charAt(0), Double.valueOf(tokens[1]));
+            }
+        }
+        return emit;
+    }
+
+    private static HmmModel readBinary(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) throw new IOException("not a binary HMM model");
+            Map<Character, Double> start = new HashMap<>();
+            Map<Character, Map<Character, Double>> trans = new HashMap<>();
+            Map<Character, Map<Character, Double>> emit = new HashMap<>();
+            for (char state : STATES) start.put(state, in.readDouble());
+            for (char from : STATES) {
+                Map<Character, Double> values = new HashMap<>();
+                for (char to : STATES) {
+                    double value = in.readDouble();
+                    if (!Double.isNaN(value)) values.put(to, value);
+                }
+                trans.put(from, values);
+            }
+            for (char state : STATES) {
+                int count = in.readInt();
+                Map<Character, Double> values = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) values.put(in.readChar(), in.readDouble());
+                emit.put(state, values);
+            }
+            return new HmmModel(start, trans, emit);
+        }
+    }
+
+    /**
+     * 按文本格式写入目录，目录不存在时创建
+     */
+    public void writeText(Path dir) {
+        try {
+            Files.createDirectories(dir);
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(START_FILE), StandardCharsets.UTF_8)) {
+                for (char state : STATES) writer.write(state + "\t" + start.get(state) + "\n");
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(TRANS_FILE), StandardCharsets.UTF_8)) {
+                for (char from : STATES) {
+                    for (Map.Entry<Character, Double> entry : new TreeMap<>(trans.get(from)).entrySet()) {
+                        writer.write(from + "\t" + entry.getKey() + "\t" + entry.getValue() + "\n");
+                    }
+                }
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(EMIT_FILE), StandardCharsets.UTF_8)) {
+                for (char state : STATES) {
+                    writer.write(state + "\n");
+                    for (Map.Entry<Character, Double> entry : new TreeMap<>(emit.get(state)).entrySet()) {
+                        writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s: write model failure!", dir), e);
+            throw new JiebaException(e);
+        }
+    }
+
+    /**
+     * 按二进制格式写入文件
+     */
+    public void writeBinary(Path file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            for (char state : STATES) out.writeDouble(start.get(state));
+            for (char from : STATES) {
+                for (char to : STATES) out.writeDouble(trans.get(from).getOrDefault(to, Double.NaN));
+            }
+            for (char state : STATES) {
+                Map<Character, Double> values = new TreeMap<>(emit.get(state));
+                out.writeInt(values.size());
+                for (Map.Entry<Character, Double> entry : values.entrySet()) {
+                    out.writeChar(entry.getKey());
+                    out.writeDouble(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            log.error(String.format(Locale.getDefault(), "%s: write model failure!", file), e);
+            throw new JiebaException(e);
+        }
+    }
+
+    private static long fingerprint(long hash, Map<Character, ?> values) {
+        for (Map.Entry<Character, ?> entry : new TreeMap<>(values).entrySet()) {
+            hash = (hash ^ entry.getKey()) * 0x100000001b3L;
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<Character, ?> nested = (Map<Character, ?>) value;
+                hash = fingerprint(hash, nested);
+            } else {
+                hash = (hash ^ Double.doubleToLongBits((Double) value)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.xuchengen.jieba;
+
+import com.github.xuchengen.jieba.metrics.JiebaMetrics;
+import com.github.xuchengen.jieba.metrics.Limit;
+import com.github.xuchengen.jieba.metrics.MetricsRecorder;
+import com.github.xuchengen.jieba.metrics.Stage;
+import com.github.xuchengen.jieba.viterbi.FinalSeg;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>分词器的切分方式列举、迭代器与流的结果，以及保护限制的边界
+ **/
+public class JiebaSegmenterTest {
+
+    private static final String[] SENTENCES = {
+            "结果婚的和尚未结过婚的",
+            "南京市长江大桥",
+            "工信处女干事每月经过下属科室",
+            "研究生命起源",
+            "我"
+    };
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+    private final WordDictionary dictionary = WordDictionary.getInstance();
+    private final LimitRecorder recorder = new LimitRecorder();
+
+    @After
+    public void uninstallRecorder() {
+        JiebaMetrics.setRecorder(null);
+    }
+
+    @Test
+    public void firstPathIsMaximumProbabilityRoute() {
+        for (String sentence : SENTENCES) {
+            assertEquals(sentence, segmenter.cutDAG(sentence), segmenter.kBestPaths(sentence, 1).get(0).getWords());
+        }
+    }
+
+    @Test
+    public void pathsAreDistinctAndOrdered() {
+        for (String sentence : SENTENCES) {
+            Map<List<String>, Double> all = allPaths(sentence);
+            List<SegPath> paths = segmenter.kBestPaths(sentence, 20);
+            assertEquals(sentence, Math.min(20, all.size()), paths.size());
+            Set<List<String>> seen = new HashSet<>();
+            for (int i = 0; i < paths.size(); i++) {
+                SegPath path = paths.get(i);
+                assertTrue(sentence, seen.add(path.getWords()));
+                assertEquals(sentence, all.get(path.getWords()), path.getFreq(), 0.0);
+                if (i > 0) assertTrue(sentence, paths.get(i - 1).getFreq() >= path.getFreq());
+            }
+            // 未列出的切分都不比最后一种更好
+            double last = paths.get(paths.size() - 1).getFreq();
+            for (Map.Entry<List<String>, Double> entry : all.entrySet()) {
+                if (!seen.contains(entry.getKey())) assertTrue(sentence, entry.getValue() <= last);
+            }
+        }
+    }
+
+    @Test
+    public void largeKReturnsAllPaths() {
+        for (String sentence : SENTENCES) {
+            Map<List<String>, Double> all = allPaths(sentence);
+            List<SegPath> paths = segmenter.kBestPaths(sentence, all.size() + 10);
+            assertEquals(sentence, all.size(), paths.size());
+            Set<List<String>> words = new HashSet<>();
+            for (SegPath path : paths) words.add(path.getWords());
+            assertEquals(sentence, all.keySet(), words);
+        }
+    }
+
+    @Test
+    public void iteratorAndStreamMatchProcess() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("南京市长江大桥于1968年建成，ＡＢＣ全角与😀表情；他来到了网易杭研大厦。工信处女干事每月经过下属科室\n");
+        }
+        String paragraph = text.toString();
+        for (JiebaSegmenter.SegMode mode : JiebaSegmenter.SegMode.values()) {
+            List<String> expected = format(segmenter.process(paragraph, mode));
+
+            List<SegToken> iterated = new ArrayList<>();
+            for (Iterator<SegToken> it = segmenter.iterator(paragraph, mode); it.hasNext(); ) iterated.add(it.next());
+            assertEquals(mode.name(), expected, format(iterated));
+            assertEquals(mode.name(), expected, format(segmenter.stream(paragraph, mode, false)
+                    .collect(Collectors.toList())));
+            assertEquals(mode.name(), expected, format(segmenter.stream(paragraph, mode, true)
+                    .collect(Collectors.toList())));
+            assertEquals(mode.name(), expected.subList(0, 10), format(segmenter.stream(paragraph, mode, true)
+                    .limit(10).collect(Collectors.toList())));
+
+            // 拆分出的前后两部分依次相接即为完整结果
+            SegTokenSpliterator suffix = new SegTokenSpliterator(segmenter, paragraph, mode);
+            Spliterator<SegToken> prefix = suffix.trySplit();
+            assertNotNull(prefix);
+            List<SegToken> joined = new ArrayList<>();
+            prefix.forEachRemaining(joined::add);
+            int split = joined.size();
+            suffix.forEachRemaining(joined::add);
+            assertTrue(split > 0 && split < joined.size());
+            assertEquals(mode.name(), expected, format(joined));
+        }
+    }
+
+    @Test
+    public void defaultLimitsLeaveOutputUnchanged() {
+        JiebaSegmenter limited = new JiebaSegmenter();
+        limited.setMaxSpanLength(0);
+        limited.setMaxHmmLength(-1);
+        limited.setStepBudget(0);
+        JiebaMetrics.setRecorder(recorder);
+        for (String sentence : Arrays.asList("杭研大厦王晓芸陈嘉怡赵梓萱大厦杭研", "他来到了网易杭研大厦", SENTENCES[2])) {
+            List<String> expected = segmenter.sentenceProcess(sentence);
+            assertEquals(expected, limited.sentenceProcess(sentence));
+            // 恰好等于上限时不触发限制
+            limited.setMaxSpanLength(sentence.length());
+            limited.setMaxHmmLength(sentence.length());
+            limited.setStepBudget(dagSize(sentence) + sentence.length());
+            assertEquals(expected, limited.sentenceProcess(sentence));
+            limited.setMaxSpanLength(0);
+            limited.setMaxHmmLength(0);
+            limited.setStepBudget(0);
+        }
+        assertTrue(recorder.limits.isEmpty());
+    }
+
+    @Test
+    public void spanLimitCutsFixedLengthSpans() {
+        String sentence = "南京市长江大桥南京市长江大桥";
+        JiebaSegmenter limited = new JiebaSegmenter();
+        limited.setMaxSpanLength(5);
+        JiebaMetrics.setRecorder(recorder);
+        List<String> actual = limited.sentenceProcess(sentence);
+        JiebaMetrics.setRecorder(null);
+
+        List<String> expected = new ArrayList<>();
+        for (String span : Arrays.asList("南京市长江", "大桥南京市", "长江大桥")) {
+            expected.addAll(segmenter.sentenceProcess(span));
+        }
+        assertEquals(expected, actual);
+        assertEquals(Collections.singletonMap(Limit.SPAN, Collections.singletonList(sentence.length())),
+                recorder.limits);
+    }
+
+    @Test
+    public void hmmLimitDecodesFixedLengthChunks() {
+        // 整句都是连续单字，只有一段交给HMM
+        String sentence = "王晓芸陈嘉怡赵梓萱";
+        assertEquals(sentence.length(), segmenter.cutDAG(sentence).size());
+        JiebaSegmenter limited = new JiebaSegmenter();
+        limited.setMaxHmmLength(4);
+        JiebaMetrics.setRecorder(recorder);
+        List<String> actual = limited.sentenceProcess(sentence);
+        JiebaMetrics.setRecorder(null);
+
+        List<String> expected = new ArrayList<>();
+        for (String chunk : Arrays.asList("王晓芸陈", "嘉怡赵梓", "萱")) FinalSeg.getInstance().cut(chunk, expected);
+        assertEquals(expected, actual);
+        assertEquals(Collections.singletonMap(Limit.HMM, Collections.singletonList(sentence.length())),
+                recorder.limits);
+    }
+
+    @Test
+    public void budgetFallbackStaysForRestOfCall() {
+        // 三段连续单字：杭研、王晓芸陈嘉怡赵梓萱、杭研
+        String sentence = "杭研大厦王晓芸陈嘉怡赵梓萱大厦杭研";
+        assertEquals(Arrays.asList("杭研", "大厦", "王晓芸", "陈嘉怡", "赵梓", "萱", "大厦", "杭研"),
+                segmenter.sentenceProcess(sentence));
+        JiebaSegmenter limited = new JiebaSegmenter();
+        // 第一段解码后剩2步：不够第二段，够第三段，但降级后不再恢复
+        limited.setStepBudget(dagSize(sentence) + 2 + 2);
+        JiebaMetrics.setRecorder(recorder);
+        List<String> actual = limited.sentenceProcess(sentence);
+        JiebaMetrics.setRecorder(null);
+
+        assertEquals(Arrays.asList("杭研", "大厦", "王", "晓", "芸", "陈", "嘉", "怡", "赵", "梓", "萱", "大厦", "杭", "研"),
+                actual);
+        assertEquals(Collections.singletonMap(Limit.BUDGET, Collections.singletonList(9)), recorder.limits);
+        // 结果可复现
+        assertEquals(actual, limited.sentenceProcess(sentence));
+    }
+
+    /**
+     * 有向无环图的边数，与分词器计入步数预算的一致：每个位置上词典中的词数，没有时按一个单字计
+     */
+    private int dagSize(String sentence) {
+        int size = 0;
+        for (int from = 0; from < sentence.length(); from++) {
+            int edges = 0;
+            for (int to = from + 1; to <= sentence.length(); to++) {
+                if (dictionary.containsWord(sentence.substring(from, to))) edges++;
+            }
+            size += Math.max(1, edges);
+        }
+        return size;
+    }
+
+    private static List<String> format(List<SegToken> tokens) {
+        List<String> formatted = new ArrayList<>(tokens.size());
+        for (SegToken token : tokens) formatted.add(token.word + "@" + token.startOffset + "-" + token.endOffset);
+        return formatted;
+    }
+
+    /**
+     * 穷举有向无环图上的所有切分及其分数，分数与kBestPaths一样从句尾向前累加
+     */
+    private Map<List<String>, Double> allPaths(String sentence) {
+        Map<List<String>, Double> paths = new HashMap<>();
+        collect(sentence, 0, new ArrayList<>(), paths);
+        return paths;
+    }
+
+    private void collect(String sentence, int from, List<String> words, Map<List<String>, Double> paths) {
+        if (from == sentence.length()) {
+            double score = 0.0;
+            for (int i = words.size() - 1; i >= 0; i--) score = dictionary.getFreq(dictionary.getWordId(words.get(i))) + score;
+            paths.put(new ArrayList<>(words), score);
+            return;
+        }
+        List<String> candidates = new ArrayList<>();
+        for (int to = from + 1; to <= sentence.length(); to++) {
+            if (dictionary.containsWord(sentence.substring(from, to))) candidates.add(sentence.substring(from, to));
+        }
+        if (candidates.isEmpty()) candidates.add(sentence.substring(from, from + 1));
+        for (String word : candidates) {
+            words.add(word);
+            collect(sentence, from + word.length(), words, paths);
+            words.remove(words.size() - 1);
+        }
+    }
+
+    /**
+     * 按限制记录每次触发时受影响的字符数
+     */
+    private static final class LimitRecorder implements MetricsRecorder {
+        final Map<Limit, List<Integer>> limits = new EnumMap<>(Limit.class);
+
+        @Override
+        public long startTime() {
+            return 0L;
+        }
+
+        @Override
+        public void record(Stage stage, long startTime, int inputLength, int tokens) {
+        }
+
+        @Override
+        public void limit(Limit limit, int inputLength) {
+            limits.computeIfAbsent(limit, key -> new ArrayList<>()).add(inputLength);
+        }
+    }
+}
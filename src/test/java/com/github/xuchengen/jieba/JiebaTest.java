@@ -6,6 +6,8 @@ import org.junit.Test;
 
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * <p>
  * <p>作者：徐承恩
@@ -25,4 +27,20 @@ public class JiebaTest {
         }
     }
 
+    @Test
+    public void wordIds() {
+        String sentence = "南都记者朱蓉婷通讯员琼花报道，结果婚的和尚未结过婚的";
+        JiebaSegmenter jiebaSegmenter = new JiebaSegmenter();
+        WordDictionary wordDictionary = WordDictionary.getInstance();
+        List<String> tokens = jiebaSegmenter.sentenceProcess(sentence);
+        int[] ids = jiebaSegmenter.sentenceProcessIds(sentence);
+        assertEquals(tokens.size(), ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) {
+                assertEquals(tokens.get(i), wordDictionary.getWord(ids[i]));
+            }
+            assertEquals(wordDictionary.containsWord(tokens.get(i)), ids[i] >= 0);
+        }
+    }
+
 }
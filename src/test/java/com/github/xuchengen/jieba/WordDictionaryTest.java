@@ -0,0 +1,145 @@
+package com.github.xuchengen.jieba;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>词典运行时修改：添加、删除、压缩与指纹
+ * <p>各用例修改的是全局词典，结束时删除自己添加的词
+ **/
+public class WordDictionaryTest {
+
+    private static final String SENTENCE = "他说今天真是蓝瘦香菇，明天再去买菜";
+    private static final String WORD = "蓝瘦香菇";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+    private final WordDictionary dictionary = WordDictionary.getInstance();
+
+    @Test
+    public void addWordChangesSegmentation() {
+        assertFalse(segmenter.sentenceProcess(SENTENCE).contains(WORD));
+        try {
+            dictionary.addWord(WORD, 1000);
+            assertTrue(dictionary.containsWord(WORD));
+            assertTrue(segmenter.sentenceProcess(SENTENCE).contains(WORD));
+        } finally {
+            dictionary.deleteWord(WORD);
+        }
+    }
+
+    @Test
+    public void deleteWordRemovesWord() {
+        dictionary.addWord(WORD, 1000);
+        int count = dictionary.getWordCount();
+        int ids = dictionary.getIdCount();
+        assertTrue(dictionary.deleteWord(WORD));
+        assertFalse(dictionary.containsWord(WORD));
+        assertFalse(segmenter.sentenceProcess(SENTENCE).contains(WORD));
+        assertEquals(count - 1, dictionary.getWordCount());
+        assertEquals(ids, dictionary.getIdCount());
+        assertFalse(dictionary.deleteWord(WORD));
+    }
+
+    @Test
+    public void compactKeepsSegmentation() {
+        List<String> sentences = Arrays.asList(SENTENCE, "结果婚的和尚未结过婚的", "南京市长江大桥", "工信处女干事每月经过下属科室");
+        dictionary.addWord(WORD, 1000);
+        // 留下一个墓碑
+        dictionary.addWord("香菇蓝瘦", 1000);
+        dictionary.deleteWord("香菇蓝瘦");
+        try {
+            List<List<String>> before = new ArrayList<>();
+            for (String sentence : sentences) before.add(segmenter.sentenceProcess(sentence));
+            long fingerprint = dictionary.getFingerprint();
+            dictionary.compact();
+            assertEquals(0, dictionary.getTombstoneCount());
+            for (int i = 0; i < sentences.size(); i++) {
+                assertEquals(before.get(i), segmenter.sentenceProcess(sentences.get(i)));
+            }
+            assertEquals(fingerprint, dictionary.getFingerprint());
+        } finally {
+            dictionary.deleteWord(WORD);
+        }
+    }
+
+    @Test
+    public void fingerprintChangesOnEachMutation() {
+        long initial = dictionary.getFingerprint();
+        try {
+            dictionary.addWord(WORD, 1000);
+            long added = dictionary.getFingerprint();
+            assertNotEquals(initial, added);
+            dictionary.addWord(WORD, 2000);
+            long changed = dictionary.getFingerprint();
+            assertNotEquals(added, changed);
+            dictionary.deleteWord(WORD);
+            assertNotEquals(changed, dictionary.getFingerprint());
+        } finally {
+            dictionary.deleteWord(WORD);
+        }
+    }
+
+    @Test
+    public void suggestionsFollowMutations() {
+        assertFalse(dictionary.suggest("蓝瘦", 5).contains(WORD));
+        try {
+            dictionary.addWord(WORD, 1e9);
+            assertEquals(WORD, dictionary.suggest("蓝瘦", 5).get(0));
+            assertEquals(WORD, dictionary.suggest("蓝", 1).get(0));
+            dictionary.addWord(WORD, 1);
+            assertNotEquals(WORD, dictionary.suggest("蓝", 1).get(0));
+            assertTrue(dictionary.suggest("蓝瘦", 5).contains(WORD));
+        } finally {
+            dictionary.deleteWord(WORD);
+        }
+        assertFalse(dictionary.suggest("蓝瘦", 5).contains(WORD));
+    }
+
+    @Test
+    public void reloadReplaysMutationsInOrder() throws IOException {
+        Path userDict = folder.newFile("user.dict").toPath();
+        Files.write(userDict, "香菇蓝瘦 1000\n".getBytes(StandardCharsets.UTF_8));
+        // 从只有主词典的状态开始，之前用例留下的已删除编号不影响重放后的编号
+        dictionary.loadDict();
+        try {
+            // 删除不存在的词不记录，不会在重放时删掉随后由用户词典加入的词
+            assertFalse(dictionary.deleteWord("香菇蓝瘦"));
+            // 用户词典在运行时修改之后加载，重放后以用户词典的词频为准
+            dictionary.addWord(WORD, 1e9);
+            Files.write(userDict, ("香菇蓝瘦 1000\n" + WORD + " 1000\n").getBytes(StandardCharsets.UTF_8));
+            dictionary.loadUserDict(userDict);
+            double freq = dictionary.getFreq(WORD);
+            long fingerprint = dictionary.getFingerprint();
+
+            dictionary.reload();
+            assertTrue(dictionary.containsWord("香菇蓝瘦"));
+            assertEquals(freq, dictionary.getFreq(WORD), 0.0);
+            assertEquals(fingerprint, dictionary.getFingerprint());
+
+            assertTrue(dictionary.deleteWord("香菇蓝瘦"));
+            dictionary.reload();
+            assertFalse(dictionary.containsWord("香菇蓝瘦"));
+            assertTrue(dictionary.containsWord(WORD));
+        } finally {
+            dictionary.loadDict();
+        }
+        assertFalse(dictionary.containsWord(WORD));
+    }
+}
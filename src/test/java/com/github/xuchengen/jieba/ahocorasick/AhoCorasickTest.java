@@ -0,0 +1,94 @@
+package com.github.xuchengen.jieba.ahocorasick;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>多模式匹配：重叠与包含的词、失败指针上的输出、最左最长匹配与大小写
+ **/
+public class AhoCorasickTest {
+
+    @Test
+    public void overlappingTerms() {
+        AhoCorasick scanner = new AhoCorasick(Arrays.asList("he", "she", "his", "hers"));
+        // 结束位置相同时较长的词在前；he沿she的失败指针输出
+        assertEquals("[[she, 1, 4], [he, 2, 4], [hers, 2, 6]]", scanner.findAll("ushers").toString());
+    }
+
+    @Test
+    public void nestedTerms() {
+        AhoCorasick scanner = new AhoCorasick(Arrays.asList("中华", "华人", "中华人民", "人民", "共和国", "和"));
+        assertEquals("[[中华, 0, 2], [华人, 1, 3], [中华人民, 0, 4], [人民, 2, 4], [和, 5, 6], [共和国, 4, 7]]",
+                scanner.findAll("中华人民共和国").toString());
+    }
+
+    @Test
+    public void failureLinkOutputs() {
+        // 匹配abcd失败后经失败指针转到bcd，再沿输出链报告cd与d
+        AhoCorasick scanner = new AhoCorasick(Arrays.asList("abcde", "bcd", "cd", "d"));
+        assertEquals("[[bcd, 1, 4], [cd, 2, 4], [d, 3, 4]]", scanner.findAll("abcdx").toString());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> terms = new ArrayList<>();
+            for (int i = 0; i < 8; i++) terms.add(randomText(random, 1 + random.nextInt(4)));
+            String text = randomText(random, 40);
+            AhoCorasick scanner = new AhoCorasick(terms);
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < terms.size(); i++) {
+                // 重复的词沿用第一次出现的编号
+                if (terms.indexOf(terms.get(i)) != i) continue;
+                for (int at = text.indexOf(terms.get(i)); at >= 0; at = text.indexOf(terms.get(i), at + 1)) {
+                    expected.add(i + "@" + at);
+                }
+            }
+            List<String> actual = new ArrayList<>();
+            for (TermHit hit : scanner.findAll(text)) {
+                assertEquals(hit.getTerm(), text.substring(hit.getStart(), hit.getEnd()));
+                actual.add(hit.getTermId() + "@" + hit.getStart());
+            }
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void longestMatch() {
+        AhoCorasick scanner = new AhoCorasick(Arrays.asList("中华", "中华人民", "人民共和国", "共和国", "国"));
+        assertEquals("[[中华人民, 0, 4], [共和国, 4, 7]]", scanner.findLongest("中华人民共和国").toString());
+        // 开始位置靠前的优先，即使后面有更长的词
+        scanner = new AhoCorasick(Arrays.asList("ab", "bcdef", "ef"));
+        assertEquals("[[ab, 0, 2], [ef, 4, 6]]", scanner.findLongest("abcdef").toString());
+        assertEquals("[]", scanner.findLongest("xyz").toString());
+    }
+
+    @Test
+    public void caseSensitivity() {
+        List<String> terms = Collections.singletonList("iPhone");
+        assertFalse(new AhoCorasick(terms).containsAny("新款IPHONE手机"));
+        AhoCorasick scanner = new AhoCorasick(terms, true);
+        assertTrue(scanner.isIgnoreCase());
+        assertEquals("[[iPhone, 2, 8]]", scanner.findAll("新款IPHONE手机").toString());
+        assertTrue(new AhoCorasick(terms).containsAny("新款iPhone手机"));
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = (char) ('a' + random.nextInt(3));
+        return new String(chars);
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.xuchengen.jieba.async;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>异步接口：队列满时的拒绝与等待、相同请求的合并、关闭时排队请求的失败与空参数
+ * <p>唯一的计算线程阻塞在特定文本上，使队列的状态确定
+ **/
+public class AsyncSegmenterTest {
+
+    private static final String BLOCK = "阻塞的请求";
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final JiebaSegmenter segmenter = new JiebaSegmenter() {
+        @Override
+        public List<String> sentenceProcess(String sentence) {
+            if (BLOCK.equals(sentence)) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.sentenceProcess(sentence);
+        }
+    };
+    private final AsyncSegmenter async = new AsyncSegmenter(segmenter);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @Before
+    public void configure() {
+        async.setThreads(1);
+        async.setQueueCapacity(1);
+    }
+
+    @After
+    public void close() {
+        release.countDown();
+        async.close();
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void rejectWhenQueueIsFull() throws Exception {
+        async.setOverflow(AsyncSegmenter.Overflow.REJECT);
+        async.start();
+        CompletableFuture<List<String>> running = block();
+        CompletableFuture<List<String>> queued = async.sentenceProcess("南京市长江大桥");
+        CompletableFuture<List<String>> rejected = async.sentenceProcess("研究生命起源");
+
+        assertTrue(failure(rejected) instanceof RejectedExecutionException);
+        assertEquals(1, async.getRejectedCount());
+        release.countDown();
+        assertEquals(segmenter.sentenceProcess(BLOCK), running.get(10, TimeUnit.SECONDS));
+        assertEquals(segmenter.sentenceProcess("南京市长江大桥"), queued.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void blockWaitsForRoom() throws Exception {
+        async.setOverflow(AsyncSegmenter.Overflow.BLOCK);
+        async.setBlockTimeout(10, TimeUnit.SECONDS);
+        async.start();
+        CompletableFuture<List<String>> running = block();
+        CompletableFuture<List<String>> queued = async.sentenceProcess("南京市长江大桥");
+        Future<CompletableFuture<List<String>>> waiting = callers.submit(() -> async.sentenceProcess("研究生命起源"));
+
+        // 队列腾出空间前提交线程一直等待
+        try {
+            waiting.get(200, TimeUnit.MILLISECONDS);
+            fail("submission should wait for room in the queue");
+        } catch (TimeoutException expected) {
+            // 仍在等待
+        }
+        release.countDown();
+        assertEquals(segmenter.sentenceProcess("研究生命起源"),
+                waiting.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS));
+        running.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+        assertEquals(0, async.getRejectedCount());
+    }
+
+    @Test
+    public void blockFailsAfterTimeout() throws Exception {
+        async.setOverflow(AsyncSegmenter.Overflow.BLOCK);
+        async.setBlockTimeout(50, TimeUnit.MILLISECONDS);
+        async.start();
+        block();
+        async.sentenceProcess("南京市长江大桥");
+        long start = System.nanoTime();
+        CompletableFuture<List<String>> timedOut = async.sentenceProcess("研究生命起源");
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(failure(timedOut) instanceof RejectedExecutionException);
+        assertEquals(1, async.getRejectedCount());
+    }
+
+    @Test
+    public void coalescedCallersAreIndependent() throws Exception {
+        async.setQueueCapacity(4);
+        async.start();
+        CompletableFuture<List<String>> first = block();
+        CompletableFuture<List<String>> second = async.sentenceProcess(BLOCK);
+        CompletableFuture<List<String>> third = async.sentenceProcess(BLOCK);
+        assertEquals(1, async.getSubmittedCount());
+        assertEquals(2, async.getCoalescedCount());
+
+        // 取消发起计算的调用方与一个合并的调用方，计算照常完成
+        assertTrue(first.cancel(true));
+        assertTrue(second.cancel(true));
+        release.countDown();
+        assertEquals(segmenter.sentenceProcess(BLOCK), third.get(10, TimeUnit.SECONDS));
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    public void closeFailsQueuedTasks() throws Exception {
+        async.setQueueCapacity(4);
+        async.start();
+        CompletableFuture<List<String>> running = block();
+        CompletableFuture<List<String>> queued = async.sentenceProcess("南京市长江大桥");
+        CompletableFuture<List<String>> coalesced = async.sentenceProcess("南京市长江大桥");
+
+        async.close();
+        assertTrue(failure(queued) instanceof RejectedExecutionException);
+        assertTrue(failure(coalesced) instanceof RejectedExecutionException);
+        // 正在计算的请求继续完成
+        release.countDown();
+        assertEquals(segmenter.sentenceProcess(BLOCK), running.get(10, TimeUnit.SECONDS));
+        assertTrue(failure(async.sentenceProcess("研究生命起源")) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void nullArgumentsFailTheFuture() throws Exception {
+        async.start();
+        assertTrue(failure(async.process(null, JiebaSegmenter.SegMode.SEARCH)) instanceof NullPointerException);
+        assertTrue(failure(async.process("南京市长江大桥", null)) instanceof NullPointerException);
+        assertTrue(failure(async.sentenceProcess(null)) instanceof NullPointerException);
+        assertTrue(failure(async.analyze(null, 5)) instanceof NullPointerException);
+        assertFalse(async.sentenceProcess("南京市长江大桥").get(10, TimeUnit.SECONDS).isEmpty());
+    }
+
+    /**
+     * 提交阻塞的请求，返回时唯一的计算线程已在处理它，队列为空
+     */
+    private CompletableFuture<List<String>> block() throws InterruptedException {
+        CompletableFuture<List<String>> future = async.sentenceProcess(BLOCK);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException, TimeoutException {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("future should have failed");
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.xuchengen.jieba.cache;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.WordDictionary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>分词结果缓存：命中、持久化与指纹变化后的失效
+ **/
+public class SegmentCacheTest {
+
+    private static final String TEXT = "他说今天真是蓝瘦香菇，ＡＢＣ全角字母与😀表情也要原样还原";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+
+    @Test
+    public void hitAndMiss() throws IOException {
+        try (SegmentCache cache = new SegmentCache(segmenter, file())) {
+            List<SegToken> expected = segmenter.process(TEXT, JiebaSegmenter.SegMode.SEARCH);
+            assertTokens(expected, cache.process(TEXT, JiebaSegmenter.SegMode.SEARCH));
+            assertEquals(0, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+            assertTokens(expected, cache.process(TEXT, JiebaSegmenter.SegMode.SEARCH));
+            assertEquals(1, cache.getHitCount());
+            // 分词模式是键的一部分
+            assertTokens(segmenter.process(TEXT, JiebaSegmenter.SegMode.INDEX),
+                    cache.process(TEXT, JiebaSegmenter.SegMode.INDEX));
+            assertEquals(2, cache.getMissCount());
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    public void reopenKeepsRecords() throws IOException {
+        Path path = file();
+        try (SegmentCache cache = new SegmentCache(segmenter, path)) {
+            for (int i = 0; i < 100; i++) cache.process(TEXT + i, JiebaSegmenter.SegMode.INDEX);
+        }
+        try (SegmentCache cache = new SegmentCache(segmenter, path)) {
+            assertEquals(100, cache.size());
+            for (int i = 0; i < 100; i++) {
+                assertTokens(segmenter.process(TEXT + i, JiebaSegmenter.SegMode.INDEX),
+                        cache.process(TEXT + i, JiebaSegmenter.SegMode.INDEX));
+            }
+            assertEquals(100, cache.getHitCount());
+            assertEquals(0, cache.getMissCount());
+        }
+    }
+
+    @Test
+    public void fingerprintChangeInvalidates() throws IOException {
+        WordDictionary dictionary = WordDictionary.getInstance();
+        Path path = file();
+        long before = segmenter.getFingerprint();
+        try (SegmentCache cache = new SegmentCache(segmenter, path)) {
+            cache.process(TEXT, JiebaSegmenter.SegMode.SEARCH);
+            assertFalse(words(cache.process(TEXT, JiebaSegmenter.SegMode.SEARCH)).contains("蓝瘦香菇"));
+            assertEquals(1, cache.getHitCount());
+
+            dictionary.addWord("蓝瘦香菇", 1000);
+            try {
+                assertNotEquals(before, segmenter.getFingerprint());
+                List<SegToken> tokens = cache.process(TEXT, JiebaSegmenter.SegMode.SEARCH);
+                assertTrue(words(tokens).contains("蓝瘦香菇"));
+                assertEquals(1, cache.getHitCount());
+                assertEquals(1, cache.size());
+            } finally {
+                dictionary.deleteWord("蓝瘦香菇");
+            }
+        }
+        // 文件中的指纹与分词器当前的指纹不同，打开时即清空
+        try (SegmentCache cache = new SegmentCache(segmenter, path)) {
+            assertEquals(0, cache.size());
+            assertFalse(words(cache.process(TEXT, JiebaSegmenter.SegMode.SEARCH)).contains("蓝瘦香菇"));
+            assertEquals(1, cache.getMissCount());
+        }
+    }
+
+    private Path file() throws IOException {
+        return folder.newFile().toPath();
+    }
+
+    private static List<String> words(List<SegToken> tokens) {
+        List<String> words = new ArrayList<>();
+        for (SegToken token : tokens) words.add(token.word);
+        return words;
+    }
+
+    private static void assertTokens(List<SegToken> expected, List<SegToken> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).word, actual.get(i).word);
+            assertEquals(expected.get(i).startOffset, actual.get(i).startOffset);
+            assertEquals(expected.get(i).endOffset, actual.get(i).endOffset);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.xuchengen.jieba.codec;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.SegToken;
+import com.github.xuchengen.jieba.WordDictionary;
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>分词结果二进制编码的写入与读取
+ **/
+public class TokenStreamTest {
+
+    // 含代理对（表情与扩展B区汉字）与HMM发现的未登录词
+    private static final String TEXT = "我爱北京天安门😀，𠀀他来到了网易杭研大厦";
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+    private final WordDictionary dictionary = WordDictionary.getInstance();
+
+    @Test
+    public void roundTripOffsetsAndLookedUpIds() {
+        // 索引模式的开始偏移会回退，增量为负
+        List<SegToken> tokens = segmenter.process(TEXT, JiebaSegmenter.SegMode.INDEX);
+        ByteBuffer buffer = ByteBuffer.allocate(TokenStreamWriter.maxRecordBytes(tokens.size(), true) * 2);
+        new TokenStreamWriter(buffer, true).write(tokens);
+        new TokenStreamWriter(buffer, false).write(tokens);
+        buffer.flip();
+
+        TokenStreamReader reader = new TokenStreamReader(buffer);
+        assertTrue(reader.nextRecord());
+        assertTrue(reader.hasWordIds());
+        assertEquals(tokens.size(), reader.getTokenCount());
+        for (SegToken token : tokens) {
+            assertTrue(reader.nextToken());
+            assertEquals(token.startOffset, reader.getStart());
+            assertEquals(token.endOffset, reader.getEnd());
+            assertEquals(token.word, TEXT.substring(reader.getStart(), reader.getEnd()));
+            assertEquals(dictionary.getWordId(token.word), reader.getWordId());
+            if (reader.getWordId() >= 0) assertEquals(token.word, reader.getWord());
+        }
+        assertFalse(reader.nextToken());
+
+        assertTrue(reader.nextRecord());
+        assertFalse(reader.hasWordIds());
+        for (SegToken token : tokens) {
+            assertTrue(reader.nextToken());
+            assertEquals(token.startOffset, reader.getStart());
+            assertEquals(token.endOffset, reader.getEnd());
+            assertEquals(WordDictionary.UNKNOWN_WORD_ID, reader.getWordId());
+            assertNull(reader.getWord());
+        }
+        assertFalse(reader.nextRecord());
+        assertEquals(buffer.limit(), reader.position());
+    }
+
+    @Test
+    public void roundTripSegmenterIds() {
+        List<String> words = new ArrayList<>();
+        int[] ids = segmenter.sentenceProcess(TEXT, words);
+        assertEquals(segmenter.sentenceProcess(TEXT), words);
+        assertArrayEquals(segmenter.sentenceProcessIds(TEXT), ids);
+        List<SegToken> tokens = new ArrayList<>();
+        int offset = 0;
+        for (String word : words) tokens.add(new SegToken(word, offset, offset += word.length()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(TokenStreamWriter.maxRecordBytes(tokens.size(), true));
+        new TokenStreamWriter(buffer, true).write(tokens, ids);
+        buffer.flip();
+        TokenStreamReader reader = new TokenStreamReader(buffer);
+        assertTrue(reader.nextRecord());
+        boolean hmm = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            assertTrue(reader.nextToken());
+            assertEquals(tokens.get(i).startOffset, reader.getStart());
+            assertEquals(tokens.get(i).endOffset, reader.getEnd());
+            assertEquals(ids[i], reader.getWordId());
+            hmm |= reader.getWordId() == WordDictionary.HMM_WORD_ID;
+        }
+        // 杭研由HMM发现，按词查询只能得到UNKNOWN_WORD_ID
+        assertTrue(hmm);
+    }
+
+    @Test
+    public void overflowRestoresPosition() {
+        List<SegToken> tokens = segmenter.process(TEXT, JiebaSegmenter.SegMode.SEARCH);
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.put((byte) 1);
+        TokenStreamWriter writer = new TokenStreamWriter(buffer, true);
+        try {
+            writer.write(tokens);
+            fail();
+        } catch (BufferOverflowException e) {
+            assertEquals(1, buffer.position());
+        }
+    }
+}
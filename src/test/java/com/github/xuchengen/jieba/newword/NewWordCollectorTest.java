@@ -0,0 +1,140 @@
+package com.github.xuchengen.jieba.newword;
+
+import com.github.xuchengen.jieba.WordDictionary;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>新词收集：准入阈值、裁剪、排除词典中的词、导出为用户词典与并发计数
+ **/
+public class NewWordCollectorTest {
+
+    private static final String A = "蓝瘦香菇";
+    private static final String B = "香菇蓝瘦";
+    private static final String C = "菇香瘦蓝";
+    private static final String D = "瘦菇蓝香";
+    private static final String E = "蓝菇香瘦";
+    private static final String F = "香蓝瘦菇";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final WordDictionary dictionary = WordDictionary.getInstance();
+
+    @Before
+    public void wordsAreNew() {
+        for (String word : Arrays.asList(A, B, C, D, E, F)) assertFalse(word, dictionary.containsWord(word));
+    }
+
+    @Test
+    public void admissionAndPrune() throws Exception {
+        NewWordCollector collector = new NewWordCollector(2, 1 << 16);
+        offer(collector, A, 5);
+        offer(collector, B, 3);
+        // 单字词、非中文与词典中的词不计入
+        collector.offer("蓝");
+        collector.offer("ab");
+        collector.offer("长江大桥");
+        assertEquals(8, collector.getOfferedCount());
+
+        // 首次裁剪前阈值为0，都能进入候选表；超过两倍容量时裁剪到前2名，阈值为第2名的次数
+        offer(collector, C, 1);
+        offer(collector, D, 1);
+        assertEquals(4, collector.getCandidateCount());
+        offer(collector, E, 1);
+        assertEquals(2, collector.getCandidateCount());
+        assertEquals(Arrays.asList(A + " 5", B + " 3"), format(collector.top(10, 0)));
+
+        // 估计次数超过阈值3后才进入候选表
+        offer(collector, F, 3);
+        assertEquals(2, collector.getCandidateCount());
+        offer(collector, F, 1);
+        assertEquals(Arrays.asList(A + " 5", F + " 4", B + " 3"), format(collector.top(10, 0)));
+        assertEquals(Arrays.asList(A + " 5", F + " 4"), format(collector.top(10, 4)));
+        assertEquals(Arrays.asList(A + " 5"), format(collector.top(1, 0)));
+
+        Path exported = folder.getRoot().toPath().resolve("new_words.dict");
+        try {
+            // 收集后才加入词典的词不再列出
+            dictionary.addWord(F, 100);
+            assertEquals(Arrays.asList(A + " 5", B + " 3"), format(collector.top(10, 0)));
+
+            collector.export(exported, 10, 0);
+            assertEquals(Arrays.asList(A + " 5", B + " 3"), Files.readAllLines(exported, StandardCharsets.UTF_8));
+            assertFalse(Files.exists(exported.resolveSibling("new_words.dict.tmp")));
+            dictionary.loadUserDict(exported);
+            assertTrue(dictionary.containsWord(A));
+            assertTrue(dictionary.containsWord(B));
+            assertEquals(Math.log(5 / dictionary.getTotal()), dictionary.getFreq(A), 1e-12);
+        } finally {
+            dictionary.loadDict();
+        }
+
+        collector.reset();
+        assertEquals(0, collector.getCandidateCount());
+        assertEquals(0, collector.getOfferedCount());
+    }
+
+    @Test
+    public void concurrentOffers() throws Exception {
+        int threads = 8;
+        int rounds = 20000;
+        NewWordCollector collector = new NewWordCollector(16, 1 << 16);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                String own = Arrays.asList(B, C, D, E, F, "蓝香菇瘦", "瘦香蓝菇", "菇瘦香蓝").get(t);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        collector.offer(A);
+                        if (i % 4 == 0) collector.offer(own);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals((long) threads * rounds + threads * rounds / 4, collector.getOfferedCount());
+        List<NewWord> top = collector.top(threads + 1, 0);
+        assertEquals(threads + 1, top.size());
+        // 计数器足够宽时没有冲突，估计即为真实次数
+        assertEquals(A, top.get(0).getWord());
+        assertEquals((long) threads * rounds, top.get(0).getCount());
+        for (NewWord word : top.subList(1, top.size())) assertEquals(rounds / 4, word.getCount());
+    }
+
+    private static void offer(NewWordCollector collector, String word, int times) {
+        for (int i = 0; i < times; i++) collector.offer(word);
+    }
+
+    private static List<String> format(List<NewWord> words) {
+        List<String> formatted = new ArrayList<>(words.size());
+        for (NewWord word : words) formatted.add(word.getWord() + " " + word.getCount());
+        return formatted;
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.xuchengen.jieba.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>响应编码：非有限分数与超长字符串的截断
+ **/
+public class CodecTest {
+
+    @Test
+    public void nonFiniteScores() {
+        assertEquals("0.0", json(Double.NaN));
+        assertEquals(String.valueOf(Double.MAX_VALUE), json(Double.POSITIVE_INFINITY));
+        assertEquals(String.valueOf(-Double.MAX_VALUE), json(Double.NEGATIVE_INFINITY));
+        assertEquals("1.5", json(1.5));
+    }
+
+    @Test
+    public void truncateOnCharacterBoundary() throws IOException {
+        StringBuilder text = new StringBuilder();
+        // 3字节的汉字与4字节的表情交替，0xffff处落在字符中间
+        while (text.length() < 40000) text.append("中😀");
+        String value = text.toString();
+        ByteBuffer written = write(value);
+        int length = written.getShort() & 0xffff;
+        assertEquals(written.remaining(), length);
+        String decoded = StandardCharsets.UTF_8.decode(written).toString();
+        assertEquals(value.substring(0, decoded.length()), decoded);
+        assertTrue(length > 0xffff - 4);
+
+        written = write("短文本");
+        assertEquals(9, written.getShort());
+        assertEquals("短文本", StandardCharsets.UTF_8.decode(written).toString());
+    }
+
+    @Test
+    public void nullMessage() {
+        StringBuilder json = new StringBuilder();
+        Codec.appendJsonString(json, null);
+        assertEquals("\"\"", json.toString());
+    }
+
+    private static String json(double value) {
+        StringBuilder json = new StringBuilder();
+        Codec.appendJsonNumber(json, value);
+        return json.toString();
+    }
+
+    private static ByteBuffer write(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Codec.writeString(new DataOutputStream(bytes), value);
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.xuchengen.jieba.server;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import com.github.xuchengen.jieba.tfidf.Keyword;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>分词服务的本机回环测试：二进制协议与HTTP的往返、流水线请求的顺序与队列已满时的繁忙回复
+ **/
+public class SegmentServerTest {
+
+    private static final String TEXT = "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。";
+    private static final String BLOCK = "阻塞的请求";
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final JiebaSegmenter segmenter = new JiebaSegmenter() {
+        @Override
+        public List<String> sentenceProcess(String sentence) {
+            if (BLOCK.equals(sentence)) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.sentenceProcess(sentence);
+        }
+    };
+    private SegmentServer server;
+
+    @Before
+    public void start() {
+        server = new SegmentServer(segmenter);
+        server.setPort(0);
+        server.setWorkers(4);
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        server.stop();
+    }
+
+    @Test
+    public void binaryCutAndTfidf() throws IOException {
+        server.start();
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.write(frame(1, -1, TEXT));
+            out.flush();
+            assertEquals(Codec.STATUS_OK, readStatus(in));
+            List<String> words = segmenter.sentenceProcess(TEXT);
+            assertEquals(words.size(), in.readInt());
+            int offset = 0;
+            for (String word : words) {
+                assertEquals(offset, in.readInt());
+                offset += word.length();
+                assertEquals(offset, in.readInt());
+                assertEquals(word, readString(in));
+            }
+
+            out.write(frame(4, 5, TEXT));
+            out.flush();
+            assertEquals(Codec.STATUS_OK, readStatus(in));
+            List<Keyword> keywords = server.getTfidfAnalyzer().analyze(TEXT, 5);
+            assertEquals(keywords.size(), in.readInt());
+            for (Keyword keyword : keywords) {
+                assertEquals(keyword.getTfidfvalue(), in.readDouble(), 0.0);
+                assertEquals(keyword.getName(), readString(in));
+            }
+        }
+    }
+
+    @Test
+    public void httpSegmentAndAnalyze() throws IOException {
+        server.start();
+        try (Socket socket = connect()) {
+            write(socket, "GET /segment?mode=index&text=" + URLEncoder.encode(TEXT, "UTF-8") + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\n\r\n");
+            Exchange segment = new Exchange(null, Exchange.Op.INDEX, TEXT, 0, true, true);
+            assertArrayEquals(Codec.encodeTokens(segment, segmenter.process(TEXT, JiebaSegmenter.SegMode.INDEX)),
+                    readHttp(new DataInputStream(socket.getInputStream())));
+
+            byte[] body = TEXT.getBytes(StandardCharsets.UTF_8);
+            write(socket, "POST /analyze?method=textrank&topN=3 HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: " + body.length + "\r\n\r\n");
+            socket.getOutputStream().write(body);
+            Exchange analyze = new Exchange(null, Exchange.Op.TEXTRANK, TEXT, 3, true, true);
+            assertArrayEquals(Codec.encodeKeywords(analyze, server.getTextRankAnalyzer().analyze(TEXT, 3)),
+                    readHttp(new DataInputStream(socket.getInputStream())));
+        }
+    }
+
+    @Test
+    public void pipelinedResponsesKeepRequestOrder() throws IOException {
+        server.setMaxBatch(1);
+        server.start();
+        List<String> texts = new ArrayList<>();
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        for (int i = 0; i < 32; i++) {
+            // 长短交替，后发的短请求可能先处理完
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < (i % 2 == 0 ? 200 : 1); j++) text.append(TEXT);
+            text.append(i);
+            texts.add(text.toString());
+            requests.write(frame(3, -1, text.toString()));
+        }
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(requests.toByteArray());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (String text : texts) {
+                Exchange exchange = new Exchange(null, Exchange.Op.INDEX, text, 0, false, true);
+                byte[] expected = Codec.encodeTokens(exchange, segmenter.process(text, JiebaSegmenter.SegMode.INDEX));
+                byte[] actual = new byte[expected.length];
+                in.readFully(actual);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void busyWhenQueueIsFull() throws Exception {
+        server.setWorkers(1);
+        server.setQueueCapacity(1);
+        server.start();
+        try (Socket first = connect(); Socket second = connect()) {
+            // 唯一的工作线程阻塞在第一个请求上
+            write(first, cutRequest(BLOCK));
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            // 第二个请求占满队列，第三个被拒绝
+            write(second, cutRequest(TEXT) + cutRequest(TEXT));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (server.getRejectedCount() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertEquals(1, server.getRejectedCount());
+            release.countDown();
+
+            assertTrue(statusLine(readHttp(new DataInputStream(first.getInputStream()))).startsWith("HTTP/1.1 200"));
+            DataInputStream in = new DataInputStream(second.getInputStream());
+            assertTrue(statusLine(readHttp(in)).startsWith("HTTP/1.1 200"));
+            byte[] busy = readHttp(in);
+            assertTrue(statusLine(busy).startsWith("HTTP/1.1 503"));
+            assertTrue(new String(busy, StandardCharsets.UTF_8).endsWith("{\"error\":\"server busy\"}"));
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private static String cutRequest(String text) {
+        int length = text.getBytes(StandardCharsets.UTF_8).length;
+        return "POST /segment?mode=cut HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + length + "\r\n\r\n" + text;
+    }
+
+    private static void write(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 二进制请求帧，topN小于0时不写
+     */
+    private static byte[] frame(int op, int topN, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1 + (topN < 0 ? 0 : 2) + body.length);
+        out.writeByte(op);
+        if (topN >= 0) out.writeShort(topN);
+        out.write(body);
+        return bytes.toByteArray();
+    }
+
+    private static byte readStatus(DataInputStream in) throws IOException {
+        in.readInt();
+        return in.readByte();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按Content-Length读取一个完整的HTTP响应
+     */
+    private static byte[] readHttp(DataInputStream in) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int b = in.readUnsignedByte();
+            head.append((char) b);
+            response.write(b);
+        }
+        int length = 0;
+        for (String line : head.toString().split("\r\n")) {
+            if (line.startsWith("Content-Length:")) length = Integer.parseInt(line.substring(15).trim());
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        response.write(body);
+        return response.toByteArray();
+    }
+
+    private static String statusLine(byte[] response) {
+        String text = new String(response, StandardCharsets.ISO_8859_1);
+        return text.substring(0, text.indexOf("\r\n"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>IDF表生成：内存预算极小、每篇文档都溢写时，归并结果与在内存中直接统计的IDF相同
+ **/
+public class IDFBuilderTest {
+
+    private static final List<String> DOCS = Arrays.asList(
+            "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。",
+            "我不喜欢日本和服。",
+            "雷猴回归人间。",
+            "工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作",
+            "结果婚的和尚未结过婚的",
+            "南京市长江大桥，南京市长江大桥",
+            "小明硕士毕业于中国科学院计算所，后在日本京都大学深造",
+            "我爱北京天安门");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+
+    @Test
+    public void spilledCountsMatchInMemoryIdf() throws Exception {
+        // 超出writeUTF长度上限的词被跳过
+        StringBuilder longWord = new StringBuilder();
+        while (longWord.length() <= 65535) longWord.append("abc");
+        assertTrue(segmenter.sentenceProcess(longWord.toString()).contains(longWord.toString()));
+
+        List<String> docs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) docs.addAll(DOCS);
+        docs.add(longWord + "，南京市长江大桥");
+        List<Path> corpus = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path path = folder.newFile("corpus" + i + ".txt").toPath();
+            Files.write(path, docs.subList(i * docs.size() / 3, (i + 1) * docs.size() / 3), StandardCharsets.UTF_8);
+            corpus.add(path);
+        }
+        Path spillDir = folder.newFolder("spill").toPath();
+        Path text = folder.getRoot().toPath().resolve("idf.txt");
+        Path binary = folder.getRoot().toPath().resolve("idf.bin");
+
+        IDFBuilder builder = new IDFBuilder(segmenter);
+        builder.setThreads(3);
+        builder.setMemoryBudget(1);
+        builder.setTempDir(spillDir);
+        assertEquals(docs.size(), builder.build(corpus, text, binary));
+
+        Map<String, Double> expected = idf(docs);
+        assertFalse(expected.containsKey(longWord.toString()));
+        Map<String, Double> written = new HashMap<>();
+        List<String> terms = new ArrayList<>();
+        for (String line : Files.readAllLines(text, StandardCharsets.UTF_8)) {
+            String[] kv = line.split(" ");
+            assertEquals(line, 2, kv.length);
+            written.put(kv[0], Double.valueOf(kv[1]));
+            terms.add(kv[0]);
+        }
+        assertEquals(expected, written);
+        assertEquals(expected, IDFBuilder.readBinary(binary));
+        // 按词有序写出，溢写目录用完即删
+        String[] sorted = terms.toArray(new String[0]);
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, terms.toArray(new String[0]));
+        assertEquals(0, spillDir.toFile().list().length);
+
+        // 预算充足、不溢写时输出完全相同
+        Path unspilled = folder.getRoot().toPath().resolve("idf-memory.txt");
+        IDFBuilder inMemory = new IDFBuilder(segmenter);
+        inMemory.setThreads(1);
+        inMemory.build(corpus, unspilled, null);
+        assertArrayEquals(Files.readAllBytes(text), Files.readAllBytes(unspilled));
+    }
+
+    /**
+     * 与生成器相同的过滤规则，在内存中直接统计IDF
+     */
+    private Map<String, Double> idf(List<String> docs) {
+        Map<String, Integer> df = new HashMap<>();
+        for (String doc : docs) {
+            Set<String> seen = new HashSet<>();
+            for (String word : segmenter.sentenceProcess(doc)) {
+                if (StringUtils.isBlank(word) || StringUtils.containsWhitespace(word) || word.length() > 65535 / 3
+                        || !seen.add(word)) continue;
+                df.merge(word, 1, Integer::sum);
+            }
+        }
+        Map<String, Double> idf = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : df.entrySet()) {
+            idf.put(entry.getKey(), Math.log((double) docs.size() / entry.getValue()));
+        }
+        return idf;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p>增量TFIDF分析：任意位置分块追加的结果与对全文调用{@link TFIDFAnalyzer#analyze(String, int)}相同
+ * <p>文本不含英文字母：增量分析与{@link JiebaSegmenter#process}一样把英文转为小写，全文分析保持原样
+ **/
+public class IncrementalTFIDFAnalyzerTest {
+
+    private static final String TEXT = "孩子上了幼儿园 安全防拐教育要做好。"
+            + "“老师，我是某某某的家长，来接孩子回家。”近日，某幼儿园的一位老师接到了一位陌生家长的电话，"
+            + "对方称自己是孩子的亲戚，要求提前接孩子放学。老师核实后发现，孩子的家长并没有委托任何人接孩子。"
+            + "专家提醒，家长应当教育孩子不要跟陌生人走，幼儿园也应当完善接送制度，做好安全防拐教育。"
+            + "工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作。"
+            + "我爱北京天安门。";
+
+    private final TFIDFAnalyzer analyzer = new TFIDFAnalyzer(new JiebaSegmenter());
+
+    @Test
+    public void chunkedInputMatchesWholeText() {
+        Map<String, Double> expected = values(analyzer.analyze(TEXT, Integer.MAX_VALUE));
+        List<Double> expectedTop = top(analyzer.analyze(TEXT, 10));
+
+        // 分块位置落在词中间、片段中间与分隔符上
+        for (int size : new int[]{1, 2, 3, 7, 16, 64, TEXT.length()}) {
+            IncrementalTFIDFAnalyzer incremental = new IncrementalTFIDFAnalyzer(analyzer, 1 << 16);
+            for (int i = 0; i < TEXT.length(); i += size) {
+                incremental.feed(TEXT.substring(i, Math.min(TEXT.length(), i + size)));
+            }
+            incremental.finish();
+            assertEquals("chunk size " + size, expected, values(incremental.topN(Integer.MAX_VALUE)));
+            assertEquals("chunk size " + size, expectedTop, top(incremental.topN(10)));
+        }
+
+        IncrementalTFIDFAnalyzer incremental = new IncrementalTFIDFAnalyzer(analyzer, 1 << 16);
+        incremental.feed(new StringReader(TEXT));
+        // 结束前最后的片段尚未计入
+        assertEquals(values(analyzer.analyze(TEXT.substring(0, TEXT.length() - 1), Integer.MAX_VALUE)),
+                values(incremental.topN(Integer.MAX_VALUE)));
+        incremental.finish();
+        assertEquals(expected, values(incremental.topN(Integer.MAX_VALUE)));
+
+        incremental.reset();
+        assertEquals(0, incremental.getWordSum());
+        assertEquals(0, incremental.topN(10).size());
+    }
+
+    private static Map<String, Double> values(List<Keyword> keywords) {
+        Map<String, Double> values = new HashMap<>();
+        for (Keyword keyword : keywords) values.put(keyword.getName(), keyword.getTfidfvalue());
+        return values;
+    }
+
+    /**
+     * 前N个关键词的TFIDF值，值相同的词之间顺序不定，只比较值
+     */
+    private static List<Double> top(List<Keyword> keywords) {
+        List<Double> values = new ArrayList<>();
+        for (Keyword keyword : keywords) values.add(keyword.getTfidfvalue());
+        return values;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>SimHash近似重复索引：海明半径内的指纹全部召回，半径外的不匹配，结果与逐个比较相同
+ **/
+public class SimHashIndexTest {
+
+    private static final int MAX_DISTANCE = 3;
+
+    private static final String DOC = "孩子上了幼儿园，安全防拐教育要做好。近日，某幼儿园的一位老师接到了一位陌生家长的电话，"
+            + "对方称自己是孩子的亲戚，要求提前接孩子放学。老师核实后发现，孩子的家长并没有委托任何人接孩子。"
+            + "专家提醒，家长应当教育孩子不要跟陌生人走，幼儿园也应当完善接送制度，做好安全防拐教育。";
+    private static final String OTHER = "工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作。"
+            + "此外，公司拟对全资子公司吉林欧亚置业有限公司增资4.3亿元，目前在建吉林欧亚城市商业综合体项目。";
+
+    @Test
+    public void matchesBruteForceWithinRadius() {
+        Random random = new Random(42);
+        SimHashIndex index = new SimHashIndex(MAX_DISTANCE, 1024);
+        List<Long> fingerprints = new ArrayList<>();
+        for (int id = 0; id < 2000; id++) {
+            // 部分文档互为近似重复，使同一段的桶中有多个候选
+            long fingerprint = id % 4 == 0 || fingerprints.isEmpty() ? random.nextLong()
+                    : flip(fingerprints.get(random.nextInt(fingerprints.size())), random.nextInt(8), random);
+            fingerprints.add(fingerprint);
+            index.add(fingerprint, id);
+        }
+        assertEquals(fingerprints.size(), index.size());
+
+        for (int i = 0; i < 2000; i++) {
+            long base = fingerprints.get(random.nextInt(fingerprints.size()));
+            long query = i % 2 == 0 ? flip(base, random.nextInt(2 * MAX_DISTANCE + 1), random) : random.nextLong();
+            Set<Long> expected = new HashSet<>();
+            for (int id = 0; id < fingerprints.size(); id++) {
+                if (SimHash.hammingDistance(query, fingerprints.get(id)) <= MAX_DISTANCE) expected.add((long) id);
+            }
+
+            List<Long> found = new ArrayList<>();
+            assertEquals(expected.size(), index.findAll(query, found::add));
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, new HashSet<>(found));
+            assertEquals(!expected.isEmpty(), index.containsNear(query));
+            long first = index.findFirst(query);
+            assertTrue(expected.isEmpty() ? first == -1 : expected.contains(first));
+        }
+    }
+
+    @Test
+    public void nearDuplicateTextsMatchAndDistinctTextsDoNot() {
+        SimHash simHash = new SimHash(new TFIDFAnalyzer(new JiebaSegmenter()));
+        SimHashIndex index = new SimHashIndex(MAX_DISTANCE, 16);
+        long doc = simHash.fingerprint(DOC);
+        long other = simHash.fingerprint(OTHER);
+        index.add(doc, 1);
+        index.add(other, 2);
+
+        // 只改动标点与一个虚词
+        long edited = simHash.fingerprint(DOC.replace("近日，", "近日").replace("并没有", "没有"));
+        assertTrue(SimHash.hammingDistance(doc, edited) <= MAX_DISTANCE);
+        assertEquals(1, index.findFirst(edited));
+        assertEquals(1, index.findAll(edited, id -> assertEquals(1, id)));
+
+        assertTrue(SimHash.hammingDistance(doc, other) > MAX_DISTANCE);
+        assertEquals(2, index.findFirst(other));
+        assertFalse(index.containsNear(simHash.fingerprint("南京市长江大桥的建设者们在江面上架起了钢梁，又在桥头修建了公园和纪念馆。")));
+    }
+
+    /**
+     * 随机翻转指纹中不同的bits位
+     */
+    private static long flip(long fingerprint, int bits, Random random) {
+        Set<Integer> positions = new HashSet<>();
+        while (positions.size() < bits) positions.add(random.nextInt(64));
+        for (int position : positions) fingerprint ^= 1L << position;
+        return fingerprint;
+    }
+}
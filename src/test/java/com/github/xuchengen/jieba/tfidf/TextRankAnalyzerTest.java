@@ -0,0 +1,107 @@
+package com.github.xuchengen.jieba.tfidf;
+
+import com.github.xuchengen.jieba.JiebaSegmenter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>TextRank：邻接数组上的迭代结果与按词语哈希表直接实现的PageRank相同
+ **/
+public class TextRankAnalyzerTest {
+
+    private static final String TEXT = "此外，公司拟对全资子公司吉林欧亚置业有限公司增资4.3亿元，增资后，吉林欧亚置业注册资本由7000万元增加到5亿元。"
+            + "吉林欧亚置业主要经营范围为房地产开发及百货零售等业务。目前在建吉林欧亚城市商业综合体项目。"
+            + "2013年，实现营业收入0万元，实现净利润-139.13万元。";
+    private static final int WINDOW = 5;
+    private static final double DAMPING = 0.85;
+    private static final int ITERATIONS = 30;
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+
+    @Test
+    public void csrRanksMatchReference() {
+        TextRankAnalyzer analyzer = new TextRankAnalyzer(segmenter);
+        // 不提前结束，两种实现迭代相同的轮数
+        analyzer.setTolerance(0);
+        analyzer.setMaxIterations(ITERATIONS);
+        List<Keyword> keywords = analyzer.analyze(TEXT, Integer.MAX_VALUE);
+
+        Map<String, Double> expected = reference(segmenter.sentenceProcess(TEXT));
+        assertEquals(expected.size(), keywords.size());
+        for (Keyword keyword : keywords) {
+            assertTrue(keyword.getName(), expected.containsKey(keyword.getName()));
+            // 得分保留4位小数，求和顺序不同可能使舍入相差一位
+            assertEquals(keyword.getName(), expected.get(keyword.getName()), keyword.getTfidfvalue(), 0.5e-4 + 1e-12);
+        }
+        // 排名与直接实现一致，只有舍入后相等的词之间顺序不定
+        for (int i = 1; i < keywords.size(); i++) {
+            assertTrue(keywords.get(i - 1).getTfidfvalue() >= keywords.get(i).getTfidfvalue());
+            assertTrue(expected.get(keywords.get(i - 1).getName()) > expected.get(keywords.get(i).getName()) - 1e-4);
+        }
+        assertEquals(1.0, keywords.get(0).getTfidfvalue(), 0.0);
+
+        List<Keyword> top = analyzer.analyze(TEXT, 5);
+        assertEquals(5, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(keywords.get(i).getTfidfvalue(), top.get(i).getTfidfvalue(), 0.0);
+        }
+    }
+
+    /**
+     * 直接实现：过滤后的词仍占据窗口位置，窗口内的不同词两两连边，边权为共现次数
+     */
+    private static Map<String, Double> reference(List<String> words) {
+        List<String> filtered = new ArrayList<>();
+        for (String word : words) filtered.add(TFIDFAnalyzer.filterWord(word));
+
+        Map<String, Map<String, Double>> graph = new LinkedHashMap<>();
+        for (int i = 0; i < filtered.size(); i++) {
+            String a = filtered.get(i);
+            if (a == null) continue;
+            for (int j = i + 1; j < Math.min(filtered.size(), i + WINDOW); j++) {
+                String b = filtered.get(j);
+                if (b == null || b.equals(a)) continue;
+                graph.computeIfAbsent(a, k -> new HashMap<>()).merge(b, 1.0, Double::sum);
+                graph.computeIfAbsent(b, k -> new HashMap<>()).merge(a, 1.0, Double::sum);
+            }
+        }
+
+        // 初值按全部候选词计数，与被测实现一致
+        long vocabulary = filtered.stream().filter(w -> w != null).distinct().count();
+        Map<String, Double> ws = new HashMap<>();
+        for (String word : graph.keySet()) ws.put(word, 1.0 / vocabulary);
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Map<String, Double> next = new HashMap<>();
+            for (Map.Entry<String, Map<String, Double>> node : graph.entrySet()) {
+                double sum = 0;
+                for (Map.Entry<String, Double> edge : node.getValue().entrySet()) {
+                    double out = 0;
+                    for (double weight : graph.get(edge.getKey()).values()) out += weight;
+                    sum += edge.getValue() / out * ws.get(edge.getKey());
+                }
+                next.put(node.getKey(), (1 - DAMPING) + DAMPING * sum);
+            }
+            ws = next;
+        }
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (double value : ws.values()) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        Map<String, Double> ranks = new HashMap<>();
+        for (Map.Entry<String, Double> entry : ws.entrySet()) {
+            ranks.put(entry.getKey(), (entry.getValue() - min / 10.0) / (max - min / 10.0));
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.xuchengen.jieba.tool;
+
+import com.github.xuchengen.jieba.viterbi.FinalSeg;
+import com.github.xuchengen.jieba.viterbi.HmmModel;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>HMM训练：手工计算的计数、分块计数的合并、带词性的语料与文本、二进制模型的往返加载
+ * <p>语料的观测序列为 我/S 爱/S 北/B 京/E 天/B 安/M 门/E，南/B 京/E（非中文的词结束序列），的/S 大/B 桥/E
+ **/
+public class HmmTrainerTest {
+
+    private static final String CORPUS = "我 爱 北京 天安门\n南京 abc 的 大桥";
+    private static final String TAGGED = "我/r 爱/v 北京/ns 天安门/ns\n南京/ns abc/x 的/u 大桥/n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FinalSeg finalSeg = FinalSeg.getInstance();
+    private final HmmModel original = finalSeg.getModel();
+
+    @After
+    public void restore() {
+        finalSeg.setModel(original);
+    }
+
+    @Test
+    public void countsMatchHandComputedModel() throws Exception {
+        HmmTrainer trainer = new HmmTrainer();
+        trainer.setThreads(1);
+        HmmModel model = trainer.train(Collections.singletonList(write("corpus.txt", CORPUS)));
+        assertEquals(2, trainer.getLines());
+        assertEquals(CORPUS.getBytes(StandardCharsets.UTF_8).length, trainer.getBytes());
+        assertEquals(expected().getFingerprint(), model.getFingerprint());
+        assertEquals(11, model.getEmitCount());
+
+        HmmTrainer tagged = new HmmTrainer();
+        tagged.setPosTagged(true);
+        assertEquals(expected().getFingerprint(),
+                tagged.train(Collections.singletonList(write("tagged.txt", TAGGED))).getFingerprint());
+    }
+
+    @Test
+    public void blockCountsMergeToSameModel() throws Exception {
+        // 计数成倍增加，比例不变；两个文件各切成多块，由多个线程计数后合并
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) text.append(CORPUS).append('\n');
+        List<Path> inputs = new ArrayList<>();
+        inputs.add(write("part0.txt", text.toString()));
+        inputs.add(write("part1.txt", text + CORPUS));
+        long size = Files.size(inputs.get(0)) + Files.size(inputs.get(1));
+        assertTrue(size > 20 * 4096);
+
+        HmmTrainer trainer = new HmmTrainer();
+        trainer.setThreads(3);
+        trainer.setBlockSize(4096);
+        HmmModel model = trainer.train(inputs);
+        assertEquals(2 * 4000 + 2, trainer.getLines());
+        assertEquals(size, trainer.getBytes());
+        assertEquals(expected().getFingerprint(), model.getFingerprint());
+    }
+
+    @Test
+    public void textAndBinaryRoundTrip() throws Exception {
+        HmmModel model = new HmmTrainer().train(Collections.singletonList(write("corpus.txt", CORPUS)));
+        Path dir = folder.getRoot().toPath().resolve("model");
+        Path file = folder.getRoot().toPath().resolve("model.bin");
+        model.writeText(dir);
+        model.writeBinary(file);
+        assertEquals(model.getFingerprint(), HmmModel.load(dir).getFingerprint());
+        assertEquals(model.getFingerprint(), HmmModel.load(file).getFingerprint());
+
+        // 每个字只在一个状态下有发射概率，解码路径唯一
+        for (Path path : Arrays.asList(dir, file)) {
+            finalSeg.loadModel(path);
+            assertEquals(model.getFingerprint(), finalSeg.getModelFingerprint());
+            List<String> tokens = new ArrayList<>();
+            finalSeg.cut("我爱北京天安门", tokens);
+            assertEquals(Arrays.asList("我", "爱", "北京", "天安门"), tokens);
+        }
+    }
+
+    private Path write(String name, String text) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    /**
+     * 按语料手工计数得到的模型，未出现的转移与发射不写入
+     */
+    private static HmmModel expected() {
+        Map<Character, Double> start = new HashMap<>();
+        start.put('B', Math.log(1.0 / 3));
+        start.put('S', Math.log(2.0 / 3));
+
+        Map<Character, Map<Character, Double>> trans = new HashMap<>();
+        trans.put('B', probabilities("EM", 3, 1));
+        trans.put('M', probabilities("E", 1));
+        trans.put('E', probabilities("B", 1));
+        trans.put('S', probabilities("SB", 1, 2));
+
+        Map<Character, Map<Character, Double>> emit = new HashMap<>();
+        emit.put('B', probabilities("北天南大", 1, 1, 1, 1));
+        emit.put('M', probabilities("安", 1));
+        emit.put('E', probabilities("京门桥", 2, 1, 1));
+        emit.put('S', probabilities("我爱的", 1, 1, 1));
+        return new HmmModel(start, trans, emit);
+    }
+
+    private static Map<Character, Double> probabilities(String keys, long... counts) {
+        long total = 0;
+        for (long count : counts) total += count;
+        Map<Character, Double> values = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) values.put(keys.charAt(i), Math.log((double) counts[i] / total));
+        return values;
+    }
+}
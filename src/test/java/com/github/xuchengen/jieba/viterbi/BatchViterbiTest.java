@@ -0,0 +1,102 @@
+package com.github.xuchengen.jieba.viterbi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p>批量解码与逐句解码的结果逐字相同
+ **/
+public class BatchViterbiTest {
+
+    private static final String TEXT = "南都记者获悉黄永玉无愁河的浪荡汉子第三部走读完成编校下厂印制即将新鲜出炉恰逢九十八岁黄永玉先生生日"
+            + "人民文学出版社宣布新书预售并向黄先生贺寿这部系列长篇作品与人民文学出版社结缘整整八年了迄今人民文学出版社陆续出版了"
+            + "他来到了网易杭研大厦小明硕士毕业于中国科学院计算所后在日本京都大学深造";
+
+    private static final int[] LANES = {1, 3, 7, 64};
+
+    private final FinalSeg finalSeg = FinalSeg.getInstance();
+
+    @Test
+    public void mixedLengths() {
+        Random random = new Random(42);
+        List<String> runs = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < TEXT.length(); ) {
+                int length = Math.min(TEXT.length() - i, 1 + random.nextInt(24));
+                runs.add(TEXT.substring(i, i + length));
+                i += length;
+            }
+            runs.add("");
+        }
+        assertDecodes(finalSeg.getModel(), runs);
+    }
+
+    @Test
+    public void singleCharacters() {
+        List<String> runs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) runs.add(TEXT.substring(i, i + 1));
+        assertDecodes(finalSeg.getModel(), runs);
+        // 一组中只有最后一个通道更长
+        runs.add(TEXT.substring(0, 12));
+        assertDecodes(finalSeg.getModel(), runs);
+    }
+
+    @Test
+    public void ties() {
+        // 各状态的初始、转移与发射概率都相同，每一步的两个前驱与结尾的E、S都相等
+        Map<Character, Double> start = new HashMap<>();
+        Map<Character, Map<Character, Double>> trans = new HashMap<>();
+        Map<Character, Map<Character, Double>> emit = new HashMap<>();
+        String[] transitions = {"BE", "BM", "MM", "ME", "EB", "ES", "SB", "SS"};
+        for (char state : HmmModel.STATES) {
+            start.put(state, -1.0);
+            trans.put(state, new HashMap<>());
+            Map<Character, Double> emission = new HashMap<>();
+            for (int i = 0; i < TEXT.length(); i++) emission.put(TEXT.charAt(i), -2.0);
+            emit.put(state, emission);
+        }
+        for (String transition : transitions) trans.get(transition.charAt(0)).put(transition.charAt(1), -0.5);
+        List<String> runs = new ArrayList<>();
+        for (int length = 1; length <= 16; length++) runs.add(TEXT.substring(length, length * 2));
+        // 模型中没有的字取极小值，同样相等
+        runs.add("丄丅丆");
+
+        HmmModel original = finalSeg.getModel();
+        HmmModel tied = new HmmModel(start, trans, emit);
+        finalSeg.setModel(tied);
+        try {
+            assertDecodes(tied, runs);
+        } finally {
+            finalSeg.setModel(original);
+        }
+    }
+
+    private void assertDecodes(HmmModel model, List<String> runs) {
+        List<List<String>> expected = new ArrayList<>();
+        for (String run : runs) {
+            List<String> tokens = new ArrayList<>();
+            if (!run.isEmpty()) finalSeg.viterbi(run, tokens);
+            expected.add(tokens);
+        }
+        for (int lanes : LANES) {
+            BatchViterbi decoder = new BatchViterbi(model, lanes);
+            assertEquals("lanes=" + lanes, expected, decoder.decode(runs));
+            // 乱序输入也按输入顺序返回
+            List<String> reversed = new ArrayList<>(runs);
+            Collections.reverse(reversed);
+            List<List<String>> results = new ArrayList<>(decoder.decode(reversed));
+            Collections.reverse(results);
+            assertEquals("lanes=" + lanes, expected, results);
+        }
+        assertEquals(Collections.emptyList(), new BatchViterbi(model).decode(Arrays.<String>asList()));
+    }
+}
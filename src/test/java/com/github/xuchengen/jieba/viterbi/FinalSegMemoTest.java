@@ -0,0 +1,158 @@
+package com.github.xuchengen.jieba.viterbi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * <p>解码结果缓存：命中时的结果与解码相同，换模型、清空与关闭缓存后不再命中，命中统计准确
+ **/
+public class FinalSegMemoTest {
+
+    private static final List<String> RUNS = Arrays.asList("王晓芸陈嘉怡", "杭研", "小明硕士毕业于", "网易abc杭研", "１２３");
+
+    private final FinalSeg finalSeg = FinalSeg.getInstance();
+    private HmmModel original;
+
+    @Before
+    public void clear() {
+        original = finalSeg.getModel();
+        finalSeg.clearMemo();
+        finalSeg.resetMemoStatistics();
+    }
+
+    @After
+    public void restore() {
+        finalSeg.setModel(original);
+        finalSeg.setMemoCapacity(FinalSeg.DEFAULT_MEMO_CAPACITY);
+        finalSeg.resetMemoStatistics();
+    }
+
+    @Test
+    public void hitsReturnDecodedTokens() {
+        List<List<String>> decoded = decodeWithoutMemo();
+        finalSeg.setMemoCapacity(FinalSeg.DEFAULT_MEMO_CAPACITY);
+        assertEquals(decoded, cutAll());
+        assertEquals(0, finalSeg.getMemoHitCount());
+        assertEquals(RUNS.size(), finalSeg.getMemoMissCount());
+
+        // 命中时按缓存的边界追加在已有的词之后
+        List<String> tokens = new ArrayList<>(Arrays.asList("前面的词"));
+        finalSeg.cut(RUNS.get(0), tokens);
+        List<String> expected = new ArrayList<>(Arrays.asList("前面的词"));
+        expected.addAll(decoded.get(0));
+        assertEquals(expected, tokens);
+        assertEquals(decoded, cutAll());
+        assertEquals(RUNS.size() + 1, finalSeg.getMemoHitCount());
+        assertEquals(RUNS.size(), finalSeg.getMemoMissCount());
+
+        // 超长的字串不缓存，也不计入统计
+        StringBuilder longRun = new StringBuilder();
+        while (longRun.length() <= 64) longRun.append(RUNS.get(0));
+        finalSeg.cut(longRun.toString(), new ArrayList<>());
+        finalSeg.cut(longRun.toString(), new ArrayList<>());
+        assertEquals(RUNS.size() + 1, finalSeg.getMemoHitCount());
+        assertEquals(RUNS.size(), finalSeg.getMemoMissCount());
+    }
+
+    @Test
+    public void setModelAndClearInvalidate() {
+        List<List<String>> decoded = cutAll();
+        assertEquals(decoded, cutAll());
+        finalSeg.resetMemoStatistics();
+
+        HmmModel singles = singlesModel();
+        finalSeg.setModel(singles);
+        List<List<String>> withSingles = cutAll();
+        assertEquals(0, finalSeg.getMemoHitCount());
+        assertEquals(RUNS.size(), finalSeg.getMemoMissCount());
+        assertEquals(Arrays.asList("王", "晓", "芸", "陈", "嘉", "怡"), withSingles.get(0));
+        assertNotEquals(decoded, withSingles);
+
+        // 换回原模型后，按新模型缓存的结果同样失效
+        finalSeg.setModel(original);
+        finalSeg.resetMemoStatistics();
+        assertEquals(decoded, cutAll());
+        assertEquals(0, finalSeg.getMemoHitCount());
+        assertEquals(decoded, cutAll());
+        assertEquals(RUNS.size(), finalSeg.getMemoHitCount());
+
+        finalSeg.clearMemo();
+        finalSeg.resetMemoStatistics();
+        assertEquals(decoded, cutAll());
+        assertEquals(0, finalSeg.getMemoHitCount());
+        assertEquals(RUNS.size(), finalSeg.getMemoMissCount());
+
+        // 新模型下缓存的结果与直接解码相同
+        finalSeg.setModel(singles);
+        assertEquals(withSingles, decodeWithoutMemo());
+    }
+
+    @Test
+    public void zeroCapacityDisablesMemo() {
+        List<List<String>> decoded = cutAll();
+        finalSeg.resetMemoStatistics();
+        finalSeg.setMemoCapacity(0);
+        assertEquals(decoded, cutAll());
+        assertEquals(decoded, cutAll());
+        assertEquals(0, finalSeg.getMemoHitCount());
+        assertEquals(0, finalSeg.getMemoMissCount());
+
+        // 容量为1时所有字串共用一个槽位，交替出现的字串互相覆盖
+        finalSeg.setMemoCapacity(1);
+        assertEquals(decoded, cutAll());
+        assertEquals(decoded, cutAll());
+        assertEquals(0, finalSeg.getMemoHitCount());
+        assertEquals(2 * RUNS.size(), finalSeg.getMemoMissCount());
+    }
+
+    private List<List<String>> cutAll() {
+        List<List<String>> results = new ArrayList<>();
+        for (String run : RUNS) {
+            List<String> tokens = new ArrayList<>();
+            finalSeg.cut(run, tokens);
+            results.add(tokens);
+        }
+        return results;
+    }
+
+    /**
+     * 关闭缓存后逐个解码，调用后缓存保持关闭
+     */
+    private List<List<String>> decodeWithoutMemo() {
+        finalSeg.setMemoCapacity(0);
+        return cutAll();
+    }
+
+    /**
+     * 总是切成单字的模型：各状态的发射概率相同，S的初始与自转移概率远高于其他状态
+     */
+    private static HmmModel singlesModel() {
+        Map<Character, Double> start = new HashMap<>();
+        Map<Character, Map<Character, Double>> trans = new HashMap<>();
+        Map<Character, Map<Character, Double>> emit = new HashMap<>();
+        String[] transitions = {"BE", "BM", "MM", "ME", "EB", "ES", "SB", "SS"};
+        for (char state : HmmModel.STATES) {
+            start.put(state, state == 'S' ? -0.01 : -100.0);
+            trans.put(state, new HashMap<>());
+            Map<Character, Double> emission = new HashMap<>();
+            for (String run : RUNS) {
+                for (int i = 0; i < run.length(); i++) emission.put(run.charAt(i), -2.0);
+            }
+            emit.put(state, emission);
+        }
+        for (String transition : transitions) {
+            trans.get(transition.charAt(0)).put(transition.charAt(1), "SS".equals(transition) ? -0.01 : -100.0);
+        }
+        return new HmmModel(start, trans, emit);
+    }
+}